@@ -0,0 +1,100 @@
+package com.scentbird.scentbird_tic_tac_toe.benchmark;
+
+import com.scentbird.scentbird_tic_tac_toe.engine.Board;
+import com.scentbird.scentbird_tic_tac_toe.engine.BoardGeometry;
+import com.scentbird.scentbird_tic_tac_toe.engine.PerfectPlaySolver;
+import com.scentbird.scentbird_tic_tac_toe.model.Figure;
+import com.scentbird.scentbird_tic_tac_toe.model.GameSession;
+import com.scentbird.scentbird_tic_tac_toe.model.Player;
+import com.scentbird.scentbird_tic_tac_toe.service.GameService;
+import com.scentbird.scentbird_tic_tac_toe.service.GameSessionRegistry;
+import com.scentbird.scentbird_tic_tac_toe.service.MovePacer;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Builds the game services and the positions the benchmarks run against.
+ */
+public final class BenchmarkGames {
+    /**
+     * A drawn classic game, so none of its prefixes has a winner.
+     */
+    private static final int[] CLASSIC_DRAW = {4, 0, 2, 6, 3, 5, 7, 1, 8};
+
+    private BenchmarkGames() {
+    }
+
+    /**
+     * How far a game has progressed.
+     */
+    public enum Stage {
+        EMPTY, MID, NEAR_FULL;
+
+        int moves(BoardGeometry geometry) {
+            return switch (this) {
+                case EMPTY -> 0;
+                case MID -> geometry.cells() / 2;
+                case NEAR_FULL -> geometry.cells() - 2;
+            };
+        }
+    }
+
+    /**
+     * Parses a geometry written as {@code <width>x<height>x<win length>}, e.g. {@code 15x15x5}.
+     */
+    static BoardGeometry geometry(String spec) {
+        String[] parts = spec.split("x");
+        return new BoardGeometry(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+    }
+
+    static GameService gameService(BoardGeometry geometry) {
+        GameService gameService = new GameService();
+        gameService.setSessionRegistry(new GameSessionRegistry(1_000));
+        gameService.setSolver(new PerfectPlaySolver());
+        gameService.setPacer(new MovePacer(null, Duration.ZERO));
+        gameService.setGeometry(geometry);
+        return gameService;
+    }
+
+    /**
+     * Creates and registers a game which has reached the given stage and where it's our turn.
+     */
+    static GameSession game(GameService gameService, BoardGeometry geometry, Stage stage) {
+        int moves = stage.moves(geometry);
+        Board board = new Board(geometry);
+        for (int move = 0; move < moves; move++) {
+            if (geometry.isClassic()) {
+                board.set(CLASSIC_DRAW[move], move % 2 == 0 ? Figure.X : Figure.O);
+            } else {
+                // Alternating pairs never line up more than two equal figures in any direction
+                int x = move % geometry.getWidth();
+                int y = move / geometry.getWidth();
+                board.set(move, (x / 2 + y) % 2 == 0 ? Figure.X : Figure.O);
+            }
+        }
+        if (board.winner() != null)
+            throw new IllegalStateException("Benchmark position already has a winner: " + board);
+
+        // On the classic board X moves first, so whoever has fewer figures moves next
+        Figure toMove = Long.bitCount(board.bits(Figure.X)) > Long.bitCount(board.bits(Figure.O)) && geometry.isClassic()
+                ? Figure.O : Figure.X;
+        GameSession session = GameSession.builder()
+                .gameId(UUID.randomUUID().toString())
+                .player1(new Player(UUID.randomUUID().toString(), toMove))
+                .player2(new Player(UUID.randomUUID().toString(), Figure.getOppositeTo(toMove)))
+                .bitboard(board)
+                .build();
+        return gameService.getSessionRegistry().register(session);
+    }
+
+    /**
+     * @return The first free cell of the board.
+     */
+    static int firstFreeCell(Board board) {
+        for (int cell = 0; cell < board.getGeometry().cells(); cell++)
+            if (board.isEmpty(cell))
+                return cell;
+        throw new IllegalStateException("The board is full");
+    }
+}
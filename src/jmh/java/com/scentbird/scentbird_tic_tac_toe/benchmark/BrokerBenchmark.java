@@ -0,0 +1,126 @@
+package com.scentbird.scentbird_tic_tac_toe.benchmark;
+
+import com.scentbird.scentbird_tic_tac_toe.engine.BoardGeometry;
+import com.scentbird.scentbird_tic_tac_toe.model.GameSession;
+import com.scentbird.scentbird_tic_tac_toe.model.MoveEvent;
+import com.scentbird.scentbird_tic_tac_toe.service.GameService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompEncoder;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.simp.user.DefaultUserDestinationResolver;
+import org.springframework.messaging.simp.user.UserDestinationMessageHandler;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.messaging.DefaultSimpUserRegistry;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the broker work of delivering the reply to one move while every game has a peer connected:
+ * broadcasting it to a topic every peer subscribes to, or sending it to the queue of the peer which has
+ * made the move. A delivery includes encoding the STOMP frame, which is what the broker does per
+ * subscriber before the frame goes to the socket.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BrokerBenchmark {
+    @Param({"broadcast", "user-queue"})
+    String routing;
+
+    @Param({"1000"})
+    int games;
+
+    private SimpMessagingTemplate template;
+    private SimpleBrokerMessageHandler broker;
+    private UserDestinationMessageHandler userDestinations;
+    private MoveEvent reply;
+    private MessageHeaders peerHeaders;
+    private Blackhole blackhole;
+    private long deliveries;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        this.blackhole = blackhole;
+        StompEncoder encoder = new StompEncoder();
+        // Encodes the frames the way the STOMP sub-protocol handler does before writing them to the socket
+        MessageChannel clientOutbound = (message, timeout) -> {
+            MessageHeaders headers = message.getHeaders();
+            if (SimpMessageHeaderAccessor.getMessageType(headers) != SimpMessageType.MESSAGE)
+                return true;
+            StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.MESSAGE);
+            accessor.setSubscriptionId(SimpMessageHeaderAccessor.getSubscriptionId(headers));
+            accessor.setDestination(SimpMessageHeaderAccessor.getDestination(headers));
+            accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+            this.blackhole.consume(encoder.encode(accessor.getMessageHeaders(), (byte[]) message.getPayload()));
+            deliveries++;
+            return true;
+        };
+        ExecutorSubscribableChannel clientInbound = new ExecutorSubscribableChannel();
+        ExecutorSubscribableChannel brokerChannel = new ExecutorSubscribableChannel();
+        broker = new SimpleBrokerMessageHandler(clientInbound, clientOutbound, brokerChannel, List.of("/topic", "/queue"));
+        broker.start();
+        userDestinations = new UserDestinationMessageHandler(clientInbound, brokerChannel,
+                new DefaultUserDestinationResolver(new DefaultSimpUserRegistry()));
+        userDestinations.start();
+        template = new SimpMessagingTemplate(brokerChannel);
+        template.setMessageConverter(new MappingJackson2MessageConverter());
+
+        for (int game = 0; game < games; game++) {
+            String destination = "broadcast".equals(routing) ? "/topic/moves" : "/queue/moves-user" + sessionId(game);
+            SimpMessageHeaderAccessor connect = SimpMessageHeaderAccessor.create(SimpMessageType.CONNECT);
+            connect.setSessionId(sessionId(game));
+            broker.handleMessage(MessageBuilder.createMessage(new byte[0], connect.getMessageHeaders()));
+            SimpMessageHeaderAccessor subscribe = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+            subscribe.setSessionId(sessionId(game));
+            subscribe.setSubscriptionId("moves");
+            subscribe.setDestination(destination);
+            broker.handleMessage(MessageBuilder.createMessage(new byte[0], subscribe.getMessageHeaders()));
+        }
+
+        GameService gameService = BenchmarkGames.gameService(BoardGeometry.CLASSIC);
+        GameSession session = BenchmarkGames.game(gameService, BoardGeometry.CLASSIC, BenchmarkGames.Stage.MID);
+        reply = gameService.getNextMove(session);
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(sessionId(games / 2));
+        accessor.setLeaveMutable(true);
+        peerHeaders = accessor.getMessageHeaders();
+    }
+
+    @TearDown
+    public void tearDown() {
+        userDestinations.stop();
+        broker.stop();
+        if (deliveries == 0)
+            throw new IllegalStateException("No reply has reached a subscriber");
+    }
+
+    /**
+     * Delivers the reply to one move.
+     */
+    @Benchmark
+    public void reply() {
+        if ("broadcast".equals(routing))
+            template.convertAndSend("/topic/moves", reply);
+        else
+            template.convertAndSendToUser(sessionId(games / 2), "/queue/moves", reply, peerHeaders);
+    }
+
+    private static String sessionId(int game) {
+        return "session-" + game;
+    }
+}
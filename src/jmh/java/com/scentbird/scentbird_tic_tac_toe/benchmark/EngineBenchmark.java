@@ -0,0 +1,86 @@
+package com.scentbird.scentbird_tic_tac_toe.benchmark;
+
+import com.scentbird.scentbird_tic_tac_toe.engine.Board;
+import com.scentbird.scentbird_tic_tac_toe.engine.BoardGeometry;
+import com.scentbird.scentbird_tic_tac_toe.engine.PositionCache;
+import com.scentbird.scentbird_tic_tac_toe.model.GameSession;
+import com.scentbird.scentbird_tic_tac_toe.model.MoveEvent;
+import com.scentbird.scentbird_tic_tac_toe.service.GameService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the engine operations of {@link GameService} on empty, half-filled and nearly full boards.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EngineBenchmark {
+    @Param({"3x3x3", "15x15x5"})
+    String geometry;
+
+    @Param({"EMPTY", "MID", "NEAR_FULL"})
+    BenchmarkGames.Stage stage;
+
+    private GameService gameService;
+    private GameService cachingGameService;
+    private GameSession session;
+    private Board position;
+    private MoveEvent probe;
+    private MoveEvent move;
+    private int figureValue;
+
+    @Setup
+    public void setUp() {
+        BoardGeometry boardGeometry = BenchmarkGames.geometry(geometry);
+        gameService = BenchmarkGames.gameService(boardGeometry);
+        cachingGameService = BenchmarkGames.gameService(boardGeometry);
+        cachingGameService.setPositionCache(new PositionCache(boardGeometry, 1 << 20));
+        session = BenchmarkGames.game(gameService, boardGeometry, stage);
+        position = new Board(boardGeometry);
+        position.copyFrom(session.getBitboard());
+        figureValue = session.getPlayer1().getFigure().value();
+
+        probe = new MoveEvent();
+        int cell = BenchmarkGames.firstFreeCell(position);
+        move = new MoveEvent(session.getGameId(), session.getPlayer2(),
+                cell % boardGeometry.getWidth(), cell / boardGeometry.getWidth());
+    }
+
+    @Benchmark
+    public Integer checkWinner() {
+        return gameService.checkWinner(session);
+    }
+
+    @Benchmark
+    public boolean checkField() {
+        return gameService.checkField(probe, session.getBitboard(), figureValue);
+    }
+
+    @Benchmark
+    public MoveEvent getNextMove() {
+        return gameService.getNextMove(session);
+    }
+
+    /**
+     * Chooses the next move in a position seen before, which large boards answer from the position cache.
+     */
+    @Benchmark
+    public MoveEvent getNextMoveCached() {
+        return cachingGameService.getNextMove(session);
+    }
+
+    /**
+     * Restores the position and applies one move to it, the restore being a plain array copy.
+     */
+    @Benchmark
+    public GameSession updateSession() {
+        session.getBitboard().copyFrom(position);
+        gameService.updateSession(move);
+        return session;
+    }
+}
@@ -0,0 +1,65 @@
+package com.scentbird.scentbird_tic_tac_toe.benchmark;
+
+import com.scentbird.scentbird_tic_tac_toe.engine.BoardGeometry;
+import com.scentbird.scentbird_tic_tac_toe.model.GameSession;
+import com.scentbird.scentbird_tic_tac_toe.model.MoveEvent;
+import com.scentbird.scentbird_tic_tac_toe.service.GameService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures Jackson round-trips of the STOMP payloads through the message converter the client and the broker use.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessagingBenchmark {
+
+    @State(Scope.Thread)
+    public static class MoveState {
+        final MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter();
+        MoveEvent moveEvent;
+
+        @Setup
+        public void setUp() {
+            GameService gameService = BenchmarkGames.gameService(BoardGeometry.CLASSIC);
+            GameSession session = BenchmarkGames.game(gameService, BoardGeometry.CLASSIC, BenchmarkGames.Stage.MID);
+            moveEvent = gameService.getNextMove(session);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class SessionState {
+        @Param({"3x3x3", "15x15x5"})
+        String geometry;
+
+        @Param({"EMPTY", "MID", "NEAR_FULL"})
+        BenchmarkGames.Stage stage;
+
+        final MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter();
+        GameSession session;
+
+        @Setup
+        public void setUp() {
+            BoardGeometry boardGeometry = BenchmarkGames.geometry(geometry);
+            session = BenchmarkGames.game(BenchmarkGames.gameService(boardGeometry), boardGeometry, stage);
+        }
+    }
+
+    @Benchmark
+    public Object moveEventRoundTrip(MoveState state) {
+        Message<?> message = state.converter.toMessage(state.moveEvent, null);
+        return state.converter.fromMessage(message, MoveEvent.class);
+    }
+
+    @Benchmark
+    public Object gameSessionRoundTrip(SessionState state) {
+        Message<?> message = state.converter.toMessage(state.session, null);
+        return state.converter.fromMessage(message, GameSession.class);
+    }
+}
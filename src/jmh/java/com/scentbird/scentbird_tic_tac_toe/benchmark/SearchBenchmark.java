@@ -0,0 +1,68 @@
+package com.scentbird.scentbird_tic_tac_toe.benchmark;
+
+import com.scentbird.scentbird_tic_tac_toe.engine.Board;
+import com.scentbird.scentbird_tic_tac_toe.engine.BoardGeometry;
+import com.scentbird.scentbird_tic_tac_toe.engine.MonteCarloSearch;
+import com.scentbird.scentbird_tic_tac_toe.model.Figure;
+import com.scentbird.scentbird_tic_tac_toe.model.GameSession;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the playouts the tree search gets through within its budget, by the number of search threads.
+ * The playouts per second divided by the threads is the rate per core, which stays flat as long as the
+ * threads have a core each.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+    private static final Duration BUDGET = Duration.ofMillis(20);
+
+    @Param({"15x15x5"})
+    String geometry;
+
+    @Param({"1", "2", "4"})
+    int threads;
+
+    private MonteCarloSearch search;
+    private Board position;
+    private Figure toMove;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Playouts {
+        public long playouts;
+    }
+
+    @Setup
+    public void setUp() {
+        BoardGeometry boardGeometry = BenchmarkGames.geometry(geometry);
+        GameSession session = BenchmarkGames.game(BenchmarkGames.gameService(boardGeometry), boardGeometry,
+                BenchmarkGames.Stage.MID);
+        position = session.getBitboard();
+        toMove = session.getPlayer1().getFigure();
+        search = new MonteCarloSearch(boardGeometry, BUDGET, threads, 1 << 18);
+    }
+
+    @TearDown
+    public void tearDown() {
+        search.close();
+    }
+
+    /**
+     * Searches one move; a move takes the budget, and the playouts counter reports the playouts per second.
+     */
+    @Benchmark
+    public int bestMove(Playouts counters) {
+        long before = search.playouts();
+        int cell = search.bestMove(position, toMove);
+        counters.playouts += search.playouts() - before;
+        return cell;
+    }
+}
@@ -0,0 +1,76 @@
+package com.scentbird.scentbird_tic_tac_toe.benchmark;
+
+import com.scentbird.scentbird_tic_tac_toe.config.VirtualThreads;
+import com.scentbird.scentbird_tic_tac_toe.engine.BoardGeometry;
+import com.scentbird.scentbird_tic_tac_toe.model.GameSession;
+import com.scentbird.scentbird_tic_tac_toe.service.GameService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+
+/**
+ * Compares the channel executor on platform threads, sized like Spring's default of two threads per core,
+ * with the one on virtual threads, when every move also blocks for a millisecond the way a slow peer
+ * or socket write does. Virtual threads need Java 21; on older JVMs the virtual runs fail in setup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ThreadingBenchmark {
+    private static final long BLOCKING_MILLIS = 1;
+
+    @Param({"platform", "virtual"})
+    String threads;
+
+    @Param({"1000", "10000"})
+    int connections;
+
+    ThreadPoolExecutor executor;
+    GameService gameService;
+    GameSession session;
+
+    @Setup
+    public void setUp() {
+        int poolSize = Runtime.getRuntime().availableProcessors() * 2;
+        ThreadFactory factory = Executors.defaultThreadFactory();
+        if ("virtual".equals(threads)) {
+            factory = VirtualThreads.factory("benchmark-");
+            if (factory == null)
+                throw new IllegalStateException("Virtual threads need Java 21");
+            poolSize = connections;
+        }
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), factory);
+        executor.allowCoreThreadTimeOut(true);
+        gameService = BenchmarkGames.gameService(BoardGeometry.CLASSIC);
+        session = BenchmarkGames.game(gameService, BoardGeometry.CLASSIC, BenchmarkGames.Stage.MID);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Handles one move for each of the connections and waits until all of them are done.
+     */
+    @Benchmark
+    public void moveOfEveryConnection() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(connections);
+        for (int i = 0; i < connections; i++) {
+            executor.execute(() -> {
+                try {
+                    Thread.sleep(BLOCKING_MILLIS);
+                    gameService.getNextMove(session);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+    }
+}
@@ -0,0 +1,62 @@
+package com.scentbird.scentbird_tic_tac_toe.benchmark;
+
+import com.scentbird.scentbird_tic_tac_toe.converter.MoveEventBinaryMessageConverter;
+import com.scentbird.scentbird_tic_tac_toe.engine.BoardGeometry;
+import com.scentbird.scentbird_tic_tac_toe.model.GameSession;
+import com.scentbird.scentbird_tic_tac_toe.model.MoveEvent;
+import com.scentbird.scentbird_tic_tac_toe.service.GameService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.AbstractMessageConverter;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the JSON and the binary encoding of a move: serialization and deserialization time per move.
+ * The payload of a binary move is always {@value MoveEventBinaryMessageConverter#MESSAGE_SIZE} bytes, which
+ * MoveEventBinaryMessageConverterTest checks.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WireFormatBenchmark {
+
+    @Param({"json", "binary"})
+    String format;
+
+    AbstractMessageConverter converter;
+    MessageHeaders headers;
+    MoveEvent moveEvent;
+    Message<?> message;
+
+    @Setup
+    public void setUp() {
+        GameService gameService = BenchmarkGames.gameService(BoardGeometry.CLASSIC);
+        GameSession session = BenchmarkGames.game(gameService, BoardGeometry.CLASSIC, BenchmarkGames.Stage.MID);
+        moveEvent = gameService.getNextMove(session);
+        if ("binary".equals(format)) {
+            converter = new MoveEventBinaryMessageConverter();
+            headers = new MessageHeaders(Map.of(MessageHeaders.CONTENT_TYPE, MoveEventBinaryMessageConverter.MIME_TYPE));
+        } else {
+            converter = new MappingJackson2MessageConverter();
+            headers = null;
+        }
+        message = converter.toMessage(moveEvent, headers);
+    }
+
+    @Benchmark
+    public Object serialize() {
+        return converter.toMessage(moveEvent, headers);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return converter.fromMessage(message, MoveEvent.class);
+    }
+}
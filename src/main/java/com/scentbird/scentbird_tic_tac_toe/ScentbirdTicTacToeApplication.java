@@ -1,5 +1,6 @@
 package com.scentbird.scentbird_tic_tac_toe;
 
+import com.scentbird.scentbird_tic_tac_toe.metrics.StartupTimeline;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
@@ -7,7 +8,8 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 public class ScentbirdTicTacToeApplication {
 
     public static void main(String[] args) {
-        SpringApplication.run(ScentbirdTicTacToeApplication.class, args);
+        SpringApplication.withHook(application -> new StartupTimeline(),
+                () -> SpringApplication.run(ScentbirdTicTacToeApplication.class, args));
     }
 
 }
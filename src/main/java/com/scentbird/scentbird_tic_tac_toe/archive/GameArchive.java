@@ -0,0 +1,347 @@
+package com.scentbird.scentbird_tic_tac_toe.archive;
+
+import com.scentbird.scentbird_tic_tac_toe.engine.Board;
+import com.scentbird.scentbird_tic_tac_toe.model.*;
+import com.scentbird.scentbird_tic_tac_toe.service.GameListener;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * An archive of the finished games of the classic board, which answers questions about all of them
+ * without loading them into the heap.
+ * <p>
+ * Every game is a {@link PackedGame} of 8 bytes. The archive is a sequence of segments of a fixed
+ * number of games, and a segment stores its games column by column in two files written through a
+ * memory mapping: {@code games-N.col} holds the packed games, {@code players-N.col} the players of
+ * each game as two ints indexing {@value #DICTIONARY}, which lists every player id once. A query maps
+ * the segments one after another and only reads the columns it needs, so the outcomes and lengths of
+ * the games are counted from 8 bytes a game. Free space of a segment reads as 0, which no packed game is.
+ * <p>
+ * A segment is flushed to disk when it is full and when the archive is closed; until then flushing
+ * is left to the operating system. Games of other boards aren't archived.
+ */
+@Slf4j
+public class GameArchive implements GameListener, Closeable {
+    public static final int GAME_BYTES = Long.BYTES;
+
+    private static final String GAMES_PREFIX = "games-";
+    private static final String PLAYERS_PREFIX = "players-";
+    private static final String SEGMENT_SUFFIX = ".col";
+    private static final String DICTIONARY = "players.dict";
+    private static final int NO_PLAYER = -1;
+
+    private final Path directory;
+    private final int segmentGames;
+    private final Map<String, Integer> playerIndexes = new HashMap<>();
+    private final List<String> playerIds = new ArrayList<>();
+    private FileChannel dictionary;
+    private long segment;
+    private FileChannel gamesChannel;
+    private FileChannel playersChannel;
+    private MappedByteBuffer games;
+    private MappedByteBuffer players;
+    private int count;
+
+    /**
+     * @param directory   The directory of the segment files.
+     * @param segmentSize The size of the games column of a segment in bytes, a multiple of {@value #GAME_BYTES}.
+     */
+    public GameArchive(Path directory, long segmentSize) {
+        if (segmentSize < GAME_BYTES || segmentSize > Integer.MAX_VALUE || segmentSize % GAME_BYTES != 0)
+            throw new IllegalArgumentException(String.format("Segment size %s must be a multiple of %s below 2GB",
+                    segmentSize, GAME_BYTES));
+        this.directory = directory;
+        this.segmentGames = (int) (segmentSize / GAME_BYTES);
+    }
+
+    /**
+     * Reads the player ids and opens a new segment for appending. Must be called once, before any game is archived.
+     *
+     * @throws IOException if the archive can't be read or the new segment can't be created.
+     */
+    public synchronized void open() throws IOException {
+        if (dictionary != null)
+            throw new IllegalStateException("The archive has already been opened");
+        Files.createDirectories(directory);
+        Path dictionaryPath = directory.resolve(DICTIONARY);
+        dictionary = FileChannel.open(dictionaryPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        readDictionary(Files.readAllBytes(dictionaryPath));
+        List<Long> segments = segments();
+        segment = segments.isEmpty() ? 0 : segments.get(segments.size() - 1) + 1;
+        openSegment();
+    }
+
+    @Override
+    public synchronized void gameEnded(GameSession session) {
+        if (!session.getBitboard().getGeometry().isClassic())
+            return;
+        if (dictionary == null)
+            throw new IllegalStateException("The archive must be opened before archiving");
+        long game = PackedGame.pack(session);
+        try {
+            if (count == segmentGames)
+                rotate();
+            // The players go first: a reader stops at the first game which is still 0
+            players.putInt(count * GAME_BYTES, playerIndex(session.getPlayer1()))
+                    .putInt(count * GAME_BYTES + Integer.BYTES, playerIndex(session.getPlayer2()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Can't archive game %s", session.getGameId()), e);
+        }
+        games.putLong(count * GAME_BYTES, game);
+        count++;
+    }
+
+    /**
+     * @return The outcomes and the average length of all archived games.
+     */
+    public ArchiveSummary summary() {
+        long[] totals = new long[6];
+        scan(false, (game, player1, player2) -> {
+            totals[0]++;
+            totals[1] += PackedGame.moveCount(game);
+            int outcome = PackedGame.outcome(game);
+            if (outcome == PackedGame.DRAW)
+                totals[4]++;
+            else if (outcome == PackedGame.ABANDONED)
+                totals[5]++;
+            else
+                totals[PackedGame.winner(game) == PackedGame.firstMover(game) ? 2 : 3]++;
+        });
+        return ArchiveSummary.builder()
+                .games(totals[0])
+                .averageMoves(totals[0] == 0 ? 0 : (double) totals[1] / totals[0])
+                .firstMoverWins(totals[2])
+                .secondMoverWins(totals[3])
+                .draws(totals[4])
+                .abandoned(totals[5])
+                .build();
+    }
+
+    /**
+     * @return The outcomes of the games by the cell of their first move, for every cell at least one game was opened in.
+     */
+    public List<OpeningStats> openings() {
+        // Games, first mover wins, second mover wins and draws by cell
+        long[][] totals = new long[Board.CELLS][4];
+        scan(false, (game, player1, player2) -> {
+            if (PackedGame.moveCount(game) == 0)
+                return;
+            long[] cell = totals[PackedGame.cell(game, 0)];
+            cell[0]++;
+            Figure winner = PackedGame.winner(game);
+            if (winner != null)
+                cell[winner == PackedGame.firstMover(game) ? 1 : 2]++;
+            else if (PackedGame.outcome(game) == PackedGame.DRAW)
+                cell[3]++;
+        });
+        List<OpeningStats> openings = new ArrayList<>();
+        for (int cell = 0; cell < Board.CELLS; cell++) {
+            if (totals[cell][0] > 0)
+                openings.add(new OpeningStats(cell % Board.SIZE, cell / Board.SIZE,
+                        totals[cell][0], totals[cell][1], totals[cell][2], totals[cell][3]));
+        }
+        return openings;
+    }
+
+    /**
+     * @param limit The number of players to return.
+     * @return The outcomes of the games of the players who played the most games, most games first.
+     */
+    public List<PlayerStats> players(int limit) {
+        List<String> ids;
+        synchronized (this) {
+            ids = List.copyOf(playerIds);
+        }
+        // Games, wins, losses and draws by player index
+        long[][] totals = new long[ids.size()][4];
+        scan(true, (game, player1, player2) -> {
+            Figure winner = PackedGame.winner(game);
+            boolean draw = PackedGame.outcome(game) == PackedGame.DRAW;
+            Figure figure1 = PackedGame.player1Figure(game);
+            count(totals, player1, figure1, winner, draw);
+            count(totals, player2, Figure.getOppositeTo(figure1), winner, draw);
+        });
+        List<PlayerStats> stats = new ArrayList<>();
+        for (int player = 0; player < totals.length; player++) {
+            if (totals[player][0] > 0)
+                stats.add(new PlayerStats(ids.get(player),
+                        totals[player][0], totals[player][1], totals[player][2], totals[player][3]));
+        }
+        stats.sort(Comparator.comparingLong(PlayerStats::getGames).reversed());
+        return stats.subList(0, Math.min(limit, stats.size()));
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (dictionary != null) {
+            closeSegment();
+            dictionary.close();
+            dictionary = null;
+        }
+    }
+
+    /**
+     * @return The number of segments on disk.
+     */
+    public synchronized int segmentCount() {
+        try {
+            return segments().size();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void count(long[][] totals, int player, Figure figure, Figure winner, boolean draw) {
+        if (player == NO_PLAYER || player >= totals.length)
+            return;
+        long[] stats = totals[player];
+        stats[0]++;
+        if (winner != null)
+            stats[winner == figure ? 1 : 2]++;
+        else if (draw)
+            stats[3]++;
+    }
+
+    /**
+     * Feeds every archived game to the visitor, segment after segment. The active segment is read up to
+     * the games archived when the scan starts; segments opened later are skipped.
+     *
+     * @param withPlayers Whether the players column is read; without it the visitor gets {@value #NO_PLAYER} for them.
+     */
+    private void scan(boolean withPlayers, GameVisitor visitor) {
+        long active;
+        int activeCount;
+        ByteBuffer activeGames;
+        ByteBuffer activePlayers;
+        synchronized (this) {
+            if (dictionary == null)
+                throw new IllegalStateException("The archive must be opened before querying");
+            active = segment;
+            activeCount = count;
+            activeGames = games.duplicate();
+            activePlayers = players.duplicate();
+        }
+        try {
+            for (long number : segments()) {
+                if (number == active)
+                    visit(activeGames, withPlayers ? activePlayers : null, activeCount, visitor);
+                else if (number < active)
+                    visitSegment(number, withPlayers, visitor);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't read the game archive", e);
+        }
+    }
+
+    private void visitSegment(long number, boolean withPlayers, GameVisitor visitor) throws IOException {
+        try (FileChannel gamesFile = FileChannel.open(path(GAMES_PREFIX, number), StandardOpenOption.READ);
+             FileChannel playersFile = withPlayers ? FileChannel.open(path(PLAYERS_PREFIX, number), StandardOpenOption.READ) : null) {
+            MappedByteBuffer gamesData = gamesFile.map(FileChannel.MapMode.READ_ONLY, 0, gamesFile.size());
+            MappedByteBuffer playersData = playersFile == null ? null
+                    : playersFile.map(FileChannel.MapMode.READ_ONLY, 0, playersFile.size());
+            visit(gamesData, playersData, (int) (gamesFile.size() / GAME_BYTES), visitor);
+        }
+    }
+
+    private static void visit(ByteBuffer gamesData, ByteBuffer playersData, int count, GameVisitor visitor) {
+        for (int i = 0; i < count; i++) {
+            long game = gamesData.getLong(i * GAME_BYTES);
+            if (game == 0)
+                break;
+            if (playersData == null)
+                visitor.visit(game, NO_PLAYER, NO_PLAYER);
+            else
+                visitor.visit(game, playersData.getInt(i * GAME_BYTES), playersData.getInt(i * GAME_BYTES + Integer.BYTES));
+        }
+    }
+
+    /**
+     * Gets the index of a player id, appending the id to the dictionary the first time it's seen. The
+     * dictionary is flushed before any game refers to the new index.
+     */
+    private int playerIndex(Player player) throws IOException {
+        String playerId = player == null ? null : player.getPlayerId();
+        if (playerId == null || playerId.indexOf('\n') >= 0)
+            return NO_PLAYER;
+        Integer index = playerIndexes.get(playerId);
+        if (index != null)
+            return index;
+        dictionary.write(ByteBuffer.wrap((playerId + '\n').getBytes(StandardCharsets.UTF_8)), dictionary.size());
+        dictionary.force(false);
+        playerIds.add(playerId);
+        playerIndexes.put(playerId, playerIds.size() - 1);
+        return playerIds.size() - 1;
+    }
+
+    /**
+     * Reads the player ids, cutting off a last id which a crash has left without its line end.
+     */
+    private void readDictionary(byte[] bytes) throws IOException {
+        int start = 0;
+        for (int end = 0; end < bytes.length; end++) {
+            if (bytes[end] == '\n') {
+                String playerId = new String(bytes, start, end - start, StandardCharsets.UTF_8);
+                playerIndexes.put(playerId, playerIds.size());
+                playerIds.add(playerId);
+                start = end + 1;
+            }
+        }
+        if (start < bytes.length) {
+            log.warn(String.format("Player dictionary is torn at offset %s, cutting it off", start));
+            dictionary.truncate(start);
+        }
+    }
+
+    private void rotate() throws IOException {
+        closeSegment();
+        segment++;
+        openSegment();
+    }
+
+    private void openSegment() throws IOException {
+        gamesChannel = FileChannel.open(path(GAMES_PREFIX, segment), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        playersChannel = FileChannel.open(path(PLAYERS_PREFIX, segment), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        games = gamesChannel.map(FileChannel.MapMode.READ_WRITE, 0, (long) segmentGames * GAME_BYTES);
+        players = playersChannel.map(FileChannel.MapMode.READ_WRITE, 0, (long) segmentGames * GAME_BYTES);
+        count = 0;
+    }
+
+    private void closeSegment() throws IOException {
+        players.force();
+        games.force();
+        playersChannel.close();
+        gamesChannel.close();
+    }
+
+    private List<Long> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(GAMES_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(GAMES_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path path(String prefix, long number) {
+        return directory.resolve(String.format("%s%020d%s", prefix, number, SEGMENT_SUFFIX));
+    }
+
+    private interface GameVisitor {
+        void visit(long game, int player1, int player2);
+    }
+}
@@ -0,0 +1,105 @@
+package com.scentbird.scentbird_tic_tac_toe.archive;
+
+import com.scentbird.scentbird_tic_tac_toe.engine.Board;
+import com.scentbird.scentbird_tic_tac_toe.model.Figure;
+import com.scentbird.scentbird_tic_tac_toe.model.GameSession;
+import com.scentbird.scentbird_tic_tac_toe.model.MoveEvent;
+
+import java.util.List;
+
+/**
+ * Packs a finished game of the classic board into a single {@code long}:
+ * <pre>
+ * bits  0-35   the cells of moves 1 to 9, a nibble each
+ * bits 36-39   the number of moves
+ * bits 40-41   the outcome: 1 if X won, 2 if O won, 3 for a draw, 0 if the game was abandoned
+ * bit  42      the figure which moved first (1 for X)
+ * bit  43      the figure of player 1 (1 for X)
+ * bit  63      always set, so no game packs to 0, which marks the free space of a segment
+ * </pre>
+ */
+public final class PackedGame {
+    public static final int ABANDONED = 0;
+    public static final int X_WON = 1;
+    public static final int O_WON = 2;
+    public static final int DRAW = 3;
+
+    private static final int CELL_BITS = 4;
+    private static final int COUNT_SHIFT = Board.CELLS * CELL_BITS;
+    private static final int OUTCOME_SHIFT = COUNT_SHIFT + 4;
+    private static final int FIRST_MOVER_SHIFT = OUTCOME_SHIFT + 2;
+    private static final int PLAYER1_SHIFT = FIRST_MOVER_SHIFT + 1;
+    private static final long PRESENT = 1L << 63;
+
+    private PackedGame() {
+    }
+
+    /**
+     * @param session A game of the classic board.
+     * @return The game packed into a non-zero {@code long}.
+     */
+    public static long pack(GameSession session) {
+        Board board = session.getBitboard();
+        if (!board.getGeometry().isClassic())
+            throw new IllegalArgumentException(String.format("Only games of the classic board can be packed, not %s",
+                    board.getGeometry()));
+        List<MoveEvent> moves = session.getMoves();
+        Figure player1 = session.getPlayer1().getFigure();
+        Figure firstMover = moves.isEmpty() ? player1 : moves.get(0).getPlayer().getFigure();
+        long game = PRESENT | (long) moves.size() << COUNT_SHIFT
+                | (long) outcome(board) << OUTCOME_SHIFT
+                | (long) firstMover.value() << FIRST_MOVER_SHIFT
+                | (long) player1.value() << PLAYER1_SHIFT;
+        for (int move = 0; move < moves.size(); move++) {
+            MoveEvent moveEvent = moves.get(move);
+            game |= (long) Board.cell(moveEvent.getX(), moveEvent.getY()) << move * CELL_BITS;
+        }
+        return game;
+    }
+
+    public static int moveCount(long game) {
+        return (int) (game >>> COUNT_SHIFT) & 0xF;
+    }
+
+    /**
+     * @param game The packed game.
+     * @param move The number of the move, from 0.
+     * @return The cell the move was played in.
+     */
+    public static int cell(long game, int move) {
+        return (int) (game >>> move * CELL_BITS) & 0xF;
+    }
+
+    /**
+     * @return One of {@link #X_WON}, {@link #O_WON}, {@link #DRAW} and {@link #ABANDONED}.
+     */
+    public static int outcome(long game) {
+        return (int) (game >>> OUTCOME_SHIFT) & 0b11;
+    }
+
+    public static Figure firstMover(long game) {
+        return Figure.valueOf((int) (game >>> FIRST_MOVER_SHIFT) & 1);
+    }
+
+    public static Figure player1Figure(long game) {
+        return Figure.valueOf((int) (game >>> PLAYER1_SHIFT) & 1);
+    }
+
+    /**
+     * @return The figure which won the game, or null for a draw or an abandoned game.
+     */
+    public static Figure winner(long game) {
+        return switch (outcome(game)) {
+            case X_WON -> Figure.X;
+            case O_WON -> Figure.O;
+            default -> null;
+        };
+    }
+
+    private static int outcome(Board board) {
+        Figure winner = board.winner();
+        if (winner != null)
+            return winner == Figure.X ? X_WON : O_WON;
+        return board.isFull() || board.isDeadDraw() ? DRAW : ABANDONED;
+    }
+}
@@ -0,0 +1,50 @@
+package com.scentbird.scentbird_tic_tac_toe.cluster;
+
+import com.scentbird.scentbird_tic_tac_toe.model.GameSession;
+import com.scentbird.scentbird_tic_tac_toe.model.GameStateDelta;
+import com.scentbird.scentbird_tic_tac_toe.model.MoveEvent;
+import com.scentbird.scentbird_tic_tac_toe.model.ResumeRequest;
+import com.scentbird.scentbird_tic_tac_toe.model.ResumeResponse;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A message between the nodes of a cluster: a move or a resume request forwarded to the node which owns its
+ * game, the answer to either on its way back to the node the peer is connected to, the eviction of a game
+ * on its way to the peer who played it, or a game handed over to its new owner.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ClusterMessage {
+    public enum Type {
+        MOVE,
+        REPLY,
+        RESUME,
+        RESUMED,
+        EVICTED,
+        SESSION
+    }
+
+    Type type;
+    /**
+     * The node the peer who sent the move or the resume request is connected to, which sends the answer to the peer.
+     */
+    String origin;
+    /**
+     * The STOMP session of the peer on the origin node.
+     */
+    String sessionId;
+    MoveEvent move;
+    /**
+     * Whether the reply to the move has to be sent in the binary format.
+     */
+    boolean binary;
+    ResumeRequest resume;
+    ResumeResponse resumed;
+    GameStateDelta evicted;
+    GameSession session;
+}
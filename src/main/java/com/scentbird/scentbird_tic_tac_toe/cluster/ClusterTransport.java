@@ -0,0 +1,47 @@
+package com.scentbird.scentbird_tic_tac_toe.cluster;
+
+import java.util.Set;
+
+/**
+ * Carries the messages between the nodes of a cluster and tells the nodes who is in the cluster.
+ * Messages between two nodes arrive in the order they were sent.
+ */
+public interface ClusterTransport {
+
+    /**
+     * Adds a node to the cluster. Every node, the new one included, learns about the new members.
+     *
+     * @param nodeId   The id of the node.
+     * @param receiver Receives the messages and membership changes of the node.
+     */
+    void join(String nodeId, Receiver receiver);
+
+    /**
+     * Removes a node from the cluster. The remaining nodes learn about the new members.
+     *
+     * @param nodeId The id of the node.
+     */
+    void leave(String nodeId);
+
+    /**
+     * Sends a message to a node.
+     *
+     * @param nodeId  The id of the receiving node.
+     * @param message The message.
+     * @throws IllegalStateException if there's no such node in the cluster.
+     */
+    void send(String nodeId, ClusterMessage message);
+
+    interface Receiver {
+
+        /**
+         * @param members The ids of the nodes in the cluster now.
+         */
+        void membersChanged(Set<String> members);
+
+        /**
+         * @param message A message sent to this node.
+         */
+        void receive(ClusterMessage message);
+    }
+}
@@ -0,0 +1,280 @@
+package com.scentbird.scentbird_tic_tac_toe.cluster;
+
+import com.scentbird.scentbird_tic_tac_toe.model.GameSession;
+import com.scentbird.scentbird_tic_tac_toe.model.GameStateDelta;
+import com.scentbird.scentbird_tic_tac_toe.model.MoveEvent;
+import com.scentbird.scentbird_tic_tac_toe.model.ResumeRequest;
+import com.scentbird.scentbird_tic_tac_toe.model.ResumeResponse;
+import com.scentbird.scentbird_tic_tac_toe.service.GameService;
+import com.scentbird.scentbird_tic_tac_toe.service.GameSessionRegistry;
+import com.scentbird.scentbird_tic_tac_toe.service.MoveLanes;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Decides which node of the cluster plays a game, so the games are spread over the nodes and every game
+ * is played by exactly one of them. Without a {@link ClusterTransport} this node plays every game.
+ * <p>
+ * The owner of a game follows from the {@link HashRing} of the current members. A move which arrives at
+ * another node is forwarded to the owner, and the reply travels back to the node the peer is connected to.
+ * A resume request after a reconnect takes the same way.
+ * When the members change, every node hands the games it no longer owns over to their new owners. The
+ * handover runs on the lane of the game, and a node keeps playing the games it still holds, so the moves
+ * queued before the handover are played here and travel with the game, while the moves queued after it
+ * are forwarded. The game is released on the node which hands it over and adopted by its new owner, so the
+ * listeners of both nodes, such as the journal, follow it. A node which shuts down hands its games over
+ * before it leaves; the games of a node which crashes are lost.
+ */
+@Component
+@Slf4j
+public class GamePartitioner implements ClusterTransport.Receiver {
+    @Getter
+    private final String nodeId;
+    private final int virtualNodes;
+    @Autowired(required = false)
+    ClusterTransport transport;
+    @Autowired
+    GameSessionRegistry sessionRegistry;
+    @Autowired
+    GameService gameService;
+    @Autowired
+    MoveLanes lanes;
+    private volatile HashRing ring;
+    private volatile Consumer<ClusterMessage> moveReceiver = message -> {
+    };
+    private final LongAdder forwarded = new LongAdder();
+    private final LongAdder handedOver = new LongAdder();
+
+    /**
+     * @param nodeId       The id of this node, or an empty string for a random one.
+     * @param virtualNodes The number of points every node takes on the ring.
+     */
+    public GamePartitioner(@Value("${game.cluster.node-id:}") String nodeId,
+                           @Value("${game.cluster.virtual-nodes:128}") int virtualNodes) {
+        this.nodeId = nodeId.isEmpty() ? UUID.randomUUID().toString() : nodeId;
+        this.virtualNodes = virtualNodes;
+        this.ring = new HashRing(List.of(this.nodeId), virtualNodes);
+    }
+
+    @PostConstruct
+    public void join() {
+        if (transport != null) {
+            log.info(String.format("Node %s is joining the cluster", nodeId));
+            transport.join(nodeId, this);
+        }
+    }
+
+    /**
+     * Hands every game over to the remaining nodes, then leaves the cluster.
+     */
+    @PreDestroy
+    public void leave() {
+        if (transport == null)
+            return;
+        Set<String> others = new HashSet<>(ring.nodes());
+        others.remove(nodeId);
+        if (!others.isEmpty()) {
+            ring = new HashRing(others, virtualNodes);
+            for (GameSession session : new ArrayList<>(sessionRegistry.sessions()))
+                handOver(session.getGameId());
+        }
+        transport.leave(nodeId);
+        log.info(String.format("Node %s has left the cluster, %s games handed over", nodeId, handedOver.sum()));
+    }
+
+    /**
+     * @param receiver Plays the moves and answers the resume requests forwarded to this node, and sends the
+     *                 answers which come back.
+     */
+    public void setMoveReceiver(Consumer<ClusterMessage> receiver) {
+        this.moveReceiver = receiver;
+    }
+
+    /**
+     * @param gameId The game id, null for a game which hasn't started yet.
+     * @return True if this node owns the game, which it may still have to take over from its previous owner.
+     */
+    public boolean isLocal(String gameId) {
+        return transport == null || gameId == null || nodeId.equals(ring.owner(gameId));
+    }
+
+    /**
+     * @param gameId The game id.
+     * @return The id of the node which plays the game.
+     */
+    public String owner(String gameId) {
+        return gameId == null ? nodeId : ring.owner(gameId);
+    }
+
+    /**
+     * Forwards a move to the node which plays its game.
+     *
+     * @param move   The move.
+     * @param binary Whether the reply has to be sent in the binary format.
+     * @param origin    The node the peer is connected to, which gets the reply.
+     * @param sessionId The STOMP session of the peer on that node.
+     */
+    public void forward(MoveEvent move, boolean binary, String origin, String sessionId) {
+        forwarded.increment();
+        transport.send(owner(move.getGameId()), ClusterMessage.builder()
+                .type(ClusterMessage.Type.MOVE)
+                .origin(origin)
+                .sessionId(sessionId)
+                .move(move)
+                .binary(binary)
+                .build());
+    }
+
+    /**
+     * Sends the reply to a forwarded move back to the node which has forwarded it.
+     *
+     * @param nodeId    The node the peer is connected to.
+     * @param sessionId The STOMP session of the peer on that node.
+     * @param reply     The reply.
+     * @param binary    Whether the reply has to be sent in the binary format.
+     */
+    public void reply(String nodeId, String sessionId, MoveEvent reply, boolean binary) {
+        transport.send(nodeId, ClusterMessage.builder()
+                .type(ClusterMessage.Type.REPLY)
+                .sessionId(sessionId)
+                .move(reply)
+                .binary(binary)
+                .build());
+    }
+
+    /**
+     * Forwards a resume request to the node which plays its game.
+     *
+     * @param request   The resume request.
+     * @param origin    The node the peer is connected to, which gets the answer.
+     * @param sessionId The STOMP session of the peer on that node.
+     */
+    public void forwardResume(ResumeRequest request, String origin, String sessionId) {
+        forwarded.increment();
+        transport.send(owner(request.getGameId()), ClusterMessage.builder()
+                .type(ClusterMessage.Type.RESUME)
+                .origin(origin)
+                .sessionId(sessionId)
+                .resume(request)
+                .build());
+    }
+
+    /**
+     * Sends the answer to a forwarded resume request back to the node which has forwarded it.
+     *
+     * @param nodeId    The node the peer is connected to.
+     * @param sessionId The STOMP session of the peer on that node.
+     * @param response  The answer.
+     */
+    public void replyResume(String nodeId, String sessionId, ResumeResponse response) {
+        transport.send(nodeId, ClusterMessage.builder()
+                .type(ClusterMessage.Type.RESUMED)
+                .sessionId(sessionId)
+                .resumed(response)
+                .build());
+    }
+
+    /**
+     * Tells the peer who played a game that the game has been evicted, through the node it is connected to,
+     * which may be this one.
+     *
+     * @param nodeId    The node the peer is connected to.
+     * @param sessionId The STOMP session of the peer on that node.
+     * @param delta     The last change of the game, marked as evicted.
+     */
+    public void evicted(String nodeId, String sessionId, GameStateDelta delta) {
+        ClusterMessage message = ClusterMessage.builder()
+                .type(ClusterMessage.Type.EVICTED)
+                .sessionId(sessionId)
+                .evicted(delta)
+                .build();
+        if (transport == null || this.nodeId.equals(nodeId))
+            moveReceiver.accept(message);
+        else
+            transport.send(nodeId, message);
+    }
+
+    @Override
+    public void membersChanged(Set<String> members) {
+        if (!members.contains(nodeId))
+            return;
+        ring = new HashRing(members, virtualNodes);
+        log.info(String.format("Node %s sees %s nodes in the cluster", nodeId, members.size()));
+        for (GameSession session : sessionRegistry.sessions()) {
+            String gameId = session.getGameId();
+            if (isLocal(gameId))
+                continue;
+            try {
+                lanes.execute(gameId, () -> handOver(gameId));
+            } catch (RejectedExecutionException e) {
+                // The lane is full, so hand the game over right away and let the queued moves be forwarded
+                handOver(gameId);
+            }
+        }
+    }
+
+    @Override
+    public void receive(ClusterMessage message) {
+        if (message.getType() == ClusterMessage.Type.SESSION) {
+            GameSession session = message.getSession();
+            // Only a peer who has moved on without waiting for the handover can have started the game here
+            GameSession replaced = gameService.adopt(session);
+            if (replaced != null)
+                log.warn(String.format("Node %s took over game %s and dropped the %s moves played here before the handover",
+                        nodeId, session.getGameId(), replaced.getMoves().size()));
+            else
+                log.debug(String.format("Node %s took over game %s", nodeId, session.getGameId()));
+        } else {
+            moveReceiver.accept(message);
+        }
+    }
+
+    /**
+     * @return The number of moves and resume requests this node has forwarded to other nodes.
+     */
+    public long forwarded() {
+        return forwarded.sum();
+    }
+
+    /**
+     * @return The number of games this node has handed over to other nodes.
+     */
+    public long handedOver() {
+        return handedOver.sum();
+    }
+
+    /**
+     * Sends a game to its owner unless this node owns it again by now or has already handed it over.
+     */
+    private void handOver(String gameId) {
+        if (isLocal(gameId))
+            return;
+        GameSession session = gameService.release(gameId);
+        if (session == null)
+            return;
+        try {
+            transport.send(owner(gameId), ClusterMessage.builder()
+                    .type(ClusterMessage.Type.SESSION)
+                    .origin(nodeId)
+                    .session(session)
+                    .build());
+            handedOver.increment();
+        } catch (IllegalStateException e) {
+            log.warn(String.format("Game %s is lost: %s", gameId, e.getMessage()));
+        }
+    }
+}
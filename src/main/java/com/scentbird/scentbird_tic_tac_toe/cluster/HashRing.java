@@ -0,0 +1,80 @@
+package com.scentbird.scentbird_tic_tac_toe.cluster;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Assigns game ids to nodes by consistent hashing. Every node takes a number of points on a ring of
+ * 64-bit hashes, and a game belongs to the node of the first point at or after the hash of its id.
+ * <p>
+ * With enough points per node the games spread evenly, and a node which joins or leaves only moves the
+ * games between itself and its neighbours, about one game in the number of nodes. The ring is immutable,
+ * so it's replaced as a whole when the nodes change and read without locks.
+ */
+public final class HashRing {
+    private final Set<String> nodes;
+    private final long[] points;
+    private final String[] owners;
+
+    /**
+     * @param nodes        The ids of the nodes.
+     * @param virtualNodes The number of points every node takes on the ring.
+     */
+    public HashRing(Collection<String> nodes, int virtualNodes) {
+        this.nodes = Set.copyOf(nodes);
+        String[] sorted = new TreeSet<>(nodes).toArray(new String[0]);
+        long[] keys = new long[sorted.length * virtualNodes];
+        for (int node = 0; node < sorted.length; node++)
+            for (int point = 0; point < virtualNodes; point++)
+                // The owner is kept in the low bits of the key, which costs a negligible part of the hash
+                keys[node * virtualNodes + point] = hash(sorted[node] + '#' + point) & ~0xFFFFL | node;
+        Arrays.sort(keys);
+        points = new long[keys.length];
+        owners = new String[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            points[i] = keys[i] & ~0xFFFFL;
+            owners[i] = sorted[(int) (keys[i] & 0xFFFF)];
+        }
+    }
+
+    /**
+     * Gets the node which owns the given game.
+     *
+     * @param gameId The game id.
+     * @return The id of the owning node, or null if the ring is empty.
+     */
+    public String owner(String gameId) {
+        if (points.length == 0)
+            return null;
+        int index = Arrays.binarySearch(points, hash(gameId));
+        if (index < 0)
+            index = -index - 1;
+        return owners[index == points.length ? 0 : index];
+    }
+
+    /**
+     * @return The ids of the nodes on the ring.
+     */
+    public Set<String> nodes() {
+        return nodes;
+    }
+
+    /**
+     * Hashes a string with FNV-1a and spreads the result with the finalizer of MurmurHash3, since the
+     * game ids and point names differ in few characters.
+     */
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ hash >>> 33;
+    }
+}
@@ -0,0 +1,53 @@
+package com.scentbird.scentbird_tic_tac_toe.cluster;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Connects the nodes running in one JVM, such as several application contexts started by a test.
+ * Nodes find each other by the name of the cluster. A message is handed to the receiver on the
+ * sending thread, so it's delivered in order and never lost while the receiving node is up.
+ */
+public final class LocalClusterTransport implements ClusterTransport {
+    private static final Map<String, LocalClusterTransport> CLUSTERS = new ConcurrentHashMap<>();
+
+    private final Map<String, Receiver> members = new ConcurrentHashMap<>();
+
+    /**
+     * @param name The name of the cluster.
+     * @return The transport shared by every node of the cluster in this JVM.
+     */
+    public static LocalClusterTransport named(String name) {
+        return CLUSTERS.computeIfAbsent(name, key -> new LocalClusterTransport());
+    }
+
+    /**
+     * Every node is told about every change, in the order of the changes.
+     */
+    @Override
+    public synchronized void join(String nodeId, Receiver receiver) {
+        members.put(nodeId, receiver);
+        announce();
+    }
+
+    @Override
+    public synchronized void leave(String nodeId) {
+        if (members.remove(nodeId) != null)
+            announce();
+    }
+
+    @Override
+    public void send(String nodeId, ClusterMessage message) {
+        Receiver receiver = members.get(nodeId);
+        if (receiver == null)
+            throw new IllegalStateException(String.format("Node %s is not in the cluster", nodeId));
+        receiver.receive(message);
+    }
+
+    private void announce() {
+        Set<String> snapshot = Set.copyOf(members.keySet());
+        for (Receiver receiver : members.values())
+            receiver.membersChanged(snapshot);
+    }
+}
@@ -0,0 +1,27 @@
+package com.scentbird.scentbird_tic_tac_toe.config;
+
+import com.scentbird.scentbird_tic_tac_toe.archive.GameArchive;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+@Configuration
+@ConditionalOnProperty(name = "game.archive.enabled", havingValue = "true")
+public class ArchiveConf {
+
+    /**
+     * The archive of finished games, which gets every game as it ends and answers the queries of {@code /game/archive}.
+     */
+    @Bean(destroyMethod = "close")
+    public GameArchive gameArchive(@Value("${game.archive.directory:archive}") Path directory,
+                                   @Value("${game.archive.segment-size:32MB}") DataSize segmentSize) throws IOException {
+        GameArchive archive = new GameArchive(directory, segmentSize.toBytes());
+        archive.open();
+        return archive;
+    }
+}
@@ -0,0 +1,80 @@
+package com.scentbird.scentbird_tic_tac_toe.config;
+
+import com.scentbird.scentbird_tic_tac_toe.engine.BatchEvaluator;
+import com.scentbird.scentbird_tic_tac_toe.engine.BoardGeometry;
+import com.scentbird.scentbird_tic_tac_toe.engine.MonteCarloSearch;
+import com.scentbird.scentbird_tic_tac_toe.engine.OpeningBook;
+import com.scentbird.scentbird_tic_tac_toe.engine.PerfectPlaySolver;
+import com.scentbird.scentbird_tic_tac_toe.engine.PositionCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Configuration
+@Slf4j
+public class BoardConf {
+
+    /**
+     * The board every new game is played on. Both peers of a game must use the same one.
+     */
+    @Bean
+    public BoardGeometry boardGeometry(@Value("${game.board.width:3}") int width,
+                                       @Value("${game.board.height:3}") int height,
+                                       @Value("${game.board.win-length:3}") int winLength) {
+        return new BoardGeometry(width, height, winLength);
+    }
+
+    /**
+     * Remembers move decisions on boards larger than the classic one, which the solver can't answer.
+     */
+    @Bean
+    public PositionCache positionCache(BoardGeometry geometry,
+                                       @Value("${game.engine.cache.max-size:16MB}") DataSize maxSize) {
+        return geometry.isClassic() ? PositionCache.NONE : new PositionCache(geometry, maxSize.toBytes());
+    }
+
+    /**
+     * The precomputed early moves, consulted before the solver and any search. The file is only mapped, so
+     * startup doesn't grow with the size of the book; without {@code game.engine.book.file} there's no book.
+     */
+    @Bean
+    public OpeningBook openingBook(BoardGeometry geometry,
+                                   @Value("${game.engine.book.file:}") String file) throws IOException {
+        if (file.isEmpty())
+            return OpeningBook.NONE;
+        long start = System.nanoTime();
+        OpeningBook book = OpeningBook.open(Path.of(file), geometry);
+        log.info(String.format("Mapped the opening book %s with %s moves in %s ms",
+                file, book.size(), (System.nanoTime() - start) / 1_000_000));
+        return book;
+    }
+
+    /**
+     * Searches for the move when there's no winning or blocking one, instead of playing a random move. It trades
+     * the whole budget of CPU time for every such move, so it's only enabled with {@code game.engine.strategy=mcts}.
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "game.engine.strategy", havingValue = "mcts")
+    public MonteCarloSearch monteCarloSearch(BoardGeometry geometry,
+                                             @Value("${game.engine.mcts.budget:50ms}") Duration budget,
+                                             @Value("${game.engine.mcts.threads:0}") int threads,
+                                             @Value("${game.engine.mcts.max-nodes:262144}") int maxNodes) {
+        return new MonteCarloSearch(geometry, budget, threads, maxNodes);
+    }
+
+    /**
+     * Answers batches of 3x3 positions for offline analysis, whatever board the games here are played on.
+     */
+    @Bean(destroyMethod = "close")
+    public BatchEvaluator batchEvaluator(PerfectPlaySolver solver,
+                                         @Value("${game.engine.batch.threads:0}") int threads) {
+        return new BatchEvaluator(solver, threads);
+    }
+}
@@ -0,0 +1,22 @@
+package com.scentbird.scentbird_tic_tac_toe.config;
+
+import com.scentbird.scentbird_tic_tac_toe.cluster.ClusterTransport;
+import com.scentbird.scentbird_tic_tac_toe.cluster.LocalClusterTransport;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ClusterConf {
+
+    /**
+     * Connects the nodes running in this JVM which share the cluster name. A transport between hosts plugs
+     * in as another {@link ClusterTransport} bean selected by {@code game.cluster.transport}.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "game.cluster.transport", havingValue = "local")
+    public ClusterTransport localClusterTransport(@Value("${game.cluster.name:tic-tac-toe}") String name) {
+        return LocalClusterTransport.named(name);
+    }
+}
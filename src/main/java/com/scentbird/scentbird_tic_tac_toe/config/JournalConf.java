@@ -0,0 +1,38 @@
+package com.scentbird.scentbird_tic_tac_toe.config;
+
+import com.scentbird.scentbird_tic_tac_toe.journal.MoveJournal;
+import com.scentbird.scentbird_tic_tac_toe.model.GameSession;
+import com.scentbird.scentbird_tic_tac_toe.service.GameSessionRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+@Configuration
+@Slf4j
+@ConditionalOnProperty(name = "game.journal.enabled", havingValue = "true")
+public class JournalConf {
+
+    /**
+     * The move journal, which brings the games in progress back into the registry before the node plays any move.
+     */
+    @Bean(destroyMethod = "close")
+    public MoveJournal moveJournal(@Value("${game.journal.directory:journal}") Path directory,
+                                   @Value("${game.journal.segment-size:64MB}") DataSize segmentSize,
+                                   @Value("${game.journal.sync-batch:256}") int syncBatch,
+                                   GameSessionRegistry sessionRegistry) throws IOException {
+        MoveJournal journal = new MoveJournal(directory, segmentSize.toBytes(), syncBatch);
+        long start = System.nanoTime();
+        List<GameSession> sessions = journal.recover();
+        sessions.forEach(sessionRegistry::register);
+        log.info(String.format("Recovered %s games in progress from the journal in %s ms",
+                sessions.size(), (System.nanoTime() - start) / 1_000_000));
+        return journal;
+    }
+}
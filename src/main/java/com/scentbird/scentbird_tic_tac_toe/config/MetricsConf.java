@@ -0,0 +1,161 @@
+package com.scentbird.scentbird_tic_tac_toe.config;
+
+import com.scentbird.scentbird_tic_tac_toe.cluster.GamePartitioner;
+import com.scentbird.scentbird_tic_tac_toe.engine.MonteCarloSearch;
+import com.scentbird.scentbird_tic_tac_toe.engine.OpeningBook;
+import com.scentbird.scentbird_tic_tac_toe.engine.PositionCache;
+import com.scentbird.scentbird_tic_tac_toe.service.GameSessionRegistry;
+import com.scentbird.scentbird_tic_tac_toe.service.MoveLanes;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+@Configuration
+public class MetricsConf {
+
+    @Bean
+    public MeterBinder sessionMetrics(GameSessionRegistry sessionRegistry) {
+        return registry -> Gauge.builder("game.sessions.active", sessionRegistry, GameSessionRegistry::size)
+                .description("Games in progress")
+                .register(registry);
+    }
+
+    /**
+     * Lookups of the position cache by result, and how full it is. The cache is idle on the classic board.
+     */
+    @Bean
+    public MeterBinder positionCacheMetrics(PositionCache cache) {
+        return registry -> {
+            FunctionCounter.builder("game.engine.cache.gets", cache, PositionCache::hits)
+                    .description("Position cache lookups")
+                    .tag("result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("game.engine.cache.gets", cache, PositionCache::misses)
+                    .description("Position cache lookups")
+                    .tag("result", "miss")
+                    .register(registry);
+            Gauge.builder("game.engine.cache.hit-rate", cache, PositionCache::hitRate)
+                    .description("Share of position cache lookups answered from the cache")
+                    .register(registry);
+            Gauge.builder("game.engine.cache.size", cache, PositionCache::size)
+                    .description("Positions in the cache")
+                    .register(registry);
+            Gauge.builder("game.engine.cache.capacity", cache, PositionCache::capacity)
+                    .description("Positions the cache can hold")
+                    .register(registry);
+        };
+    }
+
+    /**
+     * Lookups of the opening book by result. Once games leave the book, its lookups are misses.
+     */
+    @Bean
+    public MeterBinder openingBookMetrics(OpeningBook book) {
+        return registry -> {
+            FunctionCounter.builder("game.engine.book.gets", book, OpeningBook::hits)
+                    .description("Opening book lookups")
+                    .tag("result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("game.engine.book.gets", book, OpeningBook::misses)
+                    .description("Opening book lookups")
+                    .tag("result", "miss")
+                    .register(registry);
+        };
+    }
+
+    /**
+     * Moves and games which have left this node for the node owning their game.
+     */
+    @Bean
+    public MeterBinder clusterMetrics(GamePartitioner partitioner) {
+        return registry -> {
+            FunctionCounter.builder("game.cluster.moves.forwarded", partitioner, GamePartitioner::forwarded)
+                    .description("Moves forwarded to the node which plays their game")
+                    .register(registry);
+            FunctionCounter.builder("game.cluster.games.handed-over", partitioner, GamePartitioner::handedOver)
+                    .description("Games handed over to their new owner after the nodes changed")
+                    .register(registry);
+        };
+    }
+
+    /**
+     * Playouts of the tree search, if it's enabled. Their rate divided by the search threads is the rate per core.
+     */
+    @Bean
+    public MeterBinder searchMetrics(ObjectProvider<MonteCarloSearch> search) {
+        return registry -> search.ifAvailable(engine -> FunctionCounter.builder("game.engine.playouts", engine, MonteCarloSearch::playouts)
+                .description("Random games played out by the tree search")
+                .tag("threads", String.valueOf(engine.getThreads()))
+                .register(registry));
+    }
+
+    /**
+     * Queue depth and busy threads of the executors every move passes through. A growing queue shows
+     * saturation well before the reply time does.
+     */
+    @Bean
+    public MeterBinder channelMetrics(@Qualifier("clientInboundChannelExecutor") ThreadPoolTaskExecutor inbound,
+                                      @Qualifier("clientOutboundChannelExecutor") ThreadPoolTaskExecutor outbound,
+                                      @Qualifier("movePacingScheduler") ThreadPoolTaskScheduler pacing) {
+        return registry -> {
+            bind(registry, "inbound", inbound, ThreadPoolTaskExecutor::getThreadPoolExecutor);
+            bind(registry, "outbound", outbound, ThreadPoolTaskExecutor::getThreadPoolExecutor);
+            bind(registry, "pacing", pacing, ThreadPoolTaskScheduler::getScheduledThreadPoolExecutor);
+        };
+    }
+
+    /**
+     * The lanes are measured as a whole: a single busy lane is a hot game, all of them busy is an overloaded node.
+     */
+    @Bean
+    public MeterBinder laneMetrics(MoveLanes lanes) {
+        return registry -> {
+            Gauge.builder("game.channel.queued", lanes, MoveLanes::queued)
+                    .description("Tasks waiting for a thread")
+                    .tag("channel", "lanes")
+                    .register(registry);
+            Gauge.builder("game.channel.active", lanes, MoveLanes::active)
+                    .description("Threads running a task")
+                    .tag("channel", "lanes")
+                    .register(registry);
+        };
+    }
+
+    /**
+     * Gauges only keep a weak reference to what they measure, so they measure the executor bean itself.
+     */
+    private static <T> void bind(MeterRegistry registry, String channel, T executor,
+                                 Function<T, ? extends ThreadPoolExecutor> pool) {
+        Gauge.builder("game.channel.queued", executor, bean -> measure(bean, pool, running -> running.getQueue().size()))
+                .description("Tasks waiting for a thread")
+                .tag("channel", channel)
+                .register(registry);
+        Gauge.builder("game.channel.active", executor, bean -> measure(bean, pool, ThreadPoolExecutor::getActiveCount))
+                .description("Threads running a task")
+                .tag("channel", channel)
+                .register(registry);
+    }
+
+    /**
+     * The executors are only available once they're initialized, which may be later than the gauges are bound.
+     */
+    private static <T> double measure(T executor, Function<T, ? extends ThreadPoolExecutor> pool,
+                                      ToDoubleFunction<ThreadPoolExecutor> value) {
+        try {
+            return value.applyAsDouble(pool.apply(executor));
+        } catch (IllegalStateException e) {
+            return Double.NaN;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.scentbird.scentbird_tic_tac_toe.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+@Configuration
+public class PacingConf {
+
+    /**
+     * The timer which sends paced moves. Sending a move doesn't block, so a single thread serves any number of games.
+     */
+    @Bean
+    public ThreadPoolTaskScheduler movePacingScheduler(@Value("${game.pacing.threads:1}") int threads) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(threads);
+        scheduler.setThreadNamePrefix("move-pacing-");
+        return scheduler;
+    }
+}
@@ -0,0 +1,21 @@
+package com.scentbird.scentbird_tic_tac_toe.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+@Configuration
+public class SessionConf {
+
+    /**
+     * The timer which ticks the wheel of session timeouts. A tick only hands the expired games over to their
+     * lanes, so a single thread serves any number of games.
+     */
+    @Bean
+    public ThreadPoolTaskScheduler sessionExpiryScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(1);
+        scheduler.setThreadNamePrefix("session-expiry-");
+        return scheduler;
+    }
+}
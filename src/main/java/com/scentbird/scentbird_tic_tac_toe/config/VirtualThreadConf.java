@@ -0,0 +1,26 @@
+package com.scentbird.scentbird_tic_tac_toe.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+
+import java.util.concurrent.ThreadFactory;
+
+@Configuration
+@ConditionalOnProperty(name = "game.threads.virtual", havingValue = "true")
+public class VirtualThreadConf {
+
+    /**
+     * Serves every WebSocket connection on its own virtual thread instead of the bounded Tomcat pool.
+     */
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandler() {
+        ThreadFactory factory = VirtualThreads.factory("http-");
+        return protocolHandler -> {
+            if (factory != null)
+                protocolHandler.setExecutor(new SimpleAsyncTaskExecutor(factory));
+        };
+    }
+}
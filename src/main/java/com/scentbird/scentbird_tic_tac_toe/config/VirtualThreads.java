@@ -0,0 +1,65 @@
+package com.scentbird.scentbird_tic_tac_toe.config;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Creates virtual threads on Java 21 and later while the application is still built for Java 17,
+ * so the thread mode is a deployment choice instead of a build one.
+ */
+@Slf4j
+public final class VirtualThreads {
+    private static final Method OF_VIRTUAL;
+    private static final Method NAME;
+    private static final Method FACTORY;
+    private static final AtomicBoolean WARNED = new AtomicBoolean();
+
+    static {
+        Method ofVirtual = null;
+        Method name = null;
+        Method factory = null;
+        try {
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            name = builder.getMethod("name", String.class, long.class);
+            factory = builder.getMethod("factory");
+            // Fails if virtual threads are a preview feature which isn't enabled
+            ofVirtual.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            ofVirtual = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        NAME = name;
+        FACTORY = factory;
+    }
+
+    private VirtualThreads() {
+    }
+
+    public static boolean isSupported() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * Creates a factory of virtual threads named with the prefix and a sequence number.
+     *
+     * @param prefix The prefix of the thread names.
+     * @return The thread factory, or null if this JVM has no virtual threads.
+     */
+    public static ThreadFactory factory(String prefix) {
+        if (!isSupported()) {
+            if (WARNED.compareAndSet(false, true))
+                log.warn(String.format("Virtual threads need Java 21, running on platform threads on Java %s",
+                        Runtime.version().feature()));
+            return null;
+        }
+        try {
+            return (ThreadFactory) FACTORY.invoke(NAME.invoke(OF_VIRTUAL.invoke(null), prefix, 0L));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Can't create a virtual thread factory", e);
+        }
+    }
+}
@@ -1,18 +1,32 @@
 package com.scentbird.scentbird_tic_tac_toe.config;
 
+import com.scentbird.scentbird_tic_tac_toe.converter.MoveEventBinaryMessageConverter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
 
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConf implements WebSocketMessageBrokerConfigurer {
+    @Value("${game.threads.virtual:false}")
+    boolean virtualThreads;
+    @Value("${game.threads.virtual-pool-size:10000}")
+    int virtualPoolSize;
 
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic");
+        // Replies to moves, resume answers, evictions and overload errors go to the /user/queue destinations of the
+        // single peer they're meant for; the topics only carry the state of the games to whoever watches them
+        config.enableSimpleBroker("/topic", "/queue");
         config.setApplicationDestinationPrefixes("/app");
     }
 
@@ -20,4 +34,40 @@ public class WebSocketConf implements WebSocketMessageBrokerConfigurer {
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         registry.addEndpoint("/game");
     }
+
+    /**
+     * Adds the binary move format next to the default converters. It only applies to messages marked with its
+     * content type, so JSON stays the default.
+     */
+    @Override
+    public boolean configureMessageConverters(List<MessageConverter> messageConverters) {
+        messageConverters.add(new MoveEventBinaryMessageConverter());
+        return true;
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        configureChannel(registration, "clientInboundChannel-");
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        configureChannel(registration, "clientOutboundChannel-");
+    }
+
+    /**
+     * Runs the messages of a channel on virtual threads if they're enabled. The pool only caps how many
+     * messages run at once, since a virtual thread blocked on I/O doesn't hold a platform thread.
+     */
+    private void configureChannel(ChannelRegistration registration, String prefix) {
+        ThreadFactory factory = virtualThreads ? VirtualThreads.factory(prefix) : null;
+        if (factory == null)
+            return;
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadFactory(factory);
+        executor.setAllowCoreThreadTimeOut(true);
+        registration.taskExecutor(executor)
+                .corePoolSize(virtualPoolSize)
+                .maxPoolSize(virtualPoolSize);
+    }
 }
@@ -0,0 +1,52 @@
+package com.scentbird.scentbird_tic_tac_toe.controller;
+
+import com.scentbird.scentbird_tic_tac_toe.archive.GameArchive;
+import com.scentbird.scentbird_tic_tac_toe.model.ArchiveSummary;
+import com.scentbird.scentbird_tic_tac_toe.model.OpeningStats;
+import com.scentbird.scentbird_tic_tac_toe.model.PlayerStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * Answers questions about the finished games of the {@link GameArchive}. Every request scans the
+ * whole archive, so the answers are always current and cost a pass over 8 bytes per game.
+ */
+@RestController
+@RequestMapping("/game/archive")
+@ConditionalOnProperty(name = "game.archive.enabled", havingValue = "true")
+public class ArchiveController {
+
+    @Autowired
+    GameArchive archive;
+
+    /**
+     * @return The number of games, their average length and how many of them the first or the second mover won.
+     */
+    @GetMapping("/summary")
+    public ArchiveSummary summary() {
+        return archive.summary();
+    }
+
+    /**
+     * @return The outcomes of the games by the cell of their first move.
+     */
+    @GetMapping("/openings")
+    public List<OpeningStats> openings() {
+        return archive.openings();
+    }
+
+    /**
+     * @param limit The number of players to return.
+     * @return The wins, losses and draws of the players with the most games.
+     */
+    @GetMapping("/players")
+    public List<PlayerStats> players(@RequestParam(defaultValue = "100") int limit) {
+        return archive.players(limit);
+    }
+}
@@ -0,0 +1,55 @@
+package com.scentbird.scentbird_tic_tac_toe.controller;
+
+import com.scentbird.scentbird_tic_tac_toe.engine.BatchEvaluator;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Exposes the engine to offline analysis, outside of any game.
+ */
+@RestController
+@RequestMapping("/game/engine")
+@Slf4j
+public class EngineController {
+    private static final int MAX_BATCH_SIZE = 1 << 20;
+
+    @Autowired
+    BatchEvaluator evaluator;
+
+    @Value("${game.engine.batch.size:4096}")
+    int defaultBatchSize;
+
+    /**
+     * Evaluates the positions of the request body, in the format of {@link BatchEvaluator}: a 4-byte word per
+     * position in, a byte per position out, in the same order. The body is read a batch at a time, and the
+     * answers to every batch are sent as soon as it's evaluated, so neither side holds all the positions.
+     *
+     * @param batchSize The number of positions evaluated at once, {@code game.engine.batch.size} by default.
+     */
+    @PostMapping(path = "/evaluate", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public void evaluate(@RequestParam(required = false) Integer batchSize, InputStream body,
+                         HttpServletResponse response) throws IOException {
+        int size = batchSize == null ? defaultBatchSize : batchSize;
+        if (size <= 0 || size > MAX_BATCH_SIZE)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    String.format("The batch size must be between 1 and %s, not %s", MAX_BATCH_SIZE, size));
+        response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        long start = System.nanoTime();
+        long positions = evaluator.evaluate(body, response.getOutputStream(), size);
+        if (log.isDebugEnabled())
+            log.debug(String.format("Evaluated %s positions in batches of %s in %s ms",
+                    positions, size, (System.nanoTime() - start) / 1_000_000));
+    }
+}
@@ -4,6 +4,7 @@ import com.scentbird.scentbird_tic_tac_toe.model.GameSession;
 import com.scentbird.scentbird_tic_tac_toe.service.GameService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
@@ -20,9 +21,20 @@ public class GameController {
         gameService.startNewGame(ip, port);
     }
 
+    /**
+     * Gets the state of the current game, tagged with its game id and version. A request with the tag in
+     * {@code If-None-Match} gets 304 Not Modified without the state being serialized while the game hasn't changed.
+     * Changes are pushed to {@value GameStateStream#STATE_TOPIC}, so there's no need to poll.
+     *
+     * @return The current game session.
+     */
     @GetMapping("/state")
-    @ResponseStatus(HttpStatus.OK)
-    public GameSession getGameState() {
-        return gameService.getGameState();
+    public ResponseEntity<GameSession> getGameState() {
+        GameSession session = gameService.getGameState();
+        if (session == null)
+            return ResponseEntity.ok().build();
+        return ResponseEntity.ok()
+                .eTag(String.format("%s-%s", session.getGameId(), session.getVersion()))
+                .body(session);
     }
 }
@@ -0,0 +1,58 @@
+package com.scentbird.scentbird_tic_tac_toe.controller;
+
+import com.scentbird.scentbird_tic_tac_toe.cluster.GamePartitioner;
+import com.scentbird.scentbird_tic_tac_toe.model.GameSession;
+import com.scentbird.scentbird_tic_tac_toe.model.GameStateDelta;
+import com.scentbird.scentbird_tic_tac_toe.model.MoveEvent;
+import com.scentbird.scentbird_tic_tac_toe.service.GameListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Pushes every change of a game to the {@value #STATE_TOPIC} topic, so dashboards follow the games
+ * by subscribing once instead of polling the whole state, and to the {@value #GAME_TOPIC}{gameId}
+ * topic of the game, so a spectator of one game gets the changes of that game only. The peer who plays
+ * a game doesn't follow these topics; the last delta of an evicted game is sent to that peer alone,
+ * through the node it is connected to.
+ * <p>
+ * A subscriber fetches {@code GET /game/state} once, then applies the deltas whose version follows
+ * the version it has.
+ */
+@Component
+public class GameStateStream implements GameListener {
+    public static final String STATE_TOPIC = "/topic/state";
+    public static final String GAME_TOPIC = "/topic/games/";
+
+    @Autowired
+    SimpMessagingTemplate messagingTemplate;
+    @Lazy
+    @Autowired
+    GamePartitioner partitioner;
+
+    @Override
+    public void movePlayed(GameSession session, MoveEvent moveEvent) {
+        push(session, moveEvent);
+    }
+
+    @Override
+    public void gameEnded(GameSession session) {
+        GameStateDelta delta = push(session, null);
+        if (session.isEvicted() && session.getPeerSessionId() != null)
+            partitioner.evicted(session.getPeerNode(), session.getPeerSessionId(), delta);
+    }
+
+    private GameStateDelta push(GameSession session, MoveEvent moveEvent) {
+        GameStateDelta delta = GameStateDelta.builder()
+                .gameId(session.getGameId())
+                .version(session.getVersion())
+                .move(moveEvent)
+                .ended(session.isEnded())
+                .evicted(session.isEvicted())
+                .build();
+        messagingTemplate.convertAndSend(STATE_TOPIC, delta);
+        messagingTemplate.convertAndSend(GAME_TOPIC + session.getGameId(), delta);
+        return delta;
+    }
+}
@@ -1,27 +1,205 @@
 package com.scentbird.scentbird_tic_tac_toe.controller;
 
+import com.scentbird.scentbird_tic_tac_toe.cluster.ClusterMessage;
+import com.scentbird.scentbird_tic_tac_toe.cluster.GamePartitioner;
+import com.scentbird.scentbird_tic_tac_toe.converter.MoveEventBinaryMessageConverter;
+import com.scentbird.scentbird_tic_tac_toe.metrics.GameMetrics;
+import com.scentbird.scentbird_tic_tac_toe.model.GameSession;
 import com.scentbird.scentbird_tic_tac_toe.model.MoveEvent;
+import com.scentbird.scentbird_tic_tac_toe.model.ResumeRequest;
+import com.scentbird.scentbird_tic_tac_toe.model.ResumeResponse;
 import com.scentbird.scentbird_tic_tac_toe.service.GameService;
+import com.scentbird.scentbird_tic_tac_toe.service.MoveLanes;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.DefaultContentTypeResolver;
+import org.springframework.messaging.handler.annotation.MessageExceptionHandler;
 import org.springframework.messaging.handler.annotation.MessageMapping;
-import org.springframework.messaging.handler.annotation.SendTo;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.annotation.SendToUser;
+import org.springframework.util.MimeType;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
 @RestController
 @Slf4j
 public class WebSocketGameController {
+    private static final String MOVES_QUEUE = "/queue/moves";
+    private static final String ERRORS_QUEUE = "/queue/errors";
+    private static final String RESUME_QUEUE = "/queue/resume";
+    private static final String EVICTIONS_QUEUE = "/queue/evictions";
+    private static final DefaultContentTypeResolver CONTENT_TYPE_RESOLVER = new DefaultContentTypeResolver();
+
     @Autowired
     GameService gameService;
 
+    @Autowired
+    SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    GameMetrics metrics;
+
+    @Autowired
+    MoveLanes lanes;
+
+    @Autowired
+    GamePartitioner partitioner;
+
+    @PostConstruct
+    public void receiveForwardedMoves() {
+        partitioner.setMoveReceiver(this::receive);
+    }
 
+    /**
+     * Hands the move over to the lane of its game, which processes the moves of that game one by one.
+     * The reply time includes the time the move waited on the lane. The reply goes to the
+     * {@value #MOVES_QUEUE} queue of the sender only, so a move costs the broker one delivery however
+     * many peers are connected.
+     */
     @MessageMapping("/game")
-    @SendTo("/topic/moves")
-    public MoveEvent makeMove(MoveEvent moveEvent) {
+    public void makeMove(MoveEvent moveEvent, MessageHeaders headers) {
+        long start = System.nanoTime();
         log.debug("Received message : " + moveEvent);
-        gameService.initGameIfNeeded(moveEvent);
-        gameService.checkWinnerAndStartAgain();
-        return gameService.saveAndMakeMove(moveEvent);
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(headers);
+        boolean binary = isBinary(CONTENT_TYPE_RESOLVER.resolve(headers));
+        play(moveEvent, binary, partitioner.getNodeId(), sessionId, start, reply -> sendToPeer(sessionId, reply, binary));
+    }
+
+    /**
+     * Answers a peer which has reconnected with the moves of its game it has missed. The answer is prepared
+     * on the lane of the game, so it sees every move played before, and goes to the {@value #RESUME_QUEUE}
+     * queue of the peer only. In a cluster the request follows the game to the node which plays it, like a move.
+     */
+    @MessageMapping("/resume")
+    public void resume(ResumeRequest request, SimpMessageHeaderAccessor headers) {
+        String sessionId = headers.getSessionId();
+        resume(request, partitioner.getNodeId(), sessionId, response -> sendResumeToPeer(sessionId, response));
+    }
+
+    /**
+     * Plays a move or answers a resume request which another node has forwarded, or sends the answer to one
+     * this node has forwarded. An eviction goes to the {@value #EVICTIONS_QUEUE} queue of the peer who played
+     * the game, so peers don't have to follow the changes of their games to learn of it.
+     */
+    private void receive(ClusterMessage message) {
+        try {
+            switch (message.getType()) {
+                case REPLY -> sendToPeer(message.getSessionId(), message.getMove(), message.isBinary());
+                case RESUMED -> sendResumeToPeer(message.getSessionId(), message.getResumed());
+                case EVICTED -> messagingTemplate.convertAndSendToUser(message.getSessionId(), EVICTIONS_QUEUE,
+                        message.getEvicted(), peerHeaders(message.getSessionId(), false));
+                case RESUME -> resume(message.getResume(), message.getOrigin(), message.getSessionId(),
+                        response -> partitioner.replyResume(message.getOrigin(), message.getSessionId(), response));
+                case MOVE -> play(message.getMove(), message.isBinary(), message.getOrigin(), message.getSessionId(),
+                        System.nanoTime(),
+                        reply -> partitioner.reply(message.getOrigin(), message.getSessionId(), reply, message.isBinary()));
+                default -> log.warn(String.format("Unexpected %s message from node %s", message.getType(), message.getOrigin()));
+            }
+        } catch (RejectedExecutionException e) {
+            if (message.getType() == ClusterMessage.Type.MOVE)
+                metrics.moveRejected();
+            log.warn(e.getMessage());
+        }
+    }
+
+    /**
+     * Plays the move on the lane of its game, or forwards it if another node plays the game. A game this node
+     * still holds is played here, even if it has another owner by now: its handover is queued on the same lane,
+     * so the moves queued before the handover are played here and the moves queued after it follow the game.
+     *
+     * @param origin    The node the peer is connected to.
+     * @param sessionId The STOMP session of the peer on that node.
+     * @param reply     Sends the reply to the peer.
+     */
+    private void play(MoveEvent moveEvent, boolean binary, String origin, String sessionId, long start,
+                      Consumer<MoveEvent> reply) {
+        lanes.execute(moveEvent.getGameId(), () -> {
+            if (gameService.getSessionRegistry().get(moveEvent.getGameId()) == null
+                    && !partitioner.isLocal(moveEvent.getGameId())) {
+                partitioner.forward(moveEvent, binary, origin, sessionId);
+                return;
+            }
+            try {
+                GameSession session = gameService.initGameIfNeeded(moveEvent);
+                session = gameService.checkWinnerAndStartAgain(session);
+                session.setPeerNode(origin);
+                session.setPeerSessionId(sessionId);
+                gameService.saveAndMakeMove(session, moveEvent, reply);
+            } finally {
+                metrics.recordServerReply(System.nanoTime() - start);
+            }
+        });
+    }
+
+    /**
+     * Answers the resume request on the lane of its game, or forwards it if another node plays the game,
+     * following the same rule as {@link #play}.
+     *
+     * @param origin    The node the peer is connected to.
+     * @param sessionId The STOMP session of the peer on that node.
+     * @param answer    Sends the answer to the peer.
+     */
+    private void resume(ResumeRequest request, String origin, String sessionId, Consumer<ResumeResponse> answer) {
+        lanes.execute(request.getGameId(), () -> {
+            if (gameService.getSessionRegistry().get(request.getGameId()) == null
+                    && !partitioner.isLocal(request.getGameId())) {
+                partitioner.forwardResume(request, origin, sessionId);
+                return;
+            }
+            answer.accept(gameService.resume(request));
+        });
+    }
+
+    private void sendResumeToPeer(String sessionId, ResumeResponse response) {
+        messagingTemplate.convertAndSendToUser(sessionId, RESUME_QUEUE, response, peerHeaders(sessionId, false));
     }
 
+    private void sendToPeer(String sessionId, MoveEvent reply, boolean binary) {
+        messagingTemplate.convertAndSendToUser(sessionId, MOVES_QUEUE, reply, peerHeaders(sessionId, binary));
+    }
+
+    /**
+     * Tells the sender of a move that the node is overloaded, so it can back off and send the move again.
+     *
+     * @param e The rejection of the move.
+     * @return The reason of the rejection, sent to the {@value #ERRORS_QUEUE} queue of the sender only.
+     */
+    @MessageExceptionHandler
+    @SendToUser(destinations = ERRORS_QUEUE, broadcast = false)
+    public String overloaded(RejectedExecutionException e) {
+        metrics.moveRejected();
+        log.warn(e.getMessage());
+        return e.getMessage();
+    }
+
+    /**
+     * @param contentType The content type of the received move.
+     * @return True if the move has been sent in the binary format.
+     */
+    private static boolean isBinary(MimeType contentType) {
+        return contentType != null && contentType.equalsTypeAndSubtype(MoveEventBinaryMessageConverter.MIME_TYPE);
+    }
+
+    /**
+     * Addresses a message to a single STOMP session, which doesn't need an authenticated user, and answers
+     * the peer in the format it has used, so only peers which have sent a binary move get binary replies.
+     *
+     * @param sessionId The STOMP session of the peer.
+     * @param binary    Whether the received move has been sent in the binary format.
+     * @return The headers of the message.
+     */
+    private static MessageHeaders peerHeaders(String sessionId, boolean binary) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(sessionId);
+        if (binary)
+            accessor.setContentType(MoveEventBinaryMessageConverter.MIME_TYPE);
+        accessor.setLeaveMutable(true);
+        return accessor.getMessageHeaders();
+    }
 }
@@ -0,0 +1,55 @@
+package com.scentbird.scentbird_tic_tac_toe.converter;
+
+/**
+ * Reads ids in the canonical UUID form, the 36 characters {@link java.util.UUID#toString()} writes, straight
+ * from the string. Unlike {@link java.util.UUID#fromString(String)} it allocates nothing, which matters for ids
+ * read on every move.
+ */
+public final class CanonicalUuid {
+    private static final int LENGTH = 36;
+
+    private CanonicalUuid() {
+    }
+
+    /**
+     * Checks whether an id survives the round trip through the 16 bytes of a UUID unchanged: lowercase hex
+     * digits in groups of 8, 4, 4, 4 and 12, separated by dashes.
+     *
+     * @param id The id, which may be null.
+     * @return True if the id is a UUID in its canonical form.
+     */
+    public static boolean isCanonical(String id) {
+        if (id == null || id.length() != LENGTH)
+            return false;
+        for (int i = 0; i < LENGTH; i++) {
+            char c = id.charAt(i);
+            boolean valid = i == 8 || i == 13 || i == 18 || i == 23 ? c == '-' : c >= '0' && c <= '9' || c >= 'a' && c <= 'f';
+            if (!valid)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @param id An id which is {@link #isCanonical canonical}.
+     * @return The same as {@code UUID.fromString(id).getMostSignificantBits()}.
+     */
+    public static long mostSignificantBits(String id) {
+        return hex(id, 0, 8) << 32 | hex(id, 9, 13) << 16 | hex(id, 14, 18);
+    }
+
+    /**
+     * @param id An id which is {@link #isCanonical canonical}.
+     * @return The same as {@code UUID.fromString(id).getLeastSignificantBits()}.
+     */
+    public static long leastSignificantBits(String id) {
+        return hex(id, 19, 23) << 48 | hex(id, 24, LENGTH);
+    }
+
+    private static long hex(String id, int from, int to) {
+        long value = 0;
+        for (int i = from; i < to; i++)
+            value = value << 4 | Character.digit(id.charAt(i), 16);
+        return value;
+    }
+}
@@ -0,0 +1,116 @@
+package com.scentbird.scentbird_tic_tac_toe.converter;
+
+import com.scentbird.scentbird_tic_tac_toe.model.Figure;
+import com.scentbird.scentbird_tic_tac_toe.model.MoveEvent;
+import com.scentbird.scentbird_tic_tac_toe.model.Player;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.AbstractMessageConverter;
+import org.springframework.messaging.converter.MessageConversionException;
+import org.springframework.util.MimeType;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Converts a {@link MoveEvent} to and from a fixed-size binary record of {@value #MESSAGE_SIZE} bytes:
+ * <pre>
+ * byte  0      format version (high nibble) and figure (low nibble, 0 for O, 1 for X)
+ * bytes 1-16   game id as a UUID
+ * bytes 17-32  player id as a UUID
+ * bytes 33-35  x (high 12 bits) and y (low 12 bits)
+ * </pre>
+ * The converter only applies to messages explicitly marked with {@link #MIME_TYPE}, so JSON stays the
+ * format of every message without a content type. The MIME type is a flavour of
+ * {@code application/octet-stream} because that's what makes STOMP over WebSocket use binary frames.
+ */
+public class MoveEventBinaryMessageConverter extends AbstractMessageConverter {
+    public static final MimeType MIME_TYPE = new MimeType("application", "octet-stream", Map.of("codec", "move-v1"));
+    public static final int MESSAGE_SIZE = 36;
+
+    private static final int VERSION = 1;
+    private static final int MAX_COORDINATE = 0xFFF;
+
+    public MoveEventBinaryMessageConverter() {
+        super(MIME_TYPE);
+        setStrictContentTypeMatch(true);
+    }
+
+    /**
+     * Checks whether a move fits into the binary record. Moves with ids which aren't UUIDs, or with missing
+     * fields, have to be sent as JSON.
+     *
+     * @param moveEvent The move event.
+     * @return True if the move can be encoded without losing anything.
+     */
+    public static boolean canEncode(MoveEvent moveEvent) {
+        Player player = moveEvent.getPlayer();
+        return player != null && player.getFigure() != null
+                && isCoordinate(moveEvent.getX()) && isCoordinate(moveEvent.getY())
+                && CanonicalUuid.isCanonical(moveEvent.getGameId()) && CanonicalUuid.isCanonical(player.getPlayerId());
+    }
+
+    /**
+     * Writes a move at the current position of the buffer, without allocating anything.
+     *
+     * @param moveEvent The move event, which must satisfy {@link #canEncode(MoveEvent)}.
+     * @param buffer    The buffer with at least {@value #MESSAGE_SIZE} bytes remaining.
+     */
+    public static void encode(MoveEvent moveEvent, ByteBuffer buffer) {
+        String gameId = moveEvent.getGameId();
+        String playerId = moveEvent.getPlayer().getPlayerId();
+        buffer.put((byte) (VERSION << 4 | moveEvent.getPlayer().getFigure().value()));
+        buffer.putLong(CanonicalUuid.mostSignificantBits(gameId)).putLong(CanonicalUuid.leastSignificantBits(gameId));
+        buffer.putLong(CanonicalUuid.mostSignificantBits(playerId)).putLong(CanonicalUuid.leastSignificantBits(playerId));
+        int coordinates = moveEvent.getX() << 12 | moveEvent.getY();
+        buffer.put((byte) (coordinates >>> 16)).putShort((short) coordinates);
+    }
+
+    /**
+     * Reads a move from the current position of the buffer.
+     *
+     * @param buffer The buffer with at least {@value #MESSAGE_SIZE} bytes remaining.
+     * @return The move event.
+     */
+    public static MoveEvent decode(ByteBuffer buffer) {
+        int header = buffer.get();
+        if (header >>> 4 != VERSION)
+            throw new MessageConversionException(String.format("Unsupported move format version %s", header >>> 4));
+        String gameId = new UUID(buffer.getLong(), buffer.getLong()).toString();
+        String playerId = new UUID(buffer.getLong(), buffer.getLong()).toString();
+        int coordinates = (buffer.get() & 0xFF) << 16 | (buffer.getShort() & 0xFFFF);
+        return MoveEvent.builder()
+                .gameId(gameId)
+                .player(new Player(playerId, Figure.valueOf(header & 0xF)))
+                .x(coordinates >>> 12)
+                .y(coordinates & MAX_COORDINATE)
+                .build();
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return MoveEvent.class == clazz;
+    }
+
+    @Override
+    protected Object convertFromInternal(Message<?> message, Class<?> targetClass, Object conversionHint) {
+        if (!(message.getPayload() instanceof byte[] payload) || payload.length != MESSAGE_SIZE)
+            throw new MessageConversionException(message, String.format("Binary move must be %s bytes long", MESSAGE_SIZE));
+        return decode(ByteBuffer.wrap(payload));
+    }
+
+    @Override
+    protected Object convertToInternal(Object payload, MessageHeaders headers, Object conversionHint) {
+        MoveEvent moveEvent = (MoveEvent) payload;
+        if (!canEncode(moveEvent))
+            return null;
+        ByteBuffer buffer = ByteBuffer.allocate(MESSAGE_SIZE);
+        encode(moveEvent, buffer);
+        return buffer.array();
+    }
+
+    private static boolean isCoordinate(Integer value) {
+        return value != null && value >= 0 && value < MAX_COORDINATE;
+    }
+}
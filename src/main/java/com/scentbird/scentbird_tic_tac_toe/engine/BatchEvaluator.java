@@ -0,0 +1,175 @@
+package com.scentbird.scentbird_tic_tac_toe.engine;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Evaluates 3x3 positions in bulk, without any game: every position gets its outcome under perfect play and
+ * the best cell from the {@link PerfectPlaySolver}.
+ * <p>
+ * A position is a 4-byte big-endian word, {@code mine | theirs << 9}, with the cells of the side to move in
+ * the low 9 bits and those of its opponent in the next 9, the way the solver sees positions. Its answer is a
+ * single byte, {@code outcome << 4 | cell}: {@link PerfectPlaySolver#WIN}, {@link PerfectPlaySolver#DRAW} or
+ * {@link PerfectPlaySolver#LOSS} for the side to move, and the bit index of the best cell, or {@value #NO_CELL}
+ * if the game is over. A word which isn't a reachable position is answered with {@link #UNKNOWN}.
+ * <p>
+ * Batches are split across a fork-join pool into about {@value #TASKS_PER_THREAD} tasks per thread, so even
+ * the default batch of a request keeps every thread busy, but into no fewer than {@value #MIN_LEAF_SIZE}
+ * positions per task, below which splitting costs more than it saves.
+ */
+public final class BatchEvaluator implements Closeable {
+    public static final int POSITION_BYTES = Integer.BYTES;
+    public static final int NO_CELL = 0xF;
+    public static final byte UNKNOWN = (byte) (PerfectPlaySolver.UNKNOWN << 4 | NO_CELL);
+
+    private static final int MIN_LEAF_SIZE = 256;
+    private static final int TASKS_PER_THREAD = 4;
+    private static final int CELLS_MASK = Board.FULL;
+    private static final int POSITION_MASK = Board.FULL << Board.CELLS | Board.FULL;
+
+    private final PerfectPlaySolver solver;
+    private final ForkJoinPool pool;
+
+    /**
+     * @param solver  The solver.
+     * @param threads The number of threads evaluating a batch, 0 for one per core.
+     */
+    public BatchEvaluator(PerfectPlaySolver solver, int threads) {
+        this.solver = solver;
+        this.pool = new ForkJoinPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param mine   The cells of the figure which moves next.
+     * @param theirs The cells of the opponent.
+     * @return The word of the position.
+     */
+    public static int position(int mine, int theirs) {
+        return mine | theirs << Board.CELLS;
+    }
+
+    /**
+     * @param position The word of a position.
+     * @return The answer for the position.
+     */
+    public byte evaluate(int position) {
+        int mine = position & CELLS_MASK;
+        int theirs = position >>> Board.CELLS & CELLS_MASK;
+        if ((position & ~POSITION_MASK) != 0 || (mine & theirs) != 0)
+            return UNKNOWN;
+        int outcome = solver.outcome(mine, theirs);
+        if (outcome == PerfectPlaySolver.UNKNOWN)
+            return UNKNOWN;
+        return (byte) (outcome << 4 | solver.bestMove(mine, theirs) & NO_CELL);
+    }
+
+    /**
+     * Evaluates a batch of positions on the pool.
+     *
+     * @param positions The words of the positions.
+     * @param count     The number of positions to evaluate, from the start of the array.
+     * @param results   Gets the answer for every position at the same index.
+     */
+    public void evaluate(int[] positions, int count, byte[] results) {
+        int leafSize = leafSize(count);
+        if (count <= leafSize)
+            evaluate(positions, 0, count, results);
+        else
+            pool.invoke(new Batch(positions, 0, count, results, leafSize));
+    }
+
+    /**
+     * @param count The number of positions in a batch.
+     * @return The number of positions a single task evaluates, the whole batch if there is only one thread.
+     */
+    public int leafSize(int count) {
+        int parallelism = pool.getParallelism();
+        if (parallelism == 1)
+            return count;
+        int tasks = parallelism * TASKS_PER_THREAD;
+        return Math.max(MIN_LEAF_SIZE, (count + tasks - 1) / tasks);
+    }
+
+    /**
+     * Reads positions until the end of the input and writes their answers in the same order, a batch at a time,
+     * flushing the output after every batch so the answers arrive while the rest is still being read.
+     *
+     * @param in        The words of the positions.
+     * @param out       Gets one byte per position.
+     * @param batchSize The number of positions read and evaluated at once.
+     * @return The number of positions evaluated.
+     * @throws EOFException if the input ends within a word, after the answers to the words before it.
+     */
+    public long evaluate(InputStream in, OutputStream out, int batchSize) throws IOException {
+        if (batchSize <= 0)
+            throw new IllegalArgumentException(String.format("The batch size must be positive, not %s", batchSize));
+        byte[] bytes = new byte[batchSize * POSITION_BYTES];
+        int[] positions = new int[batchSize];
+        byte[] results = new byte[batchSize];
+        long evaluated = 0;
+        while (true) {
+            int read = in.readNBytes(bytes, 0, bytes.length);
+            int count = read / POSITION_BYTES;
+            for (int i = 0, offset = 0; i < count; i++, offset += POSITION_BYTES)
+                positions[i] = (bytes[offset] & 0xFF) << 24 | (bytes[offset + 1] & 0xFF) << 16
+                        | (bytes[offset + 2] & 0xFF) << 8 | bytes[offset + 3] & 0xFF;
+            evaluate(positions, count, results);
+            out.write(results, 0, count);
+            out.flush();
+            evaluated += count;
+            if (read % POSITION_BYTES != 0)
+                throw new EOFException(String.format("The input ends within the word of position %s", evaluated));
+            if (read < bytes.length)
+                return evaluated;
+        }
+    }
+
+    /**
+     * @return The number of threads evaluating a batch.
+     */
+    public int threads() {
+        return pool.getParallelism();
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    private void evaluate(int[] positions, int from, int to, byte[] results) {
+        for (int i = from; i < to; i++)
+            results[i] = evaluate(positions[i]);
+    }
+
+    private final class Batch extends RecursiveAction {
+        private final int[] positions;
+        private final int from;
+        private final int to;
+        private final byte[] results;
+        private final int leafSize;
+
+        private Batch(int[] positions, int from, int to, byte[] results, int leafSize) {
+            this.positions = positions;
+            this.from = from;
+            this.to = to;
+            this.results = results;
+            this.leafSize = leafSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= leafSize) {
+                evaluate(positions, from, to, results);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new Batch(positions, from, middle, results, leafSize),
+                    new Batch(positions, middle, to, results, leafSize));
+        }
+    }
+}
@@ -0,0 +1,414 @@
+package com.scentbird.scentbird_tic_tac_toe.engine;
+
+import com.scentbird.scentbird_tic_tac_toe.model.Figure;
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An m,n,k board stored as one bit set per figure.
+ * <p>
+ * Cell {@code (x, y)} is bit {@code y * width + x} of a bit set. Every placed figure is checked
+ * for a win only along the four lines through it, which costs O(winLength) instead of a rescan
+ * of the whole board, and the result is kept, so asking for the winner is free. The classic 3x3
+ * board fits into a single word and answers the line check with one lookup in a precomputed
+ * table.
+ */
+public final class Board {
+    public static final int SIZE = 3;
+    public static final int CELLS = SIZE * SIZE;
+    public static final int FULL = (1 << CELLS) - 1;
+
+    /**
+     * Masks of the 3 rows, 3 columns and 2 diagonals of the classic board.
+     */
+    static final int[] WIN_MASKS = {
+            0b000_000_111, 0b000_111_000, 0b111_000_000,
+            0b001_001_001, 0b010_010_010, 0b100_100_100,
+            0b100_010_001, 0b001_010_100
+    };
+
+    /**
+     * Whether a figure occupying the cells of the index mask has completed a line of the classic board.
+     */
+    private static final boolean[] WINNING = new boolean[1 << CELLS];
+
+    /**
+     * Whether a line of the classic board is still free of the opponent's figures occupying the cells of the index mask.
+     */
+    private static final boolean[] OPEN = new boolean[1 << CELLS];
+
+    /**
+     * The directions of a line: row, column, diagonal and anti-diagonal.
+     */
+    private static final int[][] DIRECTIONS = {{1, 0}, {0, 1}, {1, 1}, {1, -1}};
+
+    /**
+     * The cells a line of the win length can start from, by geometry and direction. A line runs
+     * right, down, down-right or down-left from its start, so the next cell of the line is the given
+     * number of bits higher.
+     */
+    private static final Map<BoardGeometry, long[][]> LINE_STARTS = new ConcurrentHashMap<>();
+    private static final int[][] LINE_DIRECTIONS = {{1, 0}, {0, 1}, {1, 1}, {-1, 1}};
+
+    static {
+        for (int bits = 0; bits <= FULL; bits++) {
+            for (int mask : WIN_MASKS) {
+                if ((bits & mask) == mask)
+                    WINNING[bits] = true;
+                if ((bits & mask) == 0)
+                    OPEN[bits] = true;
+            }
+        }
+    }
+
+    @Getter
+    private final BoardGeometry geometry;
+    private final boolean classic;
+    private final long[] xBits;
+    private final long[] oBits;
+    private int occupied;
+    private Figure winner;
+
+    public Board() {
+        this(BoardGeometry.CLASSIC);
+    }
+
+    public Board(BoardGeometry geometry) {
+        this.geometry = geometry;
+        this.classic = geometry.isClassic();
+        int words = (geometry.cells() + Long.SIZE - 1) / Long.SIZE;
+        this.xBits = new long[words];
+        this.oBits = new long[words];
+    }
+
+    /**
+     * Converts the coordinates of a cell of the classic board into its bit index.
+     *
+     * @param x The column of the cell.
+     * @param y The row of the cell.
+     * @return The bit index of the cell.
+     */
+    public static int cell(int x, int y) {
+        return y * SIZE + x;
+    }
+
+    /**
+     * Checks whether the cells of a mask contain a complete line of the classic board.
+     *
+     * @param bits The cells occupied by one figure.
+     * @return True if the cells contain a row, a column or a diagonal.
+     */
+    public static boolean isWinning(int bits) {
+        return WINNING[bits];
+    }
+
+    /**
+     * Gets the cells occupied by a figure on a board of at most 64 cells, such as the classic one.
+     *
+     * @param figure The figure.
+     * @return The cells occupied by the figure.
+     */
+    public long bits(Figure figure) {
+        return words(figure)[0];
+    }
+
+    /**
+     * @return The cells of the classic board which are not occupied yet.
+     */
+    public int emptyCells() {
+        return (int) ~(xBits[0] | oBits[0]) & FULL;
+    }
+
+    public boolean isEmpty(int cell) {
+        return ((xBits[cell >>> 6] | oBits[cell >>> 6]) & (1L << cell)) == 0;
+    }
+
+    public boolean isFull() {
+        return occupied == geometry.cells();
+    }
+
+    /**
+     * @return The number of cells occupied by any figure.
+     */
+    public int occupiedCells() {
+        return occupied;
+    }
+
+    /**
+     * Gets the figure occupying a cell.
+     *
+     * @param cell The index of the cell.
+     * @return The figure, or null if the cell is empty.
+     */
+    public Figure get(int cell) {
+        long bit = 1L << cell;
+        if ((xBits[cell >>> 6] & bit) != 0)
+            return Figure.X;
+        if ((oBits[cell >>> 6] & bit) != 0)
+            return Figure.O;
+        return null;
+    }
+
+    /**
+     * Puts a figure into a cell and checks whether it completes a line.
+     *
+     * @param cell   The index of the cell.
+     * @param figure The figure, or null to clear the cell.
+     */
+    public void set(int cell, Figure figure) {
+        int word = cell >>> 6;
+        long bit = 1L << cell;
+        boolean wasEmpty = ((xBits[word] | oBits[word]) & bit) == 0;
+        xBits[word] &= ~bit;
+        oBits[word] &= ~bit;
+        if (figure == Figure.X)
+            xBits[word] |= bit;
+        else if (figure == Figure.O)
+            oBits[word] |= bit;
+
+        if (wasEmpty && figure != null) {
+            occupied++;
+            if (winner == null && completesLine(words(figure), cell))
+                winner = figure;
+        } else if (!wasEmpty) {
+            // Replacing or removing a figure may break a line, which only happens when loading a board
+            recount();
+        }
+    }
+
+    /**
+     * @return The figure which has completed a line, or null if there's no winner yet.
+     */
+    public Figure winner() {
+        return winner;
+    }
+
+    /**
+     * Checks whether a figure can still complete a line, that is whether some line of the win length
+     * holds none of the opponent's figures. The check doesn't depend on the moves played so far: it's
+     * one table lookup on the classic board and a few word operations per direction and cell of the
+     * line on larger ones.
+     *
+     * @param figure The figure.
+     * @return True if the figure can still complete a line.
+     */
+    public boolean canStillWin(Figure figure) {
+        long[] opponent = words(Figure.getOppositeTo(figure));
+        if (classic)
+            return OPEN[(int) opponent[0]];
+        long[][] starts = LINE_STARTS.computeIfAbsent(geometry, Board::lineStarts);
+        int width = geometry.getWidth();
+        for (int direction = 0; direction < LINE_DIRECTIONS.length; direction++) {
+            int step = LINE_DIRECTIONS[direction][0] + LINE_DIRECTIONS[direction][1] * width;
+            long[] start = starts[direction];
+            for (int word = 0; word < start.length; word++) {
+                // Every bit left is the start of a line whose cells checked so far are free of the opponent
+                long open = start[word];
+                for (int cell = 0; cell < geometry.getWinLength() && open != 0; cell++)
+                    open &= ~window(opponent, (word << 6) + cell * step);
+                if (open != 0)
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return True if nobody has won and neither figure can complete a line anymore, so the game is a draw
+     * whatever is played in the free cells.
+     */
+    public boolean isDeadDraw() {
+        return winner == null && !canStillWin(Figure.X) && !canStillWin(Figure.O);
+    }
+
+    /**
+     * Finds a cell which completes a line of the given figure.
+     *
+     * @param figure The figure to complete a line for.
+     * @return The index of the cell, or -1 if there's no such cell.
+     */
+    public int findWinningCell(Figure figure) {
+        long[] own = words(figure);
+        if (classic) {
+            int bits = (int) own[0];
+            for (int empty = emptyCells(); empty != 0; empty &= empty - 1) {
+                int bit = empty & -empty;
+                if (WINNING[bits | bit])
+                    return Integer.numberOfTrailingZeros(bit);
+            }
+            return -1;
+        }
+        for (int cell = 0; cell < geometry.cells(); cell++) {
+            if (isEmpty(cell) && completesLine(own, cell))
+                return cell;
+        }
+        return -1;
+    }
+
+    /**
+     * Makes this board a copy of another board of the same geometry, without allocating.
+     *
+     * @param other The board to copy.
+     */
+    public void copyFrom(Board other) {
+        if (!geometry.equals(other.geometry))
+            throw new IllegalArgumentException(String.format("Can't copy a %s board into a %s one", other.geometry, geometry));
+        System.arraycopy(other.xBits, 0, xBits, 0, xBits.length);
+        System.arraycopy(other.oBits, 0, oBits, 0, oBits.length);
+        occupied = other.occupied;
+        winner = other.winner;
+    }
+
+    /**
+     * Converts the board into rows of figure values (1 for X, 0 for O, null for an empty cell).
+     *
+     * @return The board as rows of cells.
+     */
+    public Integer[][] toArray() {
+        Integer[][] rows = new Integer[geometry.getHeight()][geometry.getWidth()];
+        for (int cell = 0; cell < geometry.cells(); cell++) {
+            Figure figure = get(cell);
+            rows[cell / geometry.getWidth()][cell % geometry.getWidth()] = figure == null ? null : figure.value;
+        }
+        return rows;
+    }
+
+    /**
+     * Fills the board from rows of figure values (1 for X, 0 for O, null for an empty cell).
+     *
+     * @param rows The board as rows of cells, of the same dimensions as the board.
+     */
+    public void load(Integer[][] rows) {
+        if (rows.length != geometry.getHeight() || rows[0].length != geometry.getWidth())
+            throw new IllegalArgumentException(String.format("Board %sx%s doesn't match the geometry %s",
+                    rows[0].length, rows.length, geometry));
+        Arrays.fill(xBits, 0);
+        Arrays.fill(oBits, 0);
+        for (int y = 0; y < geometry.getHeight(); y++) {
+            for (int x = 0; x < geometry.getWidth(); x++) {
+                Integer value = rows[y][x];
+                if (value != null) {
+                    long bit = 1L << geometry.cell(x, y);
+                    words(Figure.valueOf(value))[geometry.cell(x, y) >>> 6] |= bit;
+                }
+            }
+        }
+        recount();
+    }
+
+    /**
+     * Gets 64 cells of a figure at once, for code which walks the occupied cells of large boards.
+     *
+     * @param figure The figure.
+     * @param word   The index of the word, covering cells {@code word * 64} to {@code word * 64 + 63}.
+     * @return The cells occupied by the figure within the word.
+     */
+    long word(Figure figure, int word) {
+        return words(figure)[word];
+    }
+
+    /**
+     * @return The number of words which hold the cells of a figure.
+     */
+    int wordCount() {
+        return xBits.length;
+    }
+
+    private long[] words(Figure figure) {
+        return figure == Figure.X ? xBits : oBits;
+    }
+
+    /**
+     * Gets the 64 bits starting at the given bit, reading zeros past the last word.
+     */
+    private static long window(long[] words, int from) {
+        int word = from >>> 6;
+        int shift = from & 63;
+        long low = word < words.length ? words[word] >>> shift : 0;
+        long high = shift != 0 && word + 1 < words.length ? words[word + 1] << (64 - shift) : 0;
+        return low | high;
+    }
+
+    private static long[][] lineStarts(BoardGeometry geometry) {
+        int length = geometry.getWinLength() - 1;
+        long[][] starts = new long[LINE_DIRECTIONS.length][(geometry.cells() + Long.SIZE - 1) / Long.SIZE];
+        for (int direction = 0; direction < LINE_DIRECTIONS.length; direction++) {
+            int dx = LINE_DIRECTIONS[direction][0];
+            int dy = LINE_DIRECTIONS[direction][1];
+            for (int y = 0; y < geometry.getHeight(); y++) {
+                for (int x = 0; x < geometry.getWidth(); x++) {
+                    if (geometry.contains(x + dx * length, y + dy * length)) {
+                        int cell = geometry.cell(x, y);
+                        starts[direction][cell >>> 6] |= 1L << cell;
+                    }
+                }
+            }
+        }
+        return starts;
+    }
+
+    private boolean isSet(long[] words, int cell) {
+        return (words[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    /**
+     * Checks whether the figure in a cell is part of a complete line, looking only along the lines through that cell.
+     */
+    private boolean completesLine(long[] words, int cell) {
+        if (classic)
+            return WINNING[(int) words[0] | 1 << cell];
+        int x = cell % geometry.getWidth();
+        int y = cell / geometry.getWidth();
+        for (int[] direction : DIRECTIONS) {
+            int run = 1 + run(words, x, y, direction[0], direction[1]) + run(words, x, y, -direction[0], -direction[1]);
+            if (run >= geometry.getWinLength())
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Counts the figures in a row starting next to a cell, up to the win length.
+     */
+    private int run(long[] words, int x, int y, int dx, int dy) {
+        int count = 0;
+        for (int step = 1; step < geometry.getWinLength(); step++) {
+            int nx = x + dx * step;
+            int ny = y + dy * step;
+            if (!geometry.contains(nx, ny) || !isSet(words, geometry.cell(nx, ny)))
+                break;
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Recomputes the occupied cells and the winner from scratch.
+     */
+    private void recount() {
+        occupied = 0;
+        winner = null;
+        for (int word = 0; word < xBits.length; word++)
+            occupied += Long.bitCount(xBits[word] | oBits[word]);
+        for (int cell = 0; cell < geometry.cells() && winner == null; cell++) {
+            Figure figure = get(cell);
+            if (figure != null && completesLine(words(figure), cell))
+                winner = figure;
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(geometry.cells() + geometry.getHeight());
+        for (int cell = 0; cell < geometry.cells(); cell++) {
+            Figure figure = get(cell);
+            builder.append(figure == null ? '.' : figure.name().charAt(0));
+            if (cell % geometry.getWidth() == geometry.getWidth() - 1 && cell != geometry.cells() - 1)
+                builder.append('/');
+        }
+        return builder.toString();
+    }
+}
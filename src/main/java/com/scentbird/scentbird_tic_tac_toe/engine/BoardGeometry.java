@@ -0,0 +1,61 @@
+package com.scentbird.scentbird_tic_tac_toe.engine;
+
+import lombok.Value;
+
+/**
+ * The dimensions of an m,n,k board: a {@code width} x {@code height} grid where
+ * {@code winLength} figures in a row, column or diagonal win the game.
+ */
+@Value
+public class BoardGeometry {
+    public static final BoardGeometry CLASSIC = new BoardGeometry(Board.SIZE, Board.SIZE, Board.SIZE);
+    /**
+     * Keeps a single board below a few kilobytes.
+     */
+    public static final int MAX_CELLS = 64 * 64;
+
+    int width;
+    int height;
+    int winLength;
+
+    public BoardGeometry(int width, int height, int winLength) {
+        if (width < 1 || height < 1 || (long) width * height > MAX_CELLS)
+            throw new IllegalArgumentException(String.format("Board %sx%s must have between 1 and %s cells", width, height, MAX_CELLS));
+        if (winLength < 1 || winLength > Math.max(width, height))
+            throw new IllegalArgumentException(String.format("Win length %s doesn't fit on a %sx%s board", winLength, width, height));
+        this.width = width;
+        this.height = height;
+        this.winLength = winLength;
+    }
+
+    public int cells() {
+        return width * height;
+    }
+
+    /**
+     * Converts the coordinates of a cell into its index.
+     *
+     * @param x The column of the cell.
+     * @param y The row of the cell.
+     * @return The index of the cell.
+     */
+    public int cell(int x, int y) {
+        return y * width + x;
+    }
+
+    public boolean contains(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+
+    /**
+     * @return True for the 3x3 board with 3 in a row, which has a precomputed win table and a perfect-play solver.
+     */
+    public boolean isClassic() {
+        return this.equals(CLASSIC);
+    }
+
+    @Override
+    public String toString() {
+        return width + "x" + height + "," + winLength;
+    }
+}
@@ -0,0 +1,342 @@
+package com.scentbird.scentbird_tic_tac_toe.engine;
+
+import com.scentbird.scentbird_tic_tac_toe.model.Figure;
+import lombok.Getter;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Chooses a move by Monte Carlo Tree Search within a fixed wall-clock budget, for boards which are
+ * too large to be solved.
+ * <p>
+ * The search is root-parallel: the thread asking for the move and the helpers of a {@link ForkJoinPool}
+ * each grow a tree of their own from the same position until the deadline, and the visits of the first
+ * moves are summed up across the trees. The trees share nothing, so the threads never synchronize before
+ * the deadline.
+ * <p>
+ * The pool is shared by the games of every lane. When several games search at once, their helpers queue
+ * up behind each other; a helper which hasn't started by the deadline of its search is skipped, so every
+ * search keeps to its budget and always has at least the tree of its own thread. A tree is a
+ * set of primitive arrays which every thread allocates once and reuses for every search, and the
+ * playouts run on a copy of the board, so a search allocates next to nothing. Once the node arrays
+ * are full, the tree stops growing and the remaining budget goes into more playouts from its leaves.
+ */
+public final class MonteCarloSearch implements Closeable {
+    /**
+     * The weight of exploration against exploitation in UCT.
+     */
+    private static final double EXPLORATION = Math.sqrt(2);
+
+    @Getter
+    private final BoardGeometry geometry;
+    @Getter
+    private final Duration budget;
+    @Getter
+    private final int threads;
+    private final ForkJoinPool pool;
+    private final ThreadLocal<Tree> trees;
+    private final LongAdder playouts = new LongAdder();
+
+    /**
+     * @param geometry The board the search plays on.
+     * @param budget   The wall-clock time a move may take.
+     * @param threads  The number of trees grown in parallel for a move, or 0 for one per processor. The thread
+     *                 asking for the move grows one of them, so the pool has one thread less.
+     * @param maxNodes The number of nodes a single tree may have.
+     */
+    public MonteCarloSearch(BoardGeometry geometry, Duration budget, int threads, int maxNodes) {
+        this.geometry = geometry;
+        this.budget = budget;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.pool = this.threads > 1 ? new ForkJoinPool(this.threads - 1) : null;
+        this.trees = ThreadLocal.withInitial(() -> new Tree(geometry, maxNodes));
+    }
+
+    /**
+     * Searches for the best move within the configured budget.
+     *
+     * @param board  The position, which is left untouched.
+     * @param toMove The figure which moves next.
+     * @return The cell to play, or -1 if the game is over or played on another board.
+     */
+    public int bestMove(Board board, Figure toMove) {
+        return bestMove(board, toMove, budget.toNanos());
+    }
+
+    /**
+     * Searches for the best move within the given budget.
+     *
+     * @param board       The position, which is left untouched.
+     * @param toMove      The figure which moves next.
+     * @param budgetNanos The wall-clock time the search may take.
+     * @return The cell to play, or -1 if the game is over or played on another board.
+     */
+    public int bestMove(Board board, Figure toMove, long budgetNanos) {
+        int[] visits = visits(board, toMove, budgetNanos);
+        if (visits == null)
+            return -1;
+        int best = -1;
+        for (int cell = 0; cell < visits.length; cell++)
+            if (board.isEmpty(cell) && (best < 0 || visits[cell] > visits[best]))
+                best = cell;
+        return best;
+    }
+
+    /**
+     * Searches within the given budget and tells how often every first move was tried, which ranks the
+     * moves from the most promising one down.
+     *
+     * @param board       The position, which is left untouched.
+     * @param toMove      The figure which moves next.
+     * @param budgetNanos The wall-clock time the search may take.
+     * @return The visits of every cell summed over the trees, or null if the game is over, played on another
+     * board or the search has been interrupted.
+     */
+    public int[] visits(Board board, Figure toMove, long budgetNanos) {
+        if (!geometry.equals(board.getGeometry()) || board.winner() != null || board.isFull())
+            return null;
+        long deadline = System.nanoTime() + budgetNanos;
+        Helper[] helpers = new Helper[threads - 1];
+        for (int i = 0; i < helpers.length; i++)
+            pool.execute(helpers[i] = new Helper(board, toMove, deadline));
+
+        int[] visits = new int[geometry.cells()];
+        add(visits, trees.get().search(board, toMove, deadline, playouts));
+        try {
+            for (Helper helper : helpers) {
+                // A helper which hasn't started yet never will
+                if (!helper.started.compareAndSet(false, true))
+                    add(visits, helper.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Search failed", e.getCause());
+        }
+        return visits;
+    }
+
+    /**
+     * @return The number of playouts of every search so far.
+     */
+    public long playouts() {
+        return playouts.sum();
+    }
+
+    @Override
+    public void close() {
+        if (pool != null)
+            pool.shutdownNow();
+    }
+
+    private static void add(int[] visits, int[] treeVisits) {
+        if (treeVisits == null)
+            return;
+        for (int cell = 0; cell < visits.length; cell++)
+            visits[cell] += treeVisits[cell];
+    }
+
+    /**
+     * Grows a tree on a thread of the pool, unless the search has given up on it or its deadline has passed.
+     */
+    private final class Helper extends RecursiveTask<int[]> {
+        private final AtomicBoolean started = new AtomicBoolean();
+        private final Board board;
+        private final Figure toMove;
+        private final long deadline;
+
+        private Helper(Board board, Figure toMove, long deadline) {
+            this.board = board;
+            this.toMove = toMove;
+            this.deadline = deadline;
+        }
+
+        /**
+         * @return The visits of every first move, or null if the tree hasn't been grown.
+         */
+        @Override
+        protected int[] compute() {
+            if (!started.compareAndSet(false, true) || System.nanoTime() >= deadline)
+                return null;
+            // The tree reuses its array for the next search of this thread
+            return trees.get().search(board, toMove, deadline, playouts).clone();
+        }
+    }
+
+    /**
+     * A search tree of one thread. Node {@code n} is the position after the move {@code move[n]}; its
+     * children are the nodes {@code firstChild[n]} to {@code firstChild[n] + childCount[n] - 1}. The score
+     * of a node counts the wins of the player who made its move, a draw being half a win.
+     */
+    private static final class Tree {
+        private final Board board;
+        private final int[] move;
+        private final int[] firstChild;
+        private final int[] childCount;
+        private final int[] visits;
+        private final float[] score;
+        private final int[] path;
+        private final int[] empty;
+        private final int[] rootVisits;
+        private int size;
+
+        Tree(BoardGeometry geometry, int maxNodes) {
+            int cells = geometry.cells();
+            board = new Board(geometry);
+            // The root and its children always fit
+            int nodes = Math.max(maxNodes, cells + 1);
+            move = new int[nodes];
+            firstChild = new int[nodes];
+            childCount = new int[nodes];
+            visits = new int[nodes];
+            score = new float[nodes];
+            path = new int[cells + 1];
+            empty = new int[cells];
+            rootVisits = new int[cells];
+        }
+
+        /**
+         * Runs iterations until the deadline, always at least one.
+         *
+         * @return The visits of every first move, by cell.
+         */
+        int[] search(Board root, Figure toMove, long deadline, LongAdder playouts) {
+            size = 1;
+            move[0] = -1;
+            visits[0] = 0;
+            score[0] = 0;
+            board.copyFrom(root);
+            expand(0);
+            int iterations = 0;
+            do {
+                iterate(root, toMove);
+                iterations++;
+            } while (System.nanoTime() < deadline);
+            playouts.add(iterations);
+
+            Arrays.fill(rootVisits, 0);
+            for (int child = firstChild[0]; child < firstChild[0] + childCount[0]; child++)
+                rootVisits[move[child]] = visits[child];
+            return rootVisits;
+        }
+
+        /**
+         * Selects a leaf by UCT, expands it once it has been visited, plays the game out randomly and
+         * propagates the result back to the root.
+         */
+        private void iterate(Board root, Figure toMove) {
+            board.copyFrom(root);
+            int node = 0;
+            int depth = 0;
+            path[depth++] = node;
+            Figure figure = toMove;
+            while (childCount[node] > 0 && board.winner() == null) {
+                node = select(node);
+                board.set(move[node], figure);
+                figure = Figure.getOppositeTo(figure);
+                path[depth++] = node;
+            }
+            if (board.winner() == null && !board.isFull() && visits[node] > 0 && expand(node)) {
+                node = firstChild[node] + ThreadLocalRandom.current().nextInt(childCount[node]);
+                board.set(move[node], figure);
+                figure = Figure.getOppositeTo(figure);
+                path[depth++] = node;
+            }
+
+            Figure winner = playout(figure);
+            // The moves at odd depths are the moves of the side to move at the root
+            for (int i = depth - 1; i >= 0; i--) {
+                int current = path[i];
+                visits[current]++;
+                Figure mover = i % 2 == 1 ? toMove : Figure.getOppositeTo(toMove);
+                if (winner == null)
+                    score[current] += 0.5f;
+                else if (winner == mover)
+                    score[current] += 1;
+            }
+        }
+
+        private int select(int node) {
+            double logVisits = Math.log(Math.max(1, visits[node]));
+            int best = -1;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for (int child = firstChild[node]; child < firstChild[node] + childCount[node]; child++) {
+                if (visits[child] == 0)
+                    return child;
+                double value = score[child] / visits[child] + EXPLORATION * Math.sqrt(logVisits / visits[child]);
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = child;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Adds a child for every free cell of the current position, if they fit.
+         *
+         * @return True if the node has been expanded.
+         */
+        private boolean expand(int node) {
+            int free = collectEmpty();
+            if (size + free > move.length)
+                return false;
+            firstChild[node] = size;
+            childCount[node] = free;
+            for (int i = 0; i < free; i++) {
+                int child = size++;
+                move[child] = empty[i];
+                childCount[child] = 0;
+                visits[child] = 0;
+                score[child] = 0;
+            }
+            return true;
+        }
+
+        /**
+         * Plays random moves until somebody wins or the board is full, taking every free cell at most once.
+         *
+         * @return The winner, or null for a draw.
+         */
+        private Figure playout(Figure figure) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int free = collectEmpty();
+            while (board.winner() == null && free > 0) {
+                int i = random.nextInt(free);
+                int cell = empty[i];
+                empty[i] = empty[--free];
+                board.set(cell, figure);
+                figure = Figure.getOppositeTo(figure);
+            }
+            return board.winner();
+        }
+
+        /**
+         * Collects the free cells of the current position into {@code empty}.
+         *
+         * @return The number of free cells.
+         */
+        private int collectEmpty() {
+            int free = 0;
+            int cells = board.getGeometry().cells();
+            for (int word = 0; word < board.wordCount(); word++) {
+                long bits = ~(board.word(Figure.X, word) | board.word(Figure.O, word));
+                int remaining = cells - (word << 6);
+                if (remaining < Long.SIZE)
+                    bits &= (1L << remaining) - 1;
+                for (; bits != 0; bits &= bits - 1)
+                    empty[free++] = word << 6 | Long.numberOfTrailingZeros(bits);
+            }
+            return free;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.scentbird.scentbird_tic_tac_toe.engine;
+
+import com.scentbird.scentbird_tic_tac_toe.model.Figure;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Answers the early moves of a game from a file of precomputed moves, written by {@link OpeningBookWriter}.
+ * <p>
+ * The file is memory-mapped and never read into the heap, so opening a book of hundreds of megabytes
+ * only costs the mapping, and a lookup touches a few pages of it. Positions are keyed like in the
+ * {@link PositionCache}: by the Zobrist hash of their canonical form with the orientation bits cleared,
+ * seen from the side to move. The layout is:
+ * <pre>
+ * bytes  0-3      magic "TTTB"
+ * bytes  4-5      version
+ * bytes  6-11     width, height and win length (as shorts)
+ * bytes 12-15     number of entries
+ * bytes 16-...    fanout: for every value of the upper {@value #FANOUT_BITS} bits of a key, the number of
+ *                 entries whose key has upper bits up to that value
+ * then            entries of 16 bytes, sorted by key as unsigned: the key (8 bytes), the cell in the
+ *                 canonical orientation (4 bytes) and the weight of the move (4 bytes)
+ * </pre>
+ * A position may have several entries, one per move; a lookup picks one of the moves whose cells are
+ * free, with a chance proportional to its weight. The fanout narrows the binary search down to the
+ * entries which share the upper bits of the key, which keeps the pages a lookup touches close together.
+ */
+public final class OpeningBook {
+    /**
+     * The position isn't in the book.
+     */
+    public static final int NO_MOVE = -1;
+    /**
+     * A book without any position, for when no book is configured.
+     */
+    public static final OpeningBook NONE = new OpeningBook(BoardGeometry.CLASSIC, null, 0);
+
+    static final int MAGIC = 0x54545442;
+    static final short VERSION = 1;
+    static final int FANOUT_BITS = 16;
+    static final int FANOUT_OFFSET = 16;
+    static final int ENTRIES_OFFSET = FANOUT_OFFSET + (1 << FANOUT_BITS) * Integer.BYTES;
+    static final int ENTRY_BYTES = 16;
+
+    @Getter
+    private final BoardGeometry geometry;
+    private final PositionHash hash;
+    private final ByteBuffer buffer;
+    private final int size;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private OpeningBook(BoardGeometry geometry, ByteBuffer buffer, int size) {
+        this.geometry = geometry;
+        this.hash = buffer == null ? null : new PositionHash(geometry);
+        this.buffer = buffer;
+        this.size = size;
+    }
+
+    /**
+     * Maps a book file. Only the header is read.
+     *
+     * @param file     The book file.
+     * @param geometry The board the games are played on, which must be the board of the book.
+     * @return The book.
+     * @throws IOException if the file can't be read.
+     */
+    public static OpeningBook open(Path file, BoardGeometry geometry) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < ENTRIES_OFFSET || channel.size() > Integer.MAX_VALUE)
+                throw new IllegalArgumentException(String.format("Opening book %s has a size of %s bytes, which isn't between %s and 2GB",
+                        file, channel.size(), ENTRIES_OFFSET));
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt(0) != MAGIC || buffer.getShort(4) != VERSION)
+                throw new IllegalArgumentException(String.format("%s isn't an opening book of version %s", file, VERSION));
+            BoardGeometry bookGeometry = new BoardGeometry(buffer.getShort(6), buffer.getShort(8), buffer.getShort(10));
+            if (!bookGeometry.equals(geometry))
+                throw new IllegalArgumentException(String.format("Opening book %s is for the board %s, not %s",
+                        file, bookGeometry, geometry));
+            int size = buffer.getInt(12);
+            if ((long) size * ENTRY_BYTES + ENTRIES_OFFSET != channel.size())
+                throw new IllegalArgumentException(String.format("Opening book %s should hold %s entries, but has %s bytes",
+                        file, size, channel.size()));
+            return new OpeningBook(geometry, buffer, size);
+        }
+    }
+
+    /**
+     * Picks a move of the book for a position or any of its rotations and reflections.
+     *
+     * @param board  The position.
+     * @param toMove The figure which moves next.
+     * @return The cell to play, or {@link #NO_MOVE} if the book has no free cell for the position.
+     */
+    public int lookup(Board board, Figure toMove) {
+        if (size == 0 || !geometry.equals(board.getGeometry()))
+            return NO_MOVE;
+        long key = hash.canonicalKey(board, toMove);
+        long bookKey = key & ~PositionHash.SYMMETRY_MASK;
+        int bucket = (int) (bookKey >>> (Long.SIZE - FANOUT_BITS));
+        int low = bucket == 0 ? 0 : buffer.getInt(FANOUT_OFFSET + (bucket - 1) * Integer.BYTES);
+        int end = buffer.getInt(FANOUT_OFFSET + bucket * Integer.BYTES);
+        int high = end;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (Long.compareUnsigned(key(middle), bookKey) < 0)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+
+        // Weighted reservoir sampling: every free move replaces the choice with a chance of its share of the weight so far
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long totalWeight = 0;
+        int chosen = NO_MOVE;
+        for (int entry = low; entry < end && key(entry) == bookKey; entry++) {
+            int stored = buffer.getInt(ENTRIES_OFFSET + entry * ENTRY_BYTES + Long.BYTES);
+            int weight = buffer.getInt(ENTRIES_OFFSET + entry * ENTRY_BYTES + Long.BYTES + Integer.BYTES);
+            if (stored < 0 || stored >= geometry.cells() || weight <= 0)
+                continue;
+            int cell = hash.fromCanonical(key, stored);
+            if (!board.isEmpty(cell))
+                continue;
+            totalWeight += weight;
+            if (random.nextLong(totalWeight) < weight)
+                chosen = cell;
+        }
+        if (chosen == NO_MOVE)
+            misses.increment();
+        else
+            hits.increment();
+        return chosen;
+    }
+
+    /**
+     * @return The number of moves in the book.
+     */
+    public int size() {
+        return size;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    private long key(int entry) {
+        return buffer.getLong(ENTRIES_OFFSET + entry * ENTRY_BYTES);
+    }
+}
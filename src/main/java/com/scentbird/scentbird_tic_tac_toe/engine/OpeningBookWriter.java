@@ -0,0 +1,189 @@
+package com.scentbird.scentbird_tic_tac_toe.engine;
+
+import com.scentbird.scentbird_tic_tac_toe.model.Figure;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Collects the moves of an {@link OpeningBook} and writes the book file. Books are written offline,
+ * either from moves added one by one or by {@link #generate} searching every position of the first
+ * plies of the game; {@link #main} does the latter from the command line.
+ */
+@Slf4j
+public final class OpeningBookWriter {
+    private final BoardGeometry geometry;
+    private final PositionHash hash;
+    private long[] keys = new long[1024];
+    private long[] moves = new long[1024];
+    private int size;
+
+    public OpeningBookWriter(BoardGeometry geometry) {
+        this.geometry = geometry;
+        this.hash = new PositionHash(geometry);
+    }
+
+    /**
+     * Generates a book: a book file for a 15x15 board with 5 in a row, covering the first 2 plies and searching every
+     * position for 200 ms, comes from {@code OpeningBookWriter 15 15 5 2 200 book.bin}.
+     *
+     * @param args The width, height and win length of the board, the number of plies, the search budget of a position
+     *             in milliseconds and the book file.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 6)
+            throw new IllegalArgumentException("Usage: OpeningBookWriter <width> <height> <win length> <plies> <budget ms> <file>");
+        BoardGeometry geometry = new BoardGeometry(Integer.parseInt(args[0]), Integer.parseInt(args[1]), Integer.parseInt(args[2]));
+        OpeningBookWriter writer = new OpeningBookWriter(geometry);
+        try (MonteCarloSearch search = new MonteCarloSearch(geometry, Duration.ofMillis(Long.parseLong(args[4])), 0, 262_144)) {
+            writer.generate(search, Integer.parseInt(args[3]), 3);
+        }
+        writer.write(Path.of(args[5]));
+        log.info(String.format("Wrote %s moves for the board %s to %s", writer.size(), geometry, args[5]));
+    }
+
+    /**
+     * Adds a move of a position. A position gets one entry per move.
+     *
+     * @param board  The position.
+     * @param toMove The figure which moves next.
+     * @param cell   The cell to play.
+     * @param weight How often the move is chosen, relative to the other moves of the position.
+     */
+    public void add(Board board, Figure toMove, int cell, int weight) {
+        if (!geometry.equals(board.getGeometry()))
+            throw new IllegalArgumentException(String.format("The book is for the board %s, not %s", geometry, board.getGeometry()));
+        if (weight <= 0)
+            throw new IllegalArgumentException(String.format("Weight %s must be positive", weight));
+        if ((long) (size + 1) * OpeningBook.ENTRY_BYTES + OpeningBook.ENTRIES_OFFSET > Integer.MAX_VALUE)
+            throw new IllegalStateException("An opening book can't be larger than 2GB");
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            moves = Arrays.copyOf(moves, size * 2);
+        }
+        long key = hash.canonicalKey(board, toMove);
+        keys[size] = key & ~PositionHash.SYMMETRY_MASK;
+        moves[size] = (long) hash.toCanonical(key, cell) << 32 | weight;
+        size++;
+    }
+
+    /**
+     * Searches every position reachable in the given number of plies from the empty board, rotations and
+     * reflections only once, and adds the moves the search tried most often, weighted by their visits.
+     *
+     * @param search           The search, which plays on the board of the book.
+     * @param plies            The number of plies the book covers: 1 for the first move only, 2 for the first two moves.
+     * @param movesPerPosition The number of moves added for each position.
+     */
+    public void generate(MonteCarloSearch search, int plies, int movesPerPosition) {
+        List<Board> positions = List.of(new Board(geometry));
+        Figure toMove = Figure.X;
+        for (int ply = 0; ply < plies; ply++) {
+            Map<Long, Board> next = new HashMap<>();
+            for (Board board : positions) {
+                addBestMoves(search, board, toMove, movesPerPosition);
+                if (ply + 1 == plies)
+                    continue;
+                for (int cell = 0; cell < geometry.cells(); cell++) {
+                    if (!board.isEmpty(cell))
+                        continue;
+                    Board child = new Board(geometry);
+                    child.copyFrom(board);
+                    child.set(cell, toMove);
+                    if (child.winner() == null && !child.isFull())
+                        next.putIfAbsent(hash.canonicalKey(child, Figure.getOppositeTo(toMove)) & ~PositionHash.SYMMETRY_MASK, child);
+                }
+            }
+            log.info(String.format("Searched %s positions after %s plies", positions.size(), ply));
+            positions = new ArrayList<>(next.values());
+            toMove = Figure.getOppositeTo(toMove);
+        }
+    }
+
+    /**
+     * Writes the book, sorted by key.
+     *
+     * @param file The book file, which is replaced if it exists.
+     */
+    public void write(Path file) throws IOException {
+        int[] order = sortedOrder();
+        int[] fanout = new int[1 << OpeningBook.FANOUT_BITS];
+        for (int i = 0; i < size; i++)
+            fanout[(int) (keys[i] >>> (Long.SIZE - OpeningBook.FANOUT_BITS))]++;
+        for (int bucket = 1; bucket < fanout.length; bucket++)
+            fanout[bucket] += fanout[bucket - 1];
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            out.writeInt(OpeningBook.MAGIC);
+            out.writeShort(OpeningBook.VERSION);
+            out.writeShort(geometry.getWidth());
+            out.writeShort(geometry.getHeight());
+            out.writeShort(geometry.getWinLength());
+            out.writeInt(size);
+            for (int count : fanout)
+                out.writeInt(count);
+            for (int i : order) {
+                out.writeLong(keys[i]);
+                out.writeLong(moves[i]);
+            }
+        }
+    }
+
+    /**
+     * @return The number of moves added.
+     */
+    public int size() {
+        return size;
+    }
+
+    private void addBestMoves(MonteCarloSearch search, Board board, Figure toMove, int count) {
+        int[] visits = search.visits(board, toMove, search.getBudget().toNanos());
+        if (visits == null)
+            return;
+        for (int added = 0; added < count; added++) {
+            int best = -1;
+            for (int cell = 0; cell < visits.length; cell++)
+                if (board.isEmpty(cell) && visits[cell] > 0 && (best < 0 || visits[cell] > visits[best]))
+                    best = cell;
+            if (best < 0)
+                return;
+            add(board, toMove, best, visits[best]);
+            visits[best] = 0;
+        }
+    }
+
+    /**
+     * Sorts the entries by key as unsigned with a merge sort of their indexes, which keeps the moves of a
+     * position in the order they were added.
+     */
+    private int[] sortedOrder() {
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++)
+            order[i] = i;
+        int[] merged = new int[size];
+        for (int width = 1; width < size; width *= 2) {
+            for (int low = 0; low < size; low += 2 * width) {
+                int middle = Math.min(low + width, size);
+                int high = Math.min(low + 2 * width, size);
+                int left = low;
+                int right = middle;
+                for (int out = low; out < high; out++) {
+                    if (left < middle && (right >= high || Long.compareUnsigned(keys[order[left]], keys[order[right]]) <= 0))
+                        merged[out] = order[left++];
+                    else
+                        merged[out] = order[right++];
+                }
+            }
+            int[] swap = order;
+            order = merged;
+            merged = swap;
+        }
+        return order;
+    }
+}
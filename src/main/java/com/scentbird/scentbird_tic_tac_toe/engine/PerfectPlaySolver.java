@@ -0,0 +1,209 @@
+package com.scentbird.scentbird_tic_tac_toe.engine;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Knows the optimal move in every reachable 3x3 position.
+ * <p>
+ * Positions are seen from the side to move: {@code mine} are the cells of the figure which moves
+ * next, {@code theirs} the cells of its opponent. Every position gets a base-3 code, so the whole
+ * game fits into a table of 3^9 bytes, each holding the outcome under perfect play and the best
+ * cell. Only the positions which are canonical under the 8 symmetries of the board are searched;
+ * the rest of the table is filled by mapping their answers back through the symmetry.
+ */
+@Slf4j
+@Component
+public class PerfectPlaySolver {
+    public static final int UNKNOWN = 0;
+    public static final int LOSS = 1;
+    public static final int DRAW = 2;
+    public static final int WIN = 3;
+
+    private static final int NO_MOVE = 0xF;
+    private static final int POSITIONS = 19683;
+    private static final int SYMMETRIES = 8;
+
+    /**
+     * The base-3 value of a cell mask, e.g. 0b101 -> 3^0 + 3^2.
+     */
+    private static final int[] TERNARY = new int[Board.FULL + 1];
+    /**
+     * The cell mask transformed by each symmetry.
+     */
+    private static final short[][] TRANSFORMED = new short[SYMMETRIES][Board.FULL + 1];
+    /**
+     * The cell which each symmetry maps back to the given cell.
+     */
+    private static final byte[][] INVERSE = new byte[SYMMETRIES][Board.CELLS];
+
+    static {
+        for (int bits = 0; bits <= Board.FULL; bits++) {
+            int code = 0;
+            for (int cell = Board.CELLS - 1; cell >= 0; cell--)
+                code = code * 3 + ((bits >>> cell) & 1);
+            TERNARY[bits] = code;
+        }
+
+        for (int symmetry = 0; symmetry < SYMMETRIES; symmetry++) {
+            int[] target = new int[Board.CELLS];
+            for (int cell = 0; cell < Board.CELLS; cell++) {
+                int x = cell % Board.SIZE;
+                int y = cell / Board.SIZE;
+                for (int turn = 0; turn < symmetry % 4; turn++) {
+                    int rotated = Board.SIZE - 1 - y;
+                    y = x;
+                    x = rotated;
+                }
+                if (symmetry >= 4)
+                    x = Board.SIZE - 1 - x;
+                target[cell] = Board.cell(x, y);
+                INVERSE[symmetry][target[cell]] = (byte) cell;
+            }
+            for (int bits = 0; bits <= Board.FULL; bits++) {
+                int transformed = 0;
+                for (int cell = 0; cell < Board.CELLS; cell++)
+                    if ((bits & (1 << cell)) != 0)
+                        transformed |= 1 << target[cell];
+                TRANSFORMED[symmetry][bits] = (short) transformed;
+            }
+        }
+    }
+
+    private final byte[] table = new byte[POSITIONS];
+    @Getter
+    private int reachablePositions;
+    @Getter
+    private int canonicalPositions;
+
+    public PerfectPlaySolver() {
+        long start = System.nanoTime();
+        long allocatedBefore = allocatedBytes();
+
+        solve(0, 0);
+        fill(0, 0, new boolean[POSITIONS]);
+
+        long allocated = allocatedBytes() - allocatedBefore;
+        log.info(String.format("Solved %d reachable positions (%d canonical) in %.2f ms, the table takes %d bytes, %s bytes allocated while building it",
+                reachablePositions, canonicalPositions, (System.nanoTime() - start) / 1e6, tableBytes(),
+                allocatedBefore < 0 ? "unknown" : String.valueOf(allocated)));
+    }
+
+    /**
+     * Gets the optimal cell for the side to move.
+     *
+     * @param mine   The cells of the figure which moves next.
+     * @param theirs The cells of the opponent.
+     * @return The bit index of the best cell, or -1 if the game is over or the position is unreachable.
+     */
+    public int bestMove(int mine, int theirs) {
+        // Overlapping cells share codes with real positions, and the entries of unreachable positions are empty
+        if ((mine & theirs) != 0)
+            return -1;
+        int entry = table[code(mine, theirs)];
+        int cell = entry & NO_MOVE;
+        return cell == NO_MOVE || entry >>> 4 == UNKNOWN ? -1 : cell;
+    }
+
+    /**
+     * Gets the outcome of the position for the side to move, assuming both sides play perfectly.
+     *
+     * @param mine   The cells of the figure which moves next.
+     * @param theirs The cells of the opponent.
+     * @return {@link #WIN}, {@link #DRAW}, {@link #LOSS}, or {@link #UNKNOWN} if the position is unreachable.
+     */
+    public int outcome(int mine, int theirs) {
+        return (mine & theirs) != 0 ? UNKNOWN : table[code(mine, theirs)] >>> 4;
+    }
+
+    /**
+     * @return The number of bytes retained by the solver.
+     */
+    public static long tableBytes() {
+        return POSITIONS + (long) TERNARY.length * Integer.BYTES
+                + (long) SYMMETRIES * (Board.FULL + 1) * Short.BYTES + SYMMETRIES * Board.CELLS;
+    }
+
+    private static int code(int mine, int theirs) {
+        return TERNARY[mine] + 2 * TERNARY[theirs];
+    }
+
+    private static int canonicalSymmetry(int mine, int theirs) {
+        int best = 0;
+        int bestCode = code(mine, theirs);
+        for (int symmetry = 1; symmetry < SYMMETRIES; symmetry++) {
+            int code = code(TRANSFORMED[symmetry][mine], TRANSFORMED[symmetry][theirs]);
+            if (code < bestCode) {
+                bestCode = code;
+                best = symmetry;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Searches the canonical form of a position and stores its outcome and best move.
+     *
+     * @return The outcome for the side to move.
+     */
+    private int solve(int mine, int theirs) {
+        int symmetry = canonicalSymmetry(mine, theirs);
+        mine = TRANSFORMED[symmetry][mine];
+        theirs = TRANSFORMED[symmetry][theirs];
+        int code = code(mine, theirs);
+        if (table[code] != 0)
+            return table[code] >>> 4;
+
+        canonicalPositions++;
+        int outcome = UNKNOWN;
+        int best = NO_MOVE;
+        if (Board.isWinning(theirs)) {
+            outcome = LOSS;
+        } else if ((mine | theirs) == Board.FULL) {
+            outcome = DRAW;
+        } else {
+            for (int empty = ~(mine | theirs) & Board.FULL; empty != 0; empty &= empty - 1) {
+                int bit = empty & -empty;
+                // The opponent's loss is our win and vice versa
+                int result = WIN + LOSS - solve(theirs, mine | bit);
+                if (result > outcome) {
+                    outcome = result;
+                    best = Integer.numberOfTrailingZeros(bit);
+                }
+            }
+        }
+        table[code] = (byte) (outcome << 4 | best);
+        return outcome;
+    }
+
+    /**
+     * Copies the answers of the canonical positions into every position reachable from the given one.
+     */
+    private void fill(int mine, int theirs, boolean[] visited) {
+        int code = code(mine, theirs);
+        if (visited[code])
+            return;
+        visited[code] = true;
+        reachablePositions++;
+
+        int symmetry = canonicalSymmetry(mine, theirs);
+        byte canonical = table[code(TRANSFORMED[symmetry][mine], TRANSFORMED[symmetry][theirs])];
+        int cell = canonical & NO_MOVE;
+        table[code] = (byte) (canonical & ~NO_MOVE | (cell == NO_MOVE ? NO_MOVE : INVERSE[symmetry][cell]));
+
+        if (Board.isWinning(theirs))
+            return;
+        for (int empty = ~(mine | theirs) & Board.FULL; empty != 0; empty &= empty - 1)
+            fill(theirs, mine | (empty & -empty), visited);
+    }
+
+    private static long allocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled())
+            return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        return -1;
+    }
+}
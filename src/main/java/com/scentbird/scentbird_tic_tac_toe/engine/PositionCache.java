@@ -0,0 +1,193 @@
+package com.scentbird.scentbird_tic_tac_toe.engine;
+
+import com.scentbird.scentbird_tic_tac_toe.model.Figure;
+import lombok.Getter;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers the move decisions taken in positions of boards too large to be solved in advance.
+ * <p>
+ * A position is keyed by the Zobrist hash of its canonical form (see {@link PositionHash}), so
+ * rotated and mirrored positions share one entry. The cell of an entry is stored in the canonical
+ * orientation and turned back into the orientation of the asking board.
+ * <p>
+ * Every entry is a single {@code long} holding the upper bits of the key, the cell and a reference
+ * bit, so the memory cap is exact and an entry is read and written atomically without locks. Keys
+ * are spread over sets of {@value #WAYS} entries; a full set evicts with the CLOCK algorithm,
+ * giving every recently used entry a second chance. Concurrent writers may overwrite each other's
+ * entries, which only costs a miss later, and a hash collision is caught by checking that the cell
+ * is still free. Nearly full boards bypass the cache.
+ */
+public final class PositionCache {
+    /**
+     * The position isn't cached.
+     */
+    public static final int MISS = -2;
+    /**
+     * The position is cached, and there's no winning or blocking cell in it.
+     */
+    public static final int NO_CELL = -1;
+    /**
+     * The memory taken by one entry.
+     */
+    public static final int ENTRY_BYTES = Long.BYTES;
+    /**
+     * A cache which caches nothing, for the classic board which has a solver instead.
+     */
+    public static final PositionCache NONE = new PositionCache(BoardGeometry.CLASSIC, 0);
+
+    static final int WAYS = 8;
+    private static final long TAG_MASK = ~0xFFFFL;
+    private static final long REFERENCED = 1;
+    private static final int VALUE_MASK = 0x7FFF;
+
+    @Getter
+    private final BoardGeometry geometry;
+    private final PositionHash hash;
+    private final AtomicLongArray entries;
+    private final int setMask;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder size = new LongAdder();
+
+    /**
+     * @param geometry The board the cache serves.
+     * @param maxBytes The memory the entries may take. Less than a single set disables the cache.
+     */
+    public PositionCache(BoardGeometry geometry, long maxBytes) {
+        this.geometry = geometry;
+        long sets = Long.highestOneBit(Math.min(maxBytes / ENTRY_BYTES / WAYS, Integer.MAX_VALUE / WAYS));
+        if (sets == 0) {
+            hash = null;
+            entries = null;
+            setMask = 0;
+            return;
+        }
+        entries = new AtomicLongArray((int) sets * WAYS);
+        setMask = (int) sets - 1;
+        hash = new PositionHash(geometry);
+    }
+
+    /**
+     * Gets the decision taken earlier in this position or in any of its rotations and reflections.
+     *
+     * @param board  The position.
+     * @param toMove The figure which moves next.
+     * @return The cell to play, {@link #NO_CELL} if the position has no forced move, or {@link #MISS}.
+     */
+    public int lookup(Board board, Figure toMove) {
+        if (!accepts(board))
+            return MISS;
+        long packed = hash.canonicalKey(board, toMove);
+        long tag = packed & TAG_MASK;
+        int base = base(packed);
+        for (int way = 0; way < WAYS; way++) {
+            long entry = entries.get(base + way);
+            if (entry != 0 && (entry & TAG_MASK) == tag) {
+                int stored = (int) (entry >>> 1 & VALUE_MASK) - 2;
+                int cell = stored < 0 ? NO_CELL : hash.fromCanonical(packed, stored);
+                if (cell >= 0 && !board.isEmpty(cell))
+                    break;
+                if ((entry & REFERENCED) == 0)
+                    entries.lazySet(base + way, entry | REFERENCED);
+                hits.increment();
+                return cell;
+            }
+        }
+        misses.increment();
+        return MISS;
+    }
+
+    /**
+     * Remembers the decision taken in a position.
+     *
+     * @param board  The position.
+     * @param toMove The figure which moves next.
+     * @param cell   The cell to play, or a negative value if the position has no forced move.
+     */
+    public void store(Board board, Figure toMove, int cell) {
+        if (!accepts(board))
+            return;
+        long packed = hash.canonicalKey(board, toMove);
+        int value = cell < 0 ? 1 : hash.toCanonical(packed, cell) + 2;
+        long entry = packed & TAG_MASK | (long) value << 1;
+        int base = base(packed);
+
+        int free = -1;
+        for (int way = 0; way < WAYS; way++) {
+            long current = entries.get(base + way);
+            if (current != 0 && (current & TAG_MASK) == (entry & TAG_MASK)) {
+                entries.lazySet(base + way, entry);
+                return;
+            }
+            if (current == 0 && free < 0)
+                free = way;
+        }
+        if (free >= 0) {
+            entries.lazySet(base + free, entry);
+            size.increment();
+            return;
+        }
+
+        // The clock hand starts at a way picked by the key, which spreads evictions over the set without keeping a hand per set
+        int hand = (int) (packed >>> 32) & (WAYS - 1);
+        for (int step = 0; step < 2 * WAYS; step++, hand = (hand + 1) & (WAYS - 1)) {
+            long current = entries.get(base + hand);
+            if ((current & REFERENCED) == 0) {
+                entries.lazySet(base + hand, entry);
+                return;
+            }
+            entries.lazySet(base + hand, current & ~REFERENCED);
+        }
+        entries.lazySet(base + hand, entry);
+    }
+
+    /**
+     * @return The number of positions the cache can hold.
+     */
+    public int capacity() {
+        return entries == null ? 0 : entries.length();
+    }
+
+    /**
+     * @return The number of entries in use.
+     */
+    public long size() {
+        return size.sum();
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return The share of lookups answered by the cache, or 0 before the first lookup.
+     */
+    public double hitRate() {
+        long hits = hits();
+        long lookups = hits + misses();
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * Hashing takes a step per figure and orientation, while scanning for a winning cell takes a step per
+     * free cell, so a board which is more than three quarters full is cheaper to scan than to look up.
+     */
+    private boolean accepts(Board board) {
+        return entries != null && geometry.equals(board.getGeometry())
+                && board.occupiedCells() <= geometry.cells() - geometry.cells() / 4;
+    }
+
+    /**
+     * @return The index of the first entry of the set of a key. The set is picked by bits the tag doesn't cover.
+     */
+    private int base(long packed) {
+        return ((int) (packed >>> 3) & setMask) * WAYS;
+    }
+}
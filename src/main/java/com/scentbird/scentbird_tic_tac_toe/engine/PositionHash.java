@@ -0,0 +1,122 @@
+package com.scentbird.scentbird_tic_tac_toe.engine;
+
+import com.scentbird.scentbird_tic_tac_toe.model.Figure;
+
+import java.util.SplittableRandom;
+
+/**
+ * Hashes positions of a board so that rotated and mirrored positions get the same key.
+ * <p>
+ * A position is hashed with Zobrist keys in every orientation the board allows (8 for a square
+ * board, 4 otherwise) and the smallest hash wins. The lowest bits of the key are replaced by the
+ * orientation which produced it, which turns a cell of the asking board into the canonical
+ * orientation and back. The Zobrist keys come from a fixed seed, so keys stay the same across
+ * runs and a key written to a file can be looked up later.
+ */
+final class PositionHash {
+    static final long SYMMETRY_MASK = 0b111;
+    private static final long ZOBRIST_SEED = 0x5EED_7AC7_0E5L;
+
+    /**
+     * The cell each symmetry moves a cell to, and the cell it moves back from.
+     */
+    private final int[][] transforms;
+    private final int[][] inverse;
+    private final long[] mineKeys;
+    private final long[] theirKeys;
+
+    PositionHash(BoardGeometry geometry) {
+        int cells = geometry.cells();
+        SplittableRandom random = new SplittableRandom(ZOBRIST_SEED);
+        mineKeys = new long[cells];
+        theirKeys = new long[cells];
+        for (int cell = 0; cell < cells; cell++) {
+            mineKeys[cell] = random.nextLong();
+            theirKeys[cell] = random.nextLong();
+        }
+
+        boolean square = geometry.getWidth() == geometry.getHeight();
+        transforms = new int[square ? 8 : 4][cells];
+        inverse = new int[transforms.length][cells];
+        for (int symmetry = 0; symmetry < transforms.length; symmetry++) {
+            for (int cell = 0; cell < cells; cell++) {
+                int target = square ? squareTransform(geometry, cell, symmetry) : rectangleTransform(geometry, cell, symmetry);
+                transforms[symmetry][cell] = target;
+                inverse[symmetry][target] = cell;
+            }
+        }
+    }
+
+    /**
+     * Hashes the position in every orientation and keeps the smallest hash.
+     *
+     * @param board  The position.
+     * @param toMove The figure which moves next; its figures and the opponent's are hashed with different keys.
+     * @return The hash, with the orientation which produced it in the bits of {@link #SYMMETRY_MASK}.
+     */
+    long canonicalKey(Board board, Figure toMove) {
+        Figure opponent = Figure.getOppositeTo(toMove);
+        long best = 0;
+        int bestSymmetry = 0;
+        for (int symmetry = 0; symmetry < transforms.length; symmetry++) {
+            int[] target = transforms[symmetry];
+            long hash = 0;
+            for (int word = 0; word < board.wordCount(); word++) {
+                int offset = word << 6;
+                for (long bits = board.word(toMove, word); bits != 0; bits &= bits - 1)
+                    hash ^= mineKeys[target[offset + Long.numberOfTrailingZeros(bits)]];
+                for (long bits = board.word(opponent, word); bits != 0; bits &= bits - 1)
+                    hash ^= theirKeys[target[offset + Long.numberOfTrailingZeros(bits)]];
+            }
+            if (symmetry == 0 || Long.compareUnsigned(hash, best) < 0) {
+                best = hash;
+                bestSymmetry = symmetry;
+            }
+        }
+        return best & ~SYMMETRY_MASK | bestSymmetry;
+    }
+
+    /**
+     * @return The cell of the canonical orientation a cell of the board with the given key is moved to.
+     */
+    int toCanonical(long key, int cell) {
+        return transforms[(int) (key & SYMMETRY_MASK)][cell];
+    }
+
+    /**
+     * @return The cell of the board with the given key a cell of the canonical orientation is moved back to.
+     */
+    int fromCanonical(long key, int cell) {
+        return inverse[(int) (key & SYMMETRY_MASK)][cell];
+    }
+
+    /**
+     * Rotates a cell of a square board by a quarter turn per step, then mirrors it for symmetries 4 to 7.
+     */
+    private static int squareTransform(BoardGeometry geometry, int cell, int symmetry) {
+        int size = geometry.getWidth();
+        int x = cell % size;
+        int y = cell / size;
+        for (int turn = 0; turn < symmetry % 4; turn++) {
+            int rotated = size - 1 - y;
+            y = x;
+            x = rotated;
+        }
+        if (symmetry >= 4)
+            x = size - 1 - x;
+        return geometry.cell(x, y);
+    }
+
+    /**
+     * A rectangle only keeps its shape when mirrored horizontally, vertically or both.
+     */
+    private static int rectangleTransform(BoardGeometry geometry, int cell, int symmetry) {
+        int x = cell % geometry.getWidth();
+        int y = cell / geometry.getWidth();
+        if ((symmetry & 1) != 0)
+            x = geometry.getWidth() - 1 - x;
+        if ((symmetry & 2) != 0)
+            y = geometry.getHeight() - 1 - y;
+        return geometry.cell(x, y);
+    }
+}
@@ -1,41 +1,119 @@
 package com.scentbird.scentbird_tic_tac_toe.handler;
 
+import com.scentbird.scentbird_tic_tac_toe.converter.MoveEventBinaryMessageConverter;
+import com.scentbird.scentbird_tic_tac_toe.model.GameSession;
+import com.scentbird.scentbird_tic_tac_toe.model.GameStateDelta;
 import com.scentbird.scentbird_tic_tac_toe.model.MoveEvent;
+import com.scentbird.scentbird_tic_tac_toe.model.ResumeRequest;
+import com.scentbird.scentbird_tic_tac_toe.model.ResumeResponse;
 import com.scentbird.scentbird_tic_tac_toe.service.GameService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
 import org.springframework.messaging.simp.stomp.StompHeaders;
 import org.springframework.messaging.simp.stomp.StompSession;
 import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
 import org.springframework.web.socket.messaging.WebSocketStompClient;
 
 import java.lang.reflect.Type;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Plays the games this node starts against the opponent's node.
+ * <p>
+ * When the connection breaks, the handler reconnects with exponential backoff and jitter and asks the
+ * opponent to resume the game in progress from the last move both sides have recorded, so neither a
+ * restart of the opponent's node nor a flaky network throws the game away.
+ */
 @Slf4j
 public class GameStompMessageHandler extends StompSessionHandlerAdapter {
     private static final String MOVE_TOPIC = "/app/game";
+    private static final String RESUME_DESTINATION = "/app/resume";
+    private static final String MOVES_QUEUE = "/user/queue/moves";
+    private static final String RESUME_QUEUE = "/user/queue/resume";
+    private static final String EVICTIONS_QUEUE = "/user/queue/evictions";
     private final GameService gameService;
     private StompSession session;
     private final WebSocketStompClient stompClient;
+    private final boolean binary;
+    private final Executor reconnectExecutor;
+    private final ReconnectBackoff backoff;
+    private final AtomicBoolean reconnecting = new AtomicBoolean();
+    private final StompFrameHandler resumeHandler = new StompFrameHandler() {
+        @Override
+        public Type getPayloadType(StompHeaders headers) {
+            return ResumeResponse.class;
+        }
+
+        @Override
+        public void handleFrame(StompHeaders headers, Object payload) {
+            resumed((ResumeResponse) payload);
+        }
+    };
+    private final StompFrameHandler evictionHandler = new StompFrameHandler() {
+        @Override
+        public Type getPayloadType(StompHeaders headers) {
+            return GameStateDelta.class;
+        }
+
+        @Override
+        public void handleFrame(StompHeaders headers, Object payload) {
+            evicted((GameStateDelta) payload);
+        }
+    };
 
     private String hostUrl = "";
+    /**
+     * The game played against the opponent's node.
+     */
+    private volatile GameSession game;
 
     public GameStompMessageHandler(GameService gameService, WebSocketStompClient stompClient) {
+        this(gameService, stompClient, false, Runnable::run, new ReconnectBackoff(Duration.ofMillis(500), Duration.ofSeconds(30)));
+    }
+
+    /**
+     * @param binary            Whether to send moves in the binary format instead of JSON.
+     * @param reconnectExecutor Runs the reconnect loop, so it doesn't have to hold the thread which reported the transport error.
+     * @param backoff           The delays between reconnect attempts.
+     */
+    public GameStompMessageHandler(GameService gameService, WebSocketStompClient stompClient, boolean binary,
+                                   Executor reconnectExecutor, ReconnectBackoff backoff) {
         this.gameService = gameService;
         this.stompClient = stompClient;
+        this.binary = binary;
+        this.reconnectExecutor = reconnectExecutor;
+        this.backoff = backoff;
     }
 
     public void updateHostUrl(String url) {
         this.hostUrl = url;
     }
 
+    /**
+     * Continues the game in progress if there is one, and starts a new game otherwise.
+     */
     @Override
     public void afterConnected(StompSession session, StompHeaders connectedHeaders) {
         this.session = session;
-        session.subscribe("/topic/moves", this);
-        gameService.startNewGame();
-        session.send(MOVE_TOPIC, gameService.makeMove());
+        // The opponent answers the moves of this connection only, whichever game they belong to
+        session.subscribe(MOVES_QUEUE, this);
+        session.subscribe(RESUME_QUEUE, resumeHandler);
+        session.subscribe(EVICTIONS_QUEUE, evictionHandler);
+        GameSession current = game;
+        if (current == null || current.isEnded() || current.getMoves().isEmpty()) {
+            startNewGame();
+            return;
+        }
+        log.info(String.format("Asking to resume game %s after move %s", current.getGameId(), current.getMoves().size()));
+        StompHeaders headers = new StompHeaders();
+        headers.setDestination(RESUME_DESTINATION);
+        session.send(headers, new ResumeRequest(current.getGameId(), current.getMoves().size()));
     }
 
     @Override
@@ -50,16 +128,81 @@ public class GameStompMessageHandler extends StompSessionHandlerAdapter {
 
     @Override
     public void handleFrame(StompHeaders headers, Object payload) {
+        long start = System.nanoTime();
         MoveEvent moveEvent = (MoveEvent) payload;
-        gameService.initGameIfNeeded(moveEvent);
-        gameService.checkWinnerAndStartAgain();
-        session.send(MOVE_TOPIC, gameService.saveAndMakeMove(moveEvent));
+        try {
+            GameSession known = gameService.getSessionRegistry().get(moveEvent.getGameId());
+            // A move which has been resent after a resume may still arrive the way it was sent first
+            if (known != null && known.getMoves().contains(moveEvent))
+                return;
+            GameSession played = gameService.initGameIfNeeded(moveEvent);
+            played = gameService.checkWinnerAndStartAgain(played);
+            gameService.saveAndMakeMove(played, moveEvent, this::send);
+            game = played;
+        } finally {
+            gameService.getMetrics().recordClientReply(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Catches up with the opponent: the moves of the opponent which got lost are played now, and the moves of
+     * this node which got lost are sent again. A game the opponent doesn't know anymore is given up.
+     */
+    private void resumed(ResumeResponse response) {
+        GameSession current = game;
+        if (current == null || !current.getGameId().equals(response.getGameId()))
+            return;
+        if (!response.isFound()) {
+            log.info(String.format("Game %s can't be resumed, starting a new one", current.getGameId()));
+            startNewGame();
+            return;
+        }
+        List<MoveEvent> moves = current.getMoves();
+        int sequence = (int) response.getSequence();
+        if (sequence < moves.size()) {
+            for (MoveEvent move : new ArrayList<>(moves.subList(sequence, moves.size())))
+                if (gameService.getPlayerId().equals(move.getPlayer().getPlayerId()))
+                    send(move);
+        }
+        for (MoveEvent move : response.getMissedMoves())
+            handleFrame(null, move);
+    }
+
+    /**
+     * Gives up the game the opponent has evicted, since no move of it would be answered anymore, and starts a
+     * new one. The eviction of a game which has been given up already is ignored.
+     */
+    private void evicted(GameStateDelta delta) {
+        GameSession current = game;
+        if (current == null || current.isEnded() || !current.getGameId().equals(delta.getGameId()))
+            return;
+        log.info(String.format("Game %s has been evicted by the opponent, starting a new one", current.getGameId()));
+        gameService.evict(current);
+        startNewGame();
+    }
+
+    private void startNewGame() {
+        GameSession started = gameService.startNewGame();
+        game = started;
+        gameService.makeMove(started, this::send);
+    }
+
+    private void send(MoveEvent moveEvent) {
+        if (session != null && session.isConnected()) {
+            StompHeaders headers = new StompHeaders();
+            headers.setDestination(MOVE_TOPIC);
+            // Moves which don't fit into the binary format still go as JSON
+            if (binary && MoveEventBinaryMessageConverter.canEncode(moveEvent))
+                headers.setContentType(MoveEventBinaryMessageConverter.MIME_TYPE);
+            session.send(headers, moveEvent);
+        }
     }
 
     @Override
     public void handleTransportError(StompSession session, Throwable exception) {
         if (!session.isConnected()) {
-            reestablishConnection();
+            if (reconnecting.compareAndSet(false, true))
+                reconnectExecutor.execute(this::reestablishConnection);
         } else {
             log.error(String.format("Connection is lost, the cause is :  %s , trying to reconnect.", exception.getMessage()));
         }
@@ -71,17 +214,31 @@ public class GameStompMessageHandler extends StompSessionHandlerAdapter {
     }
 
     private void reestablishConnection() {
-        boolean disconnected = true;
-        while (disconnected) {
+        try {
+            reconnect();
+        } finally {
+            reconnecting.set(false);
+        }
+    }
+
+    private void reconnect() {
+        long start = System.nanoTime();
+        while (true) {
             try {
-                TimeUnit.SECONDS.sleep(5);
-            } catch (Exception e) {
+                TimeUnit.NANOSECONDS.sleep(backoff.nextDelay().toNanos());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
             }
             try {
+                gameService.getMetrics().reconnectAttempted();
                 stompClient.connect(hostUrl, this).get();
-                disconnected = false;
+                backoff.reset();
+                gameService.getMetrics().recordReconnected(System.nanoTime() - start);
+                return;
             } catch (Exception e) {
-                log.error("Couldn't restore connection. Error message : " + e.getMessage());
+                log.error(String.format("Couldn't restore connection after %s attempts. Error message : %s",
+                        backoff.attempts(), e.getMessage()));
             }
         }
     }
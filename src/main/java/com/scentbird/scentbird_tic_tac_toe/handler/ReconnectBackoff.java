@@ -0,0 +1,54 @@
+package com.scentbird.scentbird_tic_tac_toe.handler;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The delays between reconnect attempts: exponential backoff with full jitter.
+ * <p>
+ * The ceiling doubles with every failed attempt up to the maximum, and the delay is picked at random
+ * below the ceiling. When a server restarts, its clients therefore come back spread over the whole
+ * window instead of all at once, and a server which stays down is asked less and less often.
+ */
+public final class ReconnectBackoff {
+    private final long initialNanos;
+    private final long maxNanos;
+    private int attempts;
+
+    /**
+     * @param initialDelay The ceiling of the first delay.
+     * @param maxDelay     The highest ceiling.
+     */
+    public ReconnectBackoff(Duration initialDelay, Duration maxDelay) {
+        this.initialNanos = Math.max(1, initialDelay.toNanos());
+        this.maxNanos = Math.max(initialNanos, maxDelay.toNanos());
+    }
+
+    /**
+     * @return The delay before the next attempt.
+     */
+    public synchronized Duration nextDelay() {
+        long ceiling = ceiling(attempts);
+        if (ceiling < maxNanos)
+            attempts++;
+        return Duration.ofNanos(ThreadLocalRandom.current().nextLong(ceiling + 1));
+    }
+
+    /**
+     * Starts over with the initial delay, once the connection is back.
+     */
+    public synchronized void reset() {
+        attempts = 0;
+    }
+
+    /**
+     * @return The number of attempts counted towards the current ceiling.
+     */
+    public synchronized int attempts() {
+        return attempts;
+    }
+
+    private long ceiling(int attempts) {
+        return attempts >= Long.numberOfLeadingZeros(initialNanos) - 1 ? maxNanos : Math.min(maxNanos, initialNanos << attempts);
+    }
+}
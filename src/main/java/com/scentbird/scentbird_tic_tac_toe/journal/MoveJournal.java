@@ -0,0 +1,358 @@
+package com.scentbird.scentbird_tic_tac_toe.journal;
+
+import com.scentbird.scentbird_tic_tac_toe.converter.CanonicalUuid;
+import com.scentbird.scentbird_tic_tac_toe.engine.Board;
+import com.scentbird.scentbird_tic_tac_toe.engine.BoardGeometry;
+import com.scentbird.scentbird_tic_tac_toe.model.Figure;
+import com.scentbird.scentbird_tic_tac_toe.model.GameSession;
+import com.scentbird.scentbird_tic_tac_toe.model.MoveEvent;
+import com.scentbird.scentbird_tic_tac_toe.model.Player;
+import com.scentbird.scentbird_tic_tac_toe.service.GameListener;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * An append-only journal of game starts, moves and ends, which survives a restart of the node.
+ * <p>
+ * The journal is a sequence of segment files of a fixed size, each written through a memory mapping,
+ * so appending a record is a copy of {@value #RECORD_SIZE} bytes into memory. Every record has the
+ * same layout:
+ * <pre>
+ * byte  0      type: 1 for a start, 2 for a move, 3 for an end
+ * byte  1      figure: ours for a start, the mover's for a move, the winner's for an end (-1 for none)
+ * bytes 2-7    start: width, height and win length; move: x and y (as shorts)
+ * bytes 8-23   game id as a UUID
+ * bytes 24-39  start: our player id; move: the mover's id (zeros if it isn't a UUID)
+ * bytes 40-55  start: the opponent's id (zeros if unknown)
+ * bytes 56-59  reserved
+ * bytes 60-63  CRC32C of bytes 0-59
+ * </pre>
+ * Only games with UUID ids are journaled. The mapped pages are flushed to disk every {@code syncBatch}
+ * records, when a segment is full and when the journal is closed; with a batch of 0 flushing is left
+ * to the operating system. A record torn by a crash fails its checksum and ends the replay of its segment.
+ * Segments which only hold ended games are deleted.
+ */
+@Slf4j
+public class MoveJournal implements GameListener, Closeable {
+    public static final int RECORD_SIZE = 64;
+
+    private static final int CHECKSUM_OFFSET = RECORD_SIZE - Integer.BYTES;
+    private static final byte START = 1;
+    private static final byte MOVE = 2;
+    private static final byte END = 3;
+    private static final byte NO_FIGURE = -1;
+    private static final String SEGMENT_PREFIX = "moves-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int syncBatch;
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+    private final CRC32C checksum = new CRC32C();
+    /**
+     * The games in progress. Segments older than the first segment of all of them aren't needed for recovery.
+     */
+    private final Map<String, LiveGame> liveGames = new HashMap<>();
+    private long segment;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int position;
+    private int syncedPosition;
+    private int unsynced;
+
+    /**
+     * @param directory   The directory of the segment files.
+     * @param segmentSize The size of a segment file in bytes, a multiple of {@value #RECORD_SIZE}.
+     * @param syncBatch   The number of records between flushes to disk, or 0 to leave flushing to the operating system.
+     */
+    public MoveJournal(Path directory, long segmentSize, int syncBatch) {
+        if (segmentSize < RECORD_SIZE || segmentSize > Integer.MAX_VALUE || segmentSize % RECORD_SIZE != 0)
+            throw new IllegalArgumentException(String.format("Segment size %s must be a multiple of %s below 2GB",
+                    segmentSize, RECORD_SIZE));
+        if (syncBatch < 0)
+            throw new IllegalArgumentException(String.format("Sync batch %s can't be negative", syncBatch));
+        this.directory = directory;
+        this.segmentSize = (int) segmentSize;
+        this.syncBatch = syncBatch;
+    }
+
+    /**
+     * Replays the journal and opens a new segment for appending. Must be called once, before any record is appended.
+     *
+     * @return The games which were in progress, in the order they started.
+     * @throws IOException if the journal can't be read or the new segment can't be created.
+     */
+    public synchronized List<GameSession> recover() throws IOException {
+        if (channel != null)
+            throw new IllegalStateException("The journal has already been recovered");
+        Files.createDirectories(directory);
+        Map<String, GameSession> games = new LinkedHashMap<>();
+        long last = -1;
+        for (long number : segments()) {
+            replay(number, games);
+            last = number;
+        }
+        segment = last + 1;
+        openSegment();
+        deleteUnusedSegments();
+        return new ArrayList<>(games.values());
+    }
+
+    @Override
+    public synchronized void gameStarted(GameSession session) {
+        UUID gameId = parseUuid(session.getGameId());
+        if (gameId == null)
+            return;
+        BoardGeometry geometry = session.getBitboard().getGeometry();
+        Player opponent = session.getPlayer2();
+        record.put(0, START)
+                .put(1, (byte) session.getPlayer1().getFigure().value())
+                .putShort(2, (short) geometry.getWidth())
+                .putShort(4, (short) geometry.getHeight())
+                .putShort(6, (short) geometry.getWinLength());
+        putUuid(8, gameId);
+        putUuid(24, session.getPlayer1().getPlayerId());
+        putUuid(40, opponent == null ? null : opponent.getPlayerId());
+        append();
+        liveGames.putIfAbsent(session.getGameId(), new LiveGame(gameId, segment));
+    }
+
+    @Override
+    public synchronized void movePlayed(GameSession session, MoveEvent moveEvent) {
+        LiveGame game = liveGames.get(session.getGameId());
+        if (game == null)
+            return;
+        Player player = moveEvent.getPlayer();
+        record.put(0, MOVE)
+                .put(1, (byte) player.getFigure().value())
+                .putShort(2, moveEvent.getX().shortValue())
+                .putShort(4, moveEvent.getY().shortValue());
+        putUuid(8, game.id());
+        putUuid(24, player.getPlayerId());
+        append();
+    }
+
+    @Override
+    public synchronized void gameEnded(GameSession session) {
+        end(session, session.getBitboard().winner());
+    }
+
+    /**
+     * Ends the game in the journal, so it isn't replayed here, although it goes on on another node.
+     */
+    @Override
+    public synchronized void gameReleased(GameSession session) {
+        end(session, null);
+    }
+
+    /**
+     * Journals a game taken over from another node as if it had started here, followed by its moves so far.
+     */
+    @Override
+    public synchronized void gameAdopted(GameSession session) {
+        gameStarted(session);
+        for (MoveEvent moveEvent : session.getMoves())
+            movePlayed(session, moveEvent);
+    }
+
+    /**
+     * Flushes the records appended since the last flush to disk.
+     */
+    public synchronized void sync() {
+        if (position > syncedPosition)
+            buffer.force(syncedPosition, position - syncedPosition);
+        syncedPosition = position;
+        unsynced = 0;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            sync();
+            channel.close();
+            channel = null;
+            buffer = null;
+        }
+    }
+
+    /**
+     * @return The number of segment files on disk.
+     */
+    public synchronized int segmentCount() {
+        try {
+            return segments().size();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void end(GameSession session, Figure winner) {
+        LiveGame game = liveGames.remove(session.getGameId());
+        if (game == null)
+            return;
+        record.put(0, END)
+                .put(1, winner == null ? NO_FIGURE : (byte) winner.value());
+        putUuid(8, game.id());
+        append();
+    }
+
+    private void append() {
+        if (channel == null)
+            throw new IllegalStateException("The journal must be recovered before appending");
+        byte[] bytes = record.array();
+        checksum.reset();
+        checksum.update(bytes, 0, CHECKSUM_OFFSET);
+        record.putInt(CHECKSUM_OFFSET, (int) checksum.getValue());
+        try {
+            if (position == segmentSize)
+                rotate();
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Can't open journal segment %s", segment), e);
+        }
+        buffer.put(position, bytes);
+        position += RECORD_SIZE;
+        Arrays.fill(bytes, (byte) 0);
+        if (syncBatch > 0 && ++unsynced >= syncBatch)
+            sync();
+    }
+
+    private void rotate() throws IOException {
+        sync();
+        channel.close();
+        segment++;
+        openSegment();
+        deleteUnusedSegments();
+    }
+
+    private void openSegment() throws IOException {
+        channel = FileChannel.open(path(segment), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        position = 0;
+        syncedPosition = 0;
+        unsynced = 0;
+    }
+
+    /**
+     * Deletes the segments which were completely written before the oldest game in progress started.
+     */
+    private void deleteUnusedSegments() throws IOException {
+        long oldest = liveGames.values().stream().mapToLong(LiveGame::firstSegment).min().orElse(segment);
+        for (long number : segments()) {
+            if (number < oldest)
+                Files.delete(path(number));
+        }
+    }
+
+    private void replay(long number, Map<String, GameSession> games) throws IOException {
+        try (FileChannel file = FileChannel.open(path(number), StandardOpenOption.READ)) {
+            MappedByteBuffer data = file.map(FileChannel.MapMode.READ_ONLY, 0, file.size());
+            byte[] bytes = record.array();
+            for (int offset = 0; offset + RECORD_SIZE <= data.limit(); offset += RECORD_SIZE) {
+                data.get(offset, bytes);
+                if (bytes[0] == 0)
+                    break;
+                checksum.reset();
+                checksum.update(bytes, 0, CHECKSUM_OFFSET);
+                if ((int) checksum.getValue() != record.getInt(CHECKSUM_OFFSET)) {
+                    log.warn(String.format("Journal segment %s is torn at offset %s, skipping the rest of it", number, offset));
+                    break;
+                }
+                replayRecord(number, games);
+            }
+            Arrays.fill(bytes, (byte) 0);
+        }
+    }
+
+    private void replayRecord(long number, Map<String, GameSession> games) {
+        String gameId = getUuid(8);
+        switch (record.get(0)) {
+            case START -> {
+                Figure figure = Figure.valueOf(record.get(1));
+                String opponentId = getUuid(40);
+                games.put(gameId, GameSession.builder()
+                        .gameId(gameId)
+                        .player1(new Player(getUuid(24), figure))
+                        .player2(opponentId == null ? null : new Player(opponentId, Figure.getOppositeTo(figure)))
+                        .bitboard(new Board(new BoardGeometry(record.getShort(2), record.getShort(4), record.getShort(6))))
+                        .build());
+                liveGames.put(gameId, new LiveGame(UUID.fromString(gameId), number));
+            }
+            case MOVE -> {
+                GameSession session = games.get(gameId);
+                if (session == null)
+                    return;
+                Figure figure = Figure.valueOf(record.get(1));
+                MoveEvent moveEvent = MoveEvent.builder()
+                        .gameId(gameId)
+                        .player(new Player(getUuid(24), figure))
+                        .x((int) record.getShort(2))
+                        .y((int) record.getShort(4))
+                        .build();
+                Board board = session.getBitboard();
+                board.set(board.getGeometry().cell(moveEvent.getX(), moveEvent.getY()), figure);
+                session.recordMove(moveEvent);
+            }
+            case END -> {
+                games.remove(gameId);
+                liveGames.remove(gameId);
+            }
+            default -> log.warn(String.format("Unknown journal record type %s in segment %s", record.get(0), number));
+        }
+    }
+
+    private List<Long> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path path(long number) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    private void putUuid(int offset, UUID uuid) {
+        if (uuid != null)
+            record.putLong(offset, uuid.getMostSignificantBits()).putLong(offset + Long.BYTES, uuid.getLeastSignificantBits());
+    }
+
+    /**
+     * Writes an id read straight from its string, since moves are journaled one by one.
+     */
+    private void putUuid(int offset, String id) {
+        if (CanonicalUuid.isCanonical(id))
+            record.putLong(offset, CanonicalUuid.mostSignificantBits(id)).putLong(offset + Long.BYTES, CanonicalUuid.leastSignificantBits(id));
+    }
+
+    private String getUuid(int offset) {
+        long most = record.getLong(offset);
+        long least = record.getLong(offset + Long.BYTES);
+        return most == 0 && least == 0 ? null : new UUID(most, least).toString();
+    }
+
+    /**
+     * Only ids in the canonical UUID form survive the round trip through 16 bytes unchanged.
+     */
+    private static UUID parseUuid(String id) {
+        return CanonicalUuid.isCanonical(id) ? UUID.fromString(id) : null;
+    }
+
+    private record LiveGame(UUID id, long firstSegment) {
+    }
+}
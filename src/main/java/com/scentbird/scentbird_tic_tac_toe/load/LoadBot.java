@@ -0,0 +1,143 @@
+package com.scentbird.scentbird_tic_tac_toe.load;
+
+import com.scentbird.scentbird_tic_tac_toe.model.GameSession;
+import com.scentbird.scentbird_tic_tac_toe.model.MoveEvent;
+import com.scentbird.scentbird_tic_tac_toe.service.GameService;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Recorder;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+
+import java.lang.reflect.Type;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bot which plays against the node over its own STOMP connection, the way a remote node does,
+ * and measures the round trip from sending a move to receiving the reply.
+ * <p>
+ * The node answers every move on the queue of the connection which sent it, so every reply a bot
+ * gets is the reply to its own last move. When the move of a bot ends a game, the reply is the first
+ * move of a game the node starts itself, which the bot plays on.
+ */
+@Slf4j
+class LoadBot extends StompSessionHandlerAdapter {
+    private static final String MOVE_TOPIC = "/app/game";
+    private static final String MOVES_QUEUE = "/user/queue/moves";
+
+    private final GameService player;
+    private final Recorder latency;
+    private final LongAdder moves;
+    private final LongAdder gamesPlayed;
+    private final LongAdder errors;
+    private StompSession session;
+    private String gameId;
+    private volatile boolean running = true;
+    private volatile long sentAt;
+
+    LoadBot(GameService player, Recorder latency, LongAdder moves, LongAdder gamesPlayed, LongAdder errors) {
+        this.player = player;
+        this.latency = latency;
+        this.moves = moves;
+        this.gamesPlayed = gamesPlayed;
+        this.errors = errors;
+    }
+
+    @Override
+    public synchronized void afterConnected(StompSession session, StompHeaders connectedHeaders) {
+        this.session = session;
+        session.subscribe(MOVES_QUEUE, this);
+        startGame();
+    }
+
+    @Override
+    public Type getPayloadType(StompHeaders headers) {
+        return MoveEvent.class;
+    }
+
+    @Override
+    public synchronized void handleFrame(StompHeaders headers, Object payload) {
+        MoveEvent moveEvent = (MoveEvent) payload;
+        if (!running)
+            return;
+        latency.recordValue((System.nanoTime() - sentAt) / 1_000);
+        moves.increment();
+        try {
+            GameSession game = player.initGameIfNeeded(moveEvent);
+            follow(player.saveAndMakeMove(game, moveEvent));
+        } catch (RuntimeException e) {
+            log.debug(String.format("Bot lost game %s: %s", moveEvent.getGameId(), e.getMessage()));
+            errors.increment();
+            restart();
+        }
+    }
+
+    @Override
+    public void handleException(StompSession session, StompCommand command, StompHeaders headers, byte[] payload, Throwable exception) {
+        errors.increment();
+    }
+
+    @Override
+    public void handleTransportError(StompSession session, Throwable exception) {
+        if (running)
+            errors.increment();
+    }
+
+    /**
+     * @param timeoutNanos How long a reply may take.
+     * @return True if the bot has been waiting for a reply for longer than the timeout.
+     */
+    boolean isStalled(long timeoutNanos) {
+        return running && session != null && System.nanoTime() - sentAt > timeoutNanos;
+    }
+
+    /**
+     * Gives up the current game and starts a new one.
+     */
+    synchronized void restart() {
+        if (gameId != null)
+            player.getSessionRegistry().remove(gameId);
+        gameId = null;
+        startGame();
+    }
+
+    /**
+     * Stops playing and disconnects. A STOMP session can't send from two threads at once, so the bot
+     * only disconnects once it's done with the move it may be processing.
+     */
+    synchronized void stop() {
+        running = false;
+        if (session != null && session.isConnected()) {
+            try {
+                session.disconnect();
+            } catch (RuntimeException e) {
+                log.debug(String.format("Bot couldn't disconnect: %s", e.getMessage()));
+            }
+        }
+    }
+
+    private void startGame() {
+        GameSession game = player.startNewGame();
+        follow(player.makeMove(game));
+    }
+
+    /**
+     * Sends the next move, counting the game as played if the move starts a new one or ends the game.
+     *
+     * @param moveEvent The next move, which belongs to a new game if the previous one has just ended.
+     */
+    private void follow(MoveEvent moveEvent) {
+        if (gameId != null && !moveEvent.getGameId().equals(gameId))
+            gamesPlayed.increment();
+        gameId = moveEvent.getGameId();
+        if (player.getSessionRegistry().get(gameId) == null) {
+            // This move ends the game, and the reply belongs to the next one
+            gamesPlayed.increment();
+            gameId = null;
+        }
+        moves.increment();
+        sentAt = System.nanoTime();
+        session.send(MOVE_TOPIC, moveEvent);
+    }
+}
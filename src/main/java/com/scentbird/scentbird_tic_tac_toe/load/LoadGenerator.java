@@ -0,0 +1,172 @@
+package com.scentbird.scentbird_tic_tac_toe.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scentbird.scentbird_tic_tac_toe.engine.BoardGeometry;
+import com.scentbird.scentbird_tic_tac_toe.engine.PerfectPlaySolver;
+import com.scentbird.scentbird_tic_tac_toe.engine.PositionCache;
+import com.scentbird.scentbird_tic_tac_toe.service.GameService;
+import com.scentbird.scentbird_tic_tac_toe.service.GameSessionRegistry;
+import com.scentbird.scentbird_tic_tac_toe.service.MovePacer;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Plays bots against this node over loopback STOMP connections to measure how many moves it sustains
+ * and how long they take. The bots connect one by one over the ramp-up period, then the node is
+ * measured for the configured duration, and the summary is written to a JSON file.
+ * <p>
+ * Runs headless with {@code --spring.profiles.active=load}, which also exits once the summary is written.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "game.load.enabled", havingValue = "true")
+public class LoadGenerator implements ApplicationRunner {
+    private static final String WS_URL_PATTERN = "ws://localhost:%s/game";
+
+    @Autowired
+    Environment environment;
+    @Autowired
+    ConfigurableApplicationContext context;
+    @Autowired
+    PerfectPlaySolver solver;
+    @Autowired
+    BoardGeometry geometry;
+    @Autowired
+    PositionCache positionCache;
+    @Autowired
+    ObjectMapper objectMapper;
+    @Value("${game.load.pairs:100}")
+    int pairs;
+    @Value("${game.load.ramp-up:10s}")
+    Duration rampUp;
+    @Value("${game.load.duration:60s}")
+    Duration duration;
+    @Value("${game.load.reply-timeout:5s}")
+    Duration replyTimeout;
+    @Value("${game.load.summary-file:load-summary.json}")
+    Path summaryFile;
+    @Value("${game.load.exit:false}")
+    boolean exit;
+
+    private final Recorder latency = new Recorder(3);
+    private final LongAdder moves = new LongAdder();
+    private final LongAdder gamesPlayed = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private long timeouts;
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        String url = String.format(WS_URL_PATTERN, environment.getProperty("local.server.port"));
+        WebSocketStompClient stompClient = new WebSocketStompClient(new StandardWebSocketClient());
+        stompClient.setMessageConverter(new MappingJackson2MessageConverter());
+        GameService player = botPlayer();
+        List<LoadBot> bots = new ArrayList<>(pairs);
+        log.info(String.format("Connecting %s bots to %s over %s", pairs, url, rampUp));
+
+        long start = System.nanoTime();
+        for (int i = 0; i < pairs; i++) {
+            // Spread the connections evenly over the ramp-up
+            sleepUntil(start + rampUp.toNanos() * i / pairs);
+            LoadBot bot = new LoadBot(player, latency, moves, gamesPlayed, errors);
+            bots.add(bot);
+            stompClient.connectAsync(url, bot).exceptionally(e -> {
+                errors.increment();
+                return null;
+            });
+        }
+        sleepUntil(start + rampUp.toNanos());
+
+        LoadSummary summary = measure(bots);
+        stompClient.stop();
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(summaryFile.toFile(), summary);
+        log.info(String.format("Load run: %.0f moves/s, round trip p50 = %s us, p99 = %s us, p99.9 = %s us, summary in %s",
+                summary.getMovesPerSecond(), summary.getLatencyP50(), summary.getLatencyP99(),
+                summary.getLatencyP999(), summaryFile.toAbsolutePath()));
+        if (exit)
+            System.exit(SpringApplication.exit(context));
+    }
+
+    /**
+     * Measures the node in its steady state after the ramp-up, restarting the games of bots whose reply got lost.
+     */
+    private LoadSummary measure(List<LoadBot> bots) throws InterruptedException {
+        latency.reset();
+        moves.reset();
+        gamesPlayed.reset();
+        errors.reset();
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        Histogram total = new Histogram(3);
+        Histogram histogram = null;
+        while (System.nanoTime() < end) {
+            sleepUntil(Math.min(end, System.nanoTime() + TimeUnit.SECONDS.toNanos(1)));
+            histogram = latency.getIntervalHistogram(histogram);
+            total.add(histogram);
+            log.info(String.format("%s moves, %s games, round trip p99 = %s us in the last second",
+                    moves.sum(), gamesPlayed.sum(), histogram.getValueAtPercentile(99)));
+            for (LoadBot bot : bots) {
+                if (bot.isStalled(replyTimeout.toNanos())) {
+                    timeouts++;
+                    bot.restart();
+                }
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long moveCount = moves.sum();
+        long gameCount = gamesPlayed.sum();
+        bots.forEach(LoadBot::stop);
+        total.add(latency.getIntervalHistogram(histogram));
+        return LoadSummary.builder()
+                .pairs(pairs)
+                .seconds(seconds)
+                .moves(moveCount)
+                .movesPerSecond(moveCount / seconds)
+                .games(gameCount)
+                .errors(errors.sum())
+                .timeouts(timeouts)
+                .latencyP50(total.getValueAtPercentile(50))
+                .latencyP99(total.getValueAtPercentile(99))
+                .latencyP999(total.getValueAtPercentile(99.9))
+                .latencyMax(total.getMaxValue())
+                .build();
+    }
+
+    /**
+     * The player of the bots: a node of its own, without pacing, which shares the engine with this node.
+     */
+    private GameService botPlayer() {
+        GameService player = new GameService();
+        player.setSessionRegistry(new GameSessionRegistry(pairs * 2));
+        player.setSolver(solver);
+        player.setGeometry(geometry);
+        player.setPositionCache(positionCache);
+        player.setPacer(new MovePacer(null, Duration.ZERO));
+        return player;
+    }
+
+    private static void sleepUntil(long nanos) throws InterruptedException {
+        long left = nanos - System.nanoTime();
+        if (left > 0)
+            TimeUnit.NANOSECONDS.sleep(left);
+    }
+}
@@ -0,0 +1,23 @@
+package com.scentbird.scentbird_tic_tac_toe.load;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * The result of a load run, measured after the ramp-up. Latencies are move round trips in microseconds.
+ */
+@Value
+@Builder
+public class LoadSummary {
+    int pairs;
+    double seconds;
+    long moves;
+    double movesPerSecond;
+    long games;
+    long errors;
+    long timeouts;
+    long latencyP50;
+    long latencyP99;
+    long latencyP999;
+    long latencyMax;
+}
@@ -0,0 +1,147 @@
+package com.scentbird.scentbird_tic_tac_toe.metrics;
+
+import com.scentbird.scentbird_tic_tac_toe.model.GameSession;
+import com.scentbird.scentbird_tic_tac_toe.service.GameListener;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The meters of the game: how long moves take, how many games start and how they end.
+ * <p>
+ * Durations are passed in as nanoseconds measured by the caller, so timing a move allocates nothing.
+ */
+@Component
+public class GameMetrics implements GameListener {
+    /**
+     * Meters which aren't published anywhere, for a game service running outside of the application context.
+     */
+    public static final GameMetrics NONE = new GameMetrics(new CompositeMeterRegistry());
+
+    private final Timer serverReply;
+    private final Timer clientReply;
+    private final Timer nextMove;
+    private final Counter gamesStarted;
+    private final Counter gamesWon;
+    private final Counter gamesDrawn;
+    private final Counter reconnects;
+    private final Counter rejectedMoves;
+    private final Counter connections;
+    private final Timer reconnectDowntime;
+    private final Counter gamesResumed;
+    private final Counter gamesLost;
+    private final Counter gamesEvicted;
+
+    public GameMetrics(MeterRegistry registry) {
+        serverReply = replyTimer(registry, "server");
+        clientReply = replyTimer(registry, "client");
+        nextMove = Timer.builder("game.engine.next-move")
+                .description("Time to choose the next move")
+                .publishPercentileHistogram()
+                .register(registry);
+        gamesStarted = Counter.builder("game.games.started").register(registry);
+        gamesWon = Counter.builder("game.games.won").register(registry);
+        gamesDrawn = Counter.builder("game.games.drawn").register(registry);
+        reconnects = Counter.builder("game.client.reconnects")
+                .description("Attempts to restore the connection to the opponent's node")
+                .register(registry);
+        rejectedMoves = Counter.builder("game.moves.rejected")
+                .description("Moves rejected because the lane of their game was full")
+                .register(registry);
+        // A reconnect storm shows up as a burst of connections on the server and of reconnects on the clients
+        connections = Counter.builder("game.server.connections")
+                .description("STOMP sessions opened by peers")
+                .register(registry);
+        reconnectDowntime = Timer.builder("game.client.reconnect.downtime")
+                .description("Time from losing the connection to the opponent's node until it's back")
+                .register(registry);
+        gamesResumed = Counter.builder("game.games.resumed")
+                .description("Requests of reconnected peers to continue a game")
+                .tag("outcome", "resumed")
+                .register(registry);
+        gamesLost = Counter.builder("game.games.resumed")
+                .description("Requests of reconnected peers to continue a game")
+                .tag("outcome", "unknown")
+                .register(registry);
+        gamesEvicted = Counter.builder("game.games.evicted")
+                .description("Games ended because nobody played them anymore")
+                .register(registry);
+    }
+
+    /**
+     * @param nanos Time from receiving a move on the server side until the reply is handed over for sending.
+     */
+    public void recordServerReply(long nanos) {
+        serverReply.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param nanos Time from receiving a move on the client side until the reply is handed over for sending.
+     */
+    public void recordClientReply(long nanos) {
+        clientReply.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param nanos Time the engine spent choosing a move.
+     */
+    public void recordNextMove(long nanos) {
+        nextMove.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void reconnectAttempted() {
+        reconnects.increment();
+    }
+
+    public void moveRejected() {
+        rejectedMoves.increment();
+    }
+
+    /**
+     * @param nanos Time the client has been disconnected.
+     */
+    public void recordReconnected(long nanos) {
+        reconnectDowntime.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param found Whether the game the peer has asked for is still played here.
+     */
+    public void resumeRequested(boolean found) {
+        (found ? gamesResumed : gamesLost).increment();
+    }
+
+    @EventListener
+    public void connected(SessionConnectedEvent event) {
+        connections.increment();
+    }
+
+    @Override
+    public void gameStarted(GameSession session) {
+        gamesStarted.increment();
+    }
+
+    @Override
+    public void gameEnded(GameSession session) {
+        if (session.isEvicted())
+            gamesEvicted.increment();
+        else if (session.getBitboard().winner() != null)
+            gamesWon.increment();
+        else
+            gamesDrawn.increment();
+    }
+
+    private static Timer replyTimer(MeterRegistry registry, String side) {
+        return Timer.builder("game.move.reply")
+                .description("Time to produce the reply to a move, without the pacing delay")
+                .tag("side", side)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
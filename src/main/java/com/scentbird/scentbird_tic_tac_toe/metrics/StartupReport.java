@@ -0,0 +1,42 @@
+package com.scentbird.scentbird_tic_tac_toe.metrics;
+
+import com.scentbird.scentbird_tic_tac_toe.model.GameSession;
+import com.scentbird.scentbird_tic_tac_toe.model.MoveEvent;
+import com.scentbird.scentbird_tic_tac_toe.service.GameListener;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Logs how long each phase of the startup took once the node is ready, and how long after the start of the JVM
+ * the first move was played, which is the startup time that counts for a bot.
+ */
+@Component
+@Slf4j
+public class StartupReport implements GameListener {
+    private final AtomicBoolean firstMove = new AtomicBoolean();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ready() {
+        StringJoiner phases = new StringJoiner(", ");
+        long previous = 0;
+        for (Map.Entry<String, Long> phase : StartupTimeline.phases().entrySet()) {
+            phases.add(String.format("%s %s ms", phase.getKey(), phase.getValue() - previous));
+            previous = phase.getValue();
+        }
+        long ready = StartupTimeline.uptime();
+        phases.add(String.format("runners %s ms", ready - previous));
+        log.info(String.format("Ready %s ms after the JVM started: %s", ready, phases));
+    }
+
+    @Override
+    public void movePlayed(GameSession session, MoveEvent moveEvent) {
+        if (!firstMove.get() && firstMove.compareAndSet(false, true))
+            log.info(String.format("First move played %s ms after the JVM started", StartupTimeline.uptime()));
+    }
+}
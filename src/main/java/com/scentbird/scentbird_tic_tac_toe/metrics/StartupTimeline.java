@@ -0,0 +1,65 @@
+package com.scentbird.scentbird_tic_tac_toe.metrics;
+
+import org.springframework.boot.ConfigurableBootstrapContext;
+import org.springframework.boot.SpringApplicationRunListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.ConfigurableEnvironment;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Records when each phase of the startup ends, in milliseconds since the JVM started. It's hooked into the
+ * run of the application in {@code main} rather than being a bean, so it sees the phases before there's a
+ * context. Only the latest run in the JVM is recorded.
+ */
+public class StartupTimeline implements SpringApplicationRunListener {
+    private static final Map<String, Long> PHASES = new LinkedHashMap<>();
+
+    @Override
+    public void starting(ConfigurableBootstrapContext bootstrapContext) {
+        synchronized (PHASES) {
+            PHASES.clear();
+        }
+        mark("jvm");
+    }
+
+    @Override
+    public void environmentPrepared(ConfigurableBootstrapContext bootstrapContext, ConfigurableEnvironment environment) {
+        mark("environment");
+    }
+
+    @Override
+    public void contextLoaded(ConfigurableApplicationContext context) {
+        mark("context");
+    }
+
+    @Override
+    public void started(ConfigurableApplicationContext context, Duration timeTaken) {
+        mark("refresh");
+    }
+
+    /**
+     * @return The milliseconds since the JVM started until the end of every phase so far, in the order of the phases.
+     */
+    public static Map<String, Long> phases() {
+        synchronized (PHASES) {
+            return new LinkedHashMap<>(PHASES);
+        }
+    }
+
+    /**
+     * @return The milliseconds since the JVM started.
+     */
+    public static long uptime() {
+        return ManagementFactory.getRuntimeMXBean().getUptime();
+    }
+
+    private static void mark(String phase) {
+        synchronized (PHASES) {
+            PHASES.put(phase, uptime());
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.scentbird.scentbird_tic_tac_toe.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The outcomes and the average length of all archived games.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ArchiveSummary {
+    long games;
+    double averageMoves;
+    long firstMoverWins;
+    long secondMoverWins;
+    long draws;
+    long abandoned;
+}
@@ -1,21 +1,107 @@
 package com.scentbird.scentbird_tic_tac_toe.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.scentbird.scentbird_tic_tac_toe.engine.Board;
+import com.scentbird.scentbird_tic_tac_toe.engine.BoardGeometry;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import java.util.UUID;
+import java.util.ArrayList;
+import java.util.List;
 
 @Data
 @NoArgsConstructor
+@JsonPropertyOrder({"gameId", "version", "ended", "player1", "player2", "board", "winLength"})
 @AllArgsConstructor
 @Builder
 public class GameSession {
     String gameId;
     boolean isEnded = false;
+    /**
+     * Whether the game has been ended because nobody played it anymore, rather than by its last move.
+     */
+    @JsonIgnore
+    boolean evicted;
+    /**
+     * The node the peer who plays this game is connected to, which tells the peer when the game is evicted.
+     */
+    @JsonIgnore
+    String peerNode;
+    /**
+     * The STOMP session of the peer on that node, which changes when the peer reconnects.
+     */
+    @JsonIgnore
+    String peerSessionId;
     Player player1;
     Player player2;
+    @JsonIgnore
     @Builder.Default
-    Integer[][] board = new Integer[3][3];
+    Board bitboard = new Board();
+    @JsonIgnore
+    @Builder.Default
+    List<MoveEvent> moves = new ArrayList<>(Board.CELLS);
+
+    /**
+     * Gets a snapshot of the board as rows of figure values, the shape clients of the game state expect.
+     *
+     * @return The board as rows of cells (1 for X, 0 for O, null for an empty cell).
+     */
+    public Integer[][] getBoard() {
+        return bitboard.toArray();
+    }
+
+    /**
+     * Replaces the board with the given rows of figure values, resizing it if needed.
+     *
+     * @param board The board as rows of cells (1 for X, 0 for O, null for an empty cell).
+     */
+    public void setBoard(Integer[][] board) {
+        BoardGeometry geometry = bitboard.getGeometry();
+        if (board.length != geometry.getHeight() || board[0].length != geometry.getWidth())
+            bitboard = new Board(new BoardGeometry(board[0].length, board.length,
+                    Math.min(geometry.getWinLength(), Math.max(board[0].length, board.length))));
+        bitboard.load(board);
+    }
+
+    /**
+     * @return The number of figures in a row which win this game.
+     */
+    public int getWinLength() {
+        return bitboard.getGeometry().getWinLength();
+    }
+
+    public void setWinLength(int winLength) {
+        BoardGeometry geometry = bitboard.getGeometry();
+        if (winLength != geometry.getWinLength()) {
+            Integer[][] board = bitboard.toArray();
+            bitboard = new Board(new BoardGeometry(geometry.getWidth(), geometry.getHeight(), winLength));
+            bitboard.load(board);
+        }
+    }
+
+    /**
+     * Gets the version of the game state, which grows by one with every move and once more when the game ends.
+     * Together with the game id it identifies the state, so it's cheap to tell whether the state has changed.
+     *
+     * @return The version of the game state.
+     */
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    public long getVersion() {
+        return moves.size() + (isEnded ? 1 : 0);
+    }
+
+    /**
+     * Appends a move to the move log of this game. Every move occupies a cell, so the log never
+     * grows beyond the number of cells on the board.
+     *
+     * @param moveEvent The move to record.
+     */
+    public void recordMove(MoveEvent moveEvent) {
+        if (moves.size() < bitboard.getGeometry().cells())
+            moves.add(moveEvent);
+    }
 }
@@ -0,0 +1,25 @@
+package com.scentbird.scentbird_tic_tac_toe.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A change of the state of a game: the move which has been played, or the end of the game. A game which
+ * ends without a result because nobody played it anymore is marked as evicted.
+ * <p>
+ * The version is the version of the game state after the change, so a subscriber which sees a gap
+ * between the versions of a game has missed a change and fetches the whole state again.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class GameStateDelta {
+    String gameId;
+    long version;
+    MoveEvent move;
+    boolean ended;
+    boolean evicted;
+}
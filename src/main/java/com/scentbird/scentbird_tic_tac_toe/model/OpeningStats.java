@@ -0,0 +1,22 @@
+package com.scentbird.scentbird_tic_tac_toe.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The outcomes of the archived games which were opened in one cell.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OpeningStats {
+    int x;
+    int y;
+    long games;
+    long firstMoverWins;
+    long secondMoverWins;
+    long draws;
+}
@@ -0,0 +1,21 @@
+package com.scentbird.scentbird_tic_tac_toe.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The outcomes of the archived games of one player.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PlayerStats {
+    String playerId;
+    long games;
+    long wins;
+    long losses;
+    long draws;
+}
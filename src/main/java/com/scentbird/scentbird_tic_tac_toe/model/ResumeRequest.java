@@ -0,0 +1,21 @@
+package com.scentbird.scentbird_tic_tac_toe.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Asks the opponent's node to continue a game after a reconnect.
+ * <p>
+ * The sequence is the number of moves of the game the asking node has recorded, its own and the ones
+ * it has received, so the opponent can tell which moves got lost while the connection was down.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ResumeRequest {
+    String gameId;
+    long sequence;
+}
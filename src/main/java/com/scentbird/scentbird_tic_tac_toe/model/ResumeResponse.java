@@ -0,0 +1,26 @@
+package com.scentbird.scentbird_tic_tac_toe.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * The answer to a {@link ResumeRequest}.
+ * <p>
+ * If the game is known, the sequence is the number of moves the answering node has recorded. The moves
+ * the asking node has missed come along; a sequence below the one asked with means that the last moves
+ * of the asking node got lost and have to be sent again.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ResumeResponse {
+    String gameId;
+    boolean found;
+    long sequence;
+    List<MoveEvent> missedMoves;
+}
@@ -0,0 +1,42 @@
+package com.scentbird.scentbird_tic_tac_toe.service;
+
+import com.scentbird.scentbird_tic_tac_toe.model.GameSession;
+import com.scentbird.scentbird_tic_tac_toe.model.MoveEvent;
+
+/**
+ * Gets notified by {@link GameService} about the lifecycle of games. Listeners are called on the thread
+ * which plays the game, so they should return quickly.
+ */
+public interface GameListener {
+
+    /**
+     * @param session The game which has just started.
+     */
+    default void gameStarted(GameSession session) {
+    }
+
+    /**
+     * @param session   The game the move belongs to, with the move already applied to its board.
+     * @param moveEvent The move of either player.
+     */
+    default void movePlayed(GameSession session, MoveEvent moveEvent) {
+    }
+
+    /**
+     * @param session The game which has just ended.
+     */
+    default void gameEnded(GameSession session) {
+    }
+
+    /**
+     * @param session The game which another node plays from now on. It hasn't ended.
+     */
+    default void gameReleased(GameSession session) {
+    }
+
+    /**
+     * @param session The game which this node has taken over from another node, with the moves played so far.
+     */
+    default void gameAdopted(GameSession session) {
+    }
+}
@@ -1,99 +1,200 @@
 package com.scentbird.scentbird_tic_tac_toe.service;
 
+import com.scentbird.scentbird_tic_tac_toe.config.VirtualThreads;
+import com.scentbird.scentbird_tic_tac_toe.converter.MoveEventBinaryMessageConverter;
+import com.scentbird.scentbird_tic_tac_toe.engine.Board;
+import com.scentbird.scentbird_tic_tac_toe.engine.BoardGeometry;
+import com.scentbird.scentbird_tic_tac_toe.engine.MonteCarloSearch;
+import com.scentbird.scentbird_tic_tac_toe.engine.OpeningBook;
+import com.scentbird.scentbird_tic_tac_toe.engine.PerfectPlaySolver;
+import com.scentbird.scentbird_tic_tac_toe.engine.PositionCache;
 import com.scentbird.scentbird_tic_tac_toe.handler.GameStompMessageHandler;
+import com.scentbird.scentbird_tic_tac_toe.handler.ReconnectBackoff;
+import com.scentbird.scentbird_tic_tac_toe.metrics.GameMetrics;
 import com.scentbird.scentbird_tic_tac_toe.model.Figure;
 import com.scentbird.scentbird_tic_tac_toe.model.GameSession;
 import com.scentbird.scentbird_tic_tac_toe.model.MoveEvent;
 import com.scentbird.scentbird_tic_tac_toe.model.Player;
-import jakarta.annotation.PostConstruct;
+import com.scentbird.scentbird_tic_tac_toe.model.ResumeRequest;
+import com.scentbird.scentbird_tic_tac_toe.model.ResumeResponse;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.messaging.converter.CompositeMessageConverter;
 import org.springframework.messaging.converter.MappingJackson2MessageConverter;
 import org.springframework.stereotype.Service;
 import org.springframework.web.socket.client.WebSocketClient;
 import org.springframework.web.socket.client.standard.StandardWebSocketClient;
 import org.springframework.web.socket.messaging.WebSocketStompClient;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
-import java.util.Stack;
 import java.util.UUID;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Consumer;
 
 @Service
 @Slf4j
 @Setter
 @Getter
 public class GameService {
-    private static final Stack<MoveEvent> EVENTS = new Stack<>();
     private static final String WS_URL_PATTERN = "ws://%s:%s/game";
 
     WebSocketClient socketClient;
     WebSocketStompClient stompClient;
     GameStompMessageHandler sessionHandler;
+    @Autowired
+    GameSessionRegistry sessionRegistry;
+    @Autowired
+    PerfectPlaySolver solver;
+    @Autowired
+    MovePacer pacer;
+    @Autowired
+    BoardGeometry geometry = BoardGeometry.CLASSIC;
+    @Autowired
+    PositionCache positionCache = PositionCache.NONE;
+    @Autowired
+    OpeningBook openingBook = OpeningBook.NONE;
+    @Autowired(required = false)
+    MonteCarloSearch search;
+    @Autowired
+    GameMetrics metrics = GameMetrics.NONE;
+    @Value("${game.wire-format:json}")
+    String wireFormat = "json";
+    @Value("${game.threads.virtual:false}")
+    boolean virtualThreads;
+    @Value("${game.client.reconnect.initial-delay:500ms}")
+    Duration reconnectInitialDelay = Duration.ofMillis(500);
+    @Value("${game.client.reconnect.max-delay:30s}")
+    Duration reconnectMaxDelay = Duration.ofSeconds(30);
+    /**
+     * Ends a game as a draw as soon as neither player can complete a line. Both peers should agree on it,
+     * or one of them keeps playing a game the other has already ended.
+     */
+    @Value("${game.rules.end-when-decided:false}")
+    boolean endWhenDecided;
+    @Autowired(required = false)
+    List<GameListener> listeners = List.of();
     private final String playerId = UUID.randomUUID().toString();
-    private GameSession currentSession;
-    private Player playerInfo;
+    /**
+     * The game started last and the player of this node in it. Whichever thread starts a game writes them: the
+     * lanes, the STOMP inbound threads, and the expiry and reconnect executors, so they're volatile and the last
+     * writer wins. They publish the session itself safely; the moves of a game are still only played on its lane.
+     */
+    private volatile GameSession currentSession;
+    private volatile Player playerInfo;
 
     /**
-     * Initializes the WebSocket client for the game service.
+     * Initializes the WebSocket client for the game service. The client reads both JSON and binary moves,
+     * and sends binary moves only if {@code game.wire-format} is {@code binary}, since older peers read JSON only.
+     * With virtual threads enabled, connecting and reconnecting run on virtual threads. Reconnects back off
+     * exponentially from {@code game.client.reconnect.initial-delay} up to {@code game.client.reconnect.max-delay}.
+     * <p>
+     * A node which only serves games never needs the client, so it's built on the first game this node starts
+     * as a client rather than at startup.
      */
-    @PostConstruct
-    public void initClient() {
-        socketClient = new StandardWebSocketClient();
+    public synchronized void initClient() {
+        if (stompClient != null)
+            return;
+        ThreadFactory factory = virtualThreads ? VirtualThreads.factory("stomp-client-") : null;
+        StandardWebSocketClient webSocketClient = new StandardWebSocketClient();
+        if (factory != null)
+            webSocketClient.setTaskExecutor(new SimpleAsyncTaskExecutor(factory));
+        socketClient = webSocketClient;
         stompClient = new WebSocketStompClient(socketClient);
-        stompClient.setMessageConverter(new MappingJackson2MessageConverter());
-        sessionHandler = new GameStompMessageHandler(this, stompClient);
+        stompClient.setMessageConverter(new CompositeMessageConverter(
+                List.of(new MoveEventBinaryMessageConverter(), new MappingJackson2MessageConverter())));
+        sessionHandler = new GameStompMessageHandler(this, stompClient, "binary".equalsIgnoreCase(wireFormat),
+                factory == null ? Runnable::run : new SimpleAsyncTaskExecutor(factory),
+                new ReconnectBackoff(reconnectInitialDelay, reconnectMaxDelay));
     }
 
     /**
      * Initializes the player with a random figure (X or O).
+     *
+     * @return The player of the new game.
      */
-    private void initPlayer() {
-        playerInfo = new Player(playerId, Figure.valueOf(new Random(2).nextInt()));
+    private Player initPlayer() {
+        Player player = new Player(playerId, Figure.valueOf(new Random(2).nextInt()));
+        playerInfo = player;
+        return player;
     }
 
     /**
      * Initializes the player with the figure which is opposite to opponent's figure.
      *
      * @param opponentFigure The figure of the opponent.
+     * @return The player of the new game.
      */
-    private void initPlayer(Figure opponentFigure) {
-        playerInfo = new Player(playerId, Figure.getOppositeTo(opponentFigure));
+    private Player initPlayer(Figure opponentFigure) {
+        Player player = new Player(playerId, Figure.getOppositeTo(opponentFigure));
+        playerInfo = player;
+        return player;
     }
 
     /**
-     * Initializes a new game session with a random game ID.
+     * Initializes and registers a new game session with a random game ID.
+     *
+     * @param player The player of this node.
+     * @return The new game session.
      */
-    private void initSession() {
-        currentSession = GameSession.builder()
+    private GameSession initSession(Player player) {
+        GameSession session = sessionRegistry.register(GameSession.builder()
                 .gameId(UUID.randomUUID().toString())
-                .player1(playerInfo)
-                .build();
+                .player1(player)
+                .bitboard(new Board(geometry))
+                .moves(new ArrayList<>(geometry.cells()))
+                .build());
+        return started(session);
     }
 
     /**
-     * Initializes a new game session with an id from external move event.
+     * Builds a new game session with an id from external move event, without registering it.
      *
+     * @param player       The player of this node.
      * @param externalMove The external move event that triggered a new game session.
+     * @return The new game session.
      */
-    private void initSession(MoveEvent externalMove) {
-        currentSession = GameSession.builder()
+    private GameSession buildSession(Player player, MoveEvent externalMove) {
+        return GameSession.builder()
                 .gameId(externalMove.getGameId())
-                .player1(playerInfo)
+                .player1(player)
                 .player2(externalMove.getPlayer())
+                .bitboard(new Board(geometry))
+                .moves(new ArrayList<>(geometry.cells()))
                 .build();
     }
 
+    /**
+     * Makes a game which has just been created the current one and lets the listeners know.
+     */
+    private GameSession started(GameSession session) {
+        currentSession = session;
+        for (GameListener listener : listeners)
+            listener.gameStarted(session);
+        return session;
+    }
+
     /**
      * Initializes a new game based on an external move event, starting with the player's figure.
      *
      * @param externalMove The external move event that triggered a new game.
+     * @return The new game session.
      */
-    public void initNewGame(MoveEvent externalMove) {
+    public GameSession initNewGame(MoveEvent externalMove) {
         log.info("Starting new game");
-        initPlayer(externalMove.getPlayer().getFigure());
-        initSession(externalMove);
-        EVENTS.clear();
+        if (externalMove.getGameId() == null)
+            return started(buildSession(initPlayer(externalMove.getPlayer().getFigure()), externalMove));
+        // The listeners only hear of the game once it's registered, and only from the call which created it
+        GameSession[] created = new GameSession[1];
+        GameSession session = sessionRegistry.getOrCreate(externalMove.getGameId(),
+                id -> created[0] = buildSession(initPlayer(externalMove.getPlayer().getFigure()), externalMove));
+        return session == created[0] ? started(session) : session;
     }
 
     /**
@@ -105,9 +206,8 @@ public class GameService {
     public void startNewGame(String ip, int port) {
         log.info("Starting new game");
         String hostUrl = String.format(WS_URL_PATTERN, ip, port);
-        initPlayer();
-        initSession();
-        EVENTS.clear();
+        initSession(initPlayer());
+        initClient();
         sessionHandler.disconnect();
         sessionHandler.updateHostUrl(hostUrl);
         stompClient.connect(hostUrl, sessionHandler);
@@ -115,12 +215,12 @@ public class GameService {
 
     /**
      * Starts a new game with default settings (random player figure and game session).
+     *
+     * @return The new game session.
      */
-    public void startNewGame() {
+    public GameSession startNewGame() {
         log.info("Starting new game");
-        initPlayer();
-        initSession();
-        EVENTS.clear();
+        return initSession(initPlayer());
     }
 
     /**
@@ -139,38 +239,122 @@ public class GameService {
      * @return The next move event.
      */
     public MoveEvent saveAndMakeMove(MoveEvent moveEvent) {
-        log.debug("Making move and sending message back");
-        try {
-            Thread.sleep(3000);
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
+        GameSession session = sessionRegistry.get(moveEvent.getGameId());
+        return saveAndMakeMove(session != null ? session : currentSession, moveEvent);
+    }
+
+    /**
+     * Saves the move event into the given game and makes a move there right away.
+     *
+     * @param session   The game to respond in. It differs from the game of the move event when that game has just ended.
+     * @param moveEvent The move event to save and respond to.
+     * @return The next move event.
+     */
+    public MoveEvent saveAndMakeMove(GameSession session, MoveEvent moveEvent) {
+        // With three parameters the logger takes an array, which is only worth building when debug is on
+        if (log.isDebugEnabled())
+            log.debug("Player with figure {} made new move to x = {} y = {}", moveEvent.getPlayer().getFigure(),
+                    moveEvent.getX(), moveEvent.getY());
+        if (session.getGameId() != null && session.getGameId().equals(moveEvent.getGameId())) {
+            validateMove(session, moveEvent);
+            recordMove(session, moveEvent);
+            // A move which ends the game is answered with the first move of the next game
+            session = checkWinnerAndStartAgain(session);
         }
-        log.info(String.format("Player with figure %s made new move to x = %s y = %s ", moveEvent.getPlayer().getFigure().name(),
-                moveEvent.getX(), moveEvent.getY()));
-        EVENTS.push(moveEvent);
-        updateSession(moveEvent);
 
-        return makeMove();
+        return makeMove(session);
     }
 
     /**
-     * Makes a move and returns the next move event.
+     * Makes a move in the game started by this node and returns the next move event.
      *
      * @return The next move event.
      */
     public MoveEvent makeMove() {
-        try {
-            Thread.sleep(3000);
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        }
-        MoveEvent nextMove = getNextMove();
-        log.info(String.format("Player with figure %s made new move to x = %s y = %s ", playerInfo.getFigure().name(),
-                nextMove.getX(), nextMove.getY()));
-        EVENTS.push(nextMove);
+        return makeMove(currentSession);
+    }
+
+    /**
+     * Saves the move event into the given game, makes a move there, and hands the move over to be
+     * sent back once the pacing delay has passed. The calling thread never waits for the delay.
+     *
+     * @param session   The game to respond in. It differs from the game of the move event when that game has just ended.
+     * @param moveEvent The move event to save and respond to.
+     * @param reply     Sends the next move event to the opponent.
+     */
+    public void saveAndMakeMove(GameSession session, MoveEvent moveEvent, Consumer<MoveEvent> reply) {
+        MoveEvent nextMove = saveAndMakeMove(session, moveEvent);
+        pacer.pace(() -> reply.accept(nextMove));
+    }
+
+    /**
+     * Makes a move in the given game and hands it over to be sent once the pacing delay has passed.
+     *
+     * @param session The game to make a move in.
+     * @param reply   Sends the next move event to the opponent.
+     */
+    public void makeMove(GameSession session, Consumer<MoveEvent> reply) {
+        MoveEvent nextMove = makeMove(session);
+        pacer.pace(() -> reply.accept(nextMove));
+    }
+
+    /**
+     * Makes a move in the given game right away and returns the next move event. If the move ends
+     * the game, the game is ended here and the opponent starts the next one once it gets the move.
+     *
+     * @param session The game to make a move in.
+     * @return The next move event.
+     */
+    public MoveEvent makeMove(GameSession session) {
+        long start = System.nanoTime();
+        MoveEvent nextMove = getNextMove(session);
+        metrics.recordNextMove(System.nanoTime() - start);
+        if (log.isDebugEnabled())
+            log.debug("Player with figure {} made new move to x = {} y = {}", session.getPlayer1().getFigure(),
+                    nextMove.getX(), nextMove.getY());
+        recordMove(session, nextMove);
+        if (isOver(session))
+            endGame(session);
         return nextMove;
     }
 
+    /**
+     * Records a move of the opponent in the given game, without any pacing. If the move ends the game, the
+     * game is ended here too, like after a move of this node.
+     *
+     * @param session   The game the move belongs to.
+     * @param moveEvent The move of the opponent.
+     */
+    public void acceptMove(GameSession session, MoveEvent moveEvent) {
+        validateMove(session, moveEvent);
+        recordMove(session, moveEvent);
+        if (isOver(session))
+            endGame(session);
+    }
+
+    /**
+     * Answers a peer which has reconnected and wants to continue a game, with the moves it has missed.
+     *
+     * @param request The game and the number of its moves the peer has recorded.
+     * @return Whether the game is still played here, and the moves recorded here after the peer's last one.
+     */
+    public ResumeResponse resume(ResumeRequest request) {
+        GameSession session = sessionRegistry.get(request.getGameId());
+        metrics.resumeRequested(session != null);
+        if (session == null)
+            return ResumeResponse.builder().gameId(request.getGameId()).missedMoves(List.of()).build();
+        List<MoveEvent> moves = session.getMoves();
+        int sequence = moves.size();
+        int seen = (int) Math.max(0, Math.min(request.getSequence(), sequence));
+        log.info(String.format("Resuming game %s at move %s, the peer has %s", session.getGameId(), sequence, request.getSequence()));
+        return ResumeResponse.builder()
+                .gameId(session.getGameId())
+                .found(true)
+                .sequence(sequence)
+                .missedMoves(new ArrayList<>(moves.subList(seen, sequence)))
+                .build();
+    }
+
     /**
      * Retrieves the current game state (session) information.
      *
@@ -186,111 +370,200 @@ public class GameService {
      * @return True if the game ended and a new game has started, false otherwise.
      */
     public boolean checkWinnerAndStartAgain() {
-        Integer winner = checkWinner();
-        boolean gameEnded = false;
+        GameSession session = currentSession;
+        return checkWinnerAndStartAgain(session) != session;
+    }
 
-        if (winner != null) {
-            log.info(String.format("Player with figure %s is won !", Figure.valueOf(winner).name()));
-            startNewGame();
-            gameEnded = true;
+    /**
+     * Checks whether the given game is over, ends that game and starts a new one if it is.
+     *
+     * @param session The game session to check.
+     * @return The game to continue playing in: either the given one or the newly started one.
+     */
+    public GameSession checkWinnerAndStartAgain(GameSession session) {
+        if (session.isEnded() || isOver(session)) {
+            endGame(session);
+            return startNewGame();
         }
-        return gameEnded;
+        return session;
     }
 
     /**
-     * Checks for a winner in the current game session.
+     * @param session The game session to check.
+     * @return True if a player has won the game, there are no free cells left or, when games end once
+     * decided, neither player can complete a line anymore.
+     */
+    public boolean isOver(GameSession session) {
+        Board board = session.getBitboard();
+        return board.winner() != null || board.isFull() || endWhenDecided && board.isDeadDraw();
+    }
+
+    /**
+     * Ends a game nobody plays anymore without a result. The listeners see the game end as evicted, which
+     * is how the opponent learns that the game is gone.
      *
-     * @return The figure of the winner (1 for X, 0 for O), or null if there's no winner yet.
+     * @param session The game to evict.
+     * @return False if the game has ended meanwhile or isn't the one registered under its id anymore.
      */
-    public Integer checkWinner() {
-        Integer[][] board = currentSession.getBoard();
-        Integer result = null;
+    public boolean evict(GameSession session) {
+        if (session.isEnded() || sessionRegistry.get(session.getGameId()) != session)
+            return false;
+        session.setEvicted(true);
+        endGame(session);
+        return true;
+    }
 
-        // Check rows
-        for (int row = 0; row < 3; row++) {
-            if (board[row][0] != null && board[row][0] == board[row][1] && board[row][0] == board[row][2]) {
-                return board[row][0];
-            }
-        }
+    /**
+     * Lets go of a game which another node plays from now on. The listeners see the game leave without ending.
+     *
+     * @param gameId The game id.
+     * @return The session of the game, or null if this node doesn't hold it.
+     */
+    public GameSession release(String gameId) {
+        GameSession session = sessionRegistry.remove(gameId);
+        if (session != null)
+            for (GameListener listener : listeners)
+                listener.gameReleased(session);
+        return session;
+    }
 
-        // Check columns
-        for (int col = 0; col < 3; col++) {
-            if (board[0][col] != null && board[0][col] == board[1][col] && board[0][col] == board[2][col]) {
-                return board[0][col];
-            }
-        }
+    /**
+     * Takes over a game which another node has played so far. A game started here under the same id meanwhile
+     * is replaced, and the listeners see it released.
+     *
+     * @param session The game with the moves played so far.
+     * @return The replaced session, or null if there was none.
+     * @throws IllegalStateException if the registry is full.
+     */
+    public GameSession adopt(GameSession session) {
+        GameSession replaced = sessionRegistry.put(session);
+        if (replaced == session)
+            return null;
+        if (replaced != null)
+            for (GameListener listener : listeners)
+                listener.gameReleased(replaced);
+        for (GameListener listener : listeners)
+            listener.gameAdopted(session);
+        return replaced;
+    }
 
-        // Check diagonals
-        if (board[0][0] != null && board[0][0] == board[1][1] && board[0][0] == board[2][2]) {
-            return board[0][0];
-        }
+    /**
+     * Marks the game as ended and releases it. Ending a game which has already ended does nothing.
+     */
+    private void endGame(GameSession session) {
+        if (session.isEnded())
+            return;
+        Figure winner = session.getBitboard().winner();
+        if (log.isInfoEnabled() && !session.isEvicted())
+            log.info(winner != null ? String.format("Player with figure %s is won !", winner.name())
+                    : String.format("Game %s is a draw", session.getGameId()));
+        session.setEnded(true);
+        sessionRegistry.remove(session.getGameId());
+        for (GameListener listener : listeners)
+            listener.gameEnded(session);
+    }
 
-        if (board[0][2] != null && board[0][2] == board[1][1] && board[0][2] == board[2][0]) {
-            return board[0][2];
-        }
+    /**
+     * Checks for a winner in the current game session.
+     *
+     * @return The figure of the winner (1 for X, 0 for O), or null if there's no winner yet.
+     */
+    public Integer checkWinner() {
+        return checkWinner(currentSession);
+    }
 
-        return result;  // If no winner yet, return null to indicate the game is ongoing or a tie.
+    /**
+     * Checks for a winner in the given game session.
+     *
+     * @param session The game session to check.
+     * @return The figure of the winner (1 for X, 0 for O), or null if there's no winner yet.
+     */
+    public Integer checkWinner(GameSession session) {
+        Figure winner = session.getBitboard().winner();
+        // If no winner yet, return null to indicate the game is ongoing or a tie.
+        return winner == null ? null : winner.value;
     }
 
     /**
-     * Gets the next move event, either a winning move or a blocking move, or a random move if none found.
+     * Gets the next move event for the cell chosen by {@link #nextCell(GameSession)}. The move is neither
+     * recorded nor applied to the board.
      *
+     * @param session The game to choose a move in.
      * @return The next move event.
      */
-    private MoveEvent getNextMove() {
-        Integer[][] board = currentSession.getBoard();
-        int figureValue = playerInfo.getFigure().value();
-        MoveEvent nextMove = MoveEvent.builder()
-                .gameId(currentSession.getGameId())
-                .player(playerInfo)
-                .build();
-
-        // Check for a winning move
-        if (checkField(nextMove, board, figureValue)) return nextMove;
-
-        // Check for a blocking move (preventing the opponent from winning)
-        int opponentSymbolValue = (figureValue == 1) ? 1 : 0;
-        if (checkField(nextMove, board, opponentSymbolValue)) return nextMove;
+    public MoveEvent getNextMove(GameSession session) {
+        int cell = nextCell(session);
+        int width = session.getBitboard().getGeometry().getWidth();
+        return new MoveEvent(session.getGameId(), session.getPlayer1(), cell % width, cell / width);
+    }
 
-        // If no winning or blocking moves, make a random move
-        while (true) {
-            int row = (int) (Math.random() * 3);
-            int col = (int) (Math.random() * 3);
-            if (board[row][col] == null) {
-                nextMove.setY(row);
-                nextMove.setX(col);
-                return nextMove;
+    /**
+     * Chooses the cell of the next move: the optimal move from the solver table, or, for a position the
+     * solver doesn't know, a winning move, a blocking move, or else the move found by the tree search
+     * if it's enabled and a random move otherwise. On boards larger than the classic one the winning or
+     * blocking cell is looked up in the position cache first. Apart from the tree search, choosing a move
+     * allocates nothing.
+     *
+     * @param session The game to choose a move in.
+     * @return The bit index of the cell to play.
+     * @throws IllegalStateException if there are no free cells left.
+     */
+    public int nextCell(GameSession session) {
+        Board board = session.getBitboard();
+        Figure figure = session.getPlayer1().getFigure();
+        Figure opponentFigure = Figure.getOppositeTo(figure);
+
+        // The book is trusted over any search, so it's up to the book to hold the winning and blocking moves
+        int cell = openingBook.lookup(board, figure);
+        if (cell < 0 && board.getGeometry().isClassic())
+            cell = solver.bestMove((int) board.bits(figure), (int) board.bits(opponentFigure));
+        if (cell < 0) {
+            cell = positionCache.lookup(board, figure);
+            if (cell == PositionCache.MISS) {
+                // Check for a winning move, then for a blocking move (preventing the opponent from winning)
+                cell = board.findWinningCell(figure);
+                if (cell < 0)
+                    cell = board.findWinningCell(opponentFigure);
+                positionCache.store(board, figure, cell);
             }
         }
+        if (cell < 0 && search != null)
+            cell = search.bestMove(board, figure);
+        if (cell >= 0)
+            return cell;
 
+        // If no winning or blocking moves, make a random move
+        int cells = board.getGeometry().cells();
+        if (board.isFull())
+            throw new IllegalStateException(String.format("There are no free cells left in game %s", session.getGameId()));
+        int skip = (int) (Math.random() * (cells - board.occupiedCells()));
+        for (cell = 0; cell < cells; cell++)
+            if (board.isEmpty(cell) && skip-- == 0)
+                return cell;
+        throw new IllegalStateException(String.format("Board of game %s has fewer free cells than it counts", session.getGameId()));
+    }
+
+    private static void setCell(MoveEvent moveEvent, Board board, int cell) {
+        int width = board.getGeometry().getWidth();
+        moveEvent.setY(cell / width);
+        moveEvent.setX(cell % width);
     }
 
 
     /**
-     * Checks if a specific move is a winning move for the given player figure.
+     * Checks if there's a winning move for the given player figure and puts it into the move event.
      *
-     * @param nextMove            The move event to check.
-     * @param board               The game board.
-     * @param symbolValue The opponent's figure value (1 for X, 0 for O).
-     * @return True if the move is a winning move, false otherwise.
-     */
-    public boolean checkField(MoveEvent nextMove, Integer[][] board, int symbolValue) {
-        for (int row = 0; row < 3; row++) {
-            for (int col = 0; col < 3; col++) {
-                if (board[row][col] == null) {
-                    // Simulate a move and check if it leads to a win
-                    board[row][col] = symbolValue;
-                    if (checkWinner() != null && checkWinner() == symbolValue) {
-                        nextMove.setY(row);
-                        nextMove.setX(col);
-                        return true;
-                    }
-                    // Undo the move
-                    board[row][col] = null;
-                }
-            }
-        }
-        return false;
+     * @param nextMove    The move event to fill in.
+     * @param board       The game board.
+     * @param symbolValue The figure value to look for a winning move for (1 for X, 0 for O).
+     * @return True if a winning move was found, false otherwise.
+     */
+    public boolean checkField(MoveEvent nextMove, Board board, int symbolValue) {
+        int cell = board.findWinningCell(Figure.valueOf(symbolValue));
+        if (cell < 0)
+            return false;
+        setCell(nextMove, board, cell);
+        return true;
     }
 
     /**
@@ -299,19 +572,57 @@ public class GameService {
      * @param moveEvent The move event to update the game session.
      */
     public void updateSession(MoveEvent moveEvent) {
-        if (currentSession.getGameId().equals(moveEvent.getGameId())) {
-            Integer[][] board = currentSession.getBoard();
-            board[moveEvent.getY()][moveEvent.getX()] = moveEvent.getPlayer().getFigure().value();
-        }
+        GameSession session = sessionRegistry.get(moveEvent.getGameId());
+        if (session != null)
+            updateSession(session, moveEvent);
+    }
+
+    /**
+     * Appends a move to the log of the game, applies it to the board and lets the listeners know.
+     */
+    private void recordMove(GameSession session, MoveEvent moveEvent) {
+        session.recordMove(moveEvent);
+        updateSession(session, moveEvent);
+        // Indexed, since an iterator per move is only optimized away while the listener list has a single type
+        for (int i = 0; i < listeners.size(); i++)
+            listeners.get(i).movePlayed(session, moveEvent);
+    }
+
+    private void updateSession(GameSession session, MoveEvent moveEvent) {
+        Board board = session.getBitboard();
+        board.set(board.getGeometry().cell(moveEvent.getX(), moveEvent.getY()), moveEvent.getPlayer().getFigure());
+    }
+
+    /**
+     * Checks that a move of the opponent can be played in the given game.
+     *
+     * @param session   The game the move belongs to.
+     * @param moveEvent The move of the opponent.
+     * @throws IllegalArgumentException if the move is outside of the board, takes an occupied cell or uses our figure.
+     */
+    public void validateMove(GameSession session, MoveEvent moveEvent) {
+        BoardGeometry geometry = session.getBitboard().getGeometry();
+        if (moveEvent.getX() == null || moveEvent.getY() == null || !geometry.contains(moveEvent.getX(), moveEvent.getY()))
+            throw new IllegalArgumentException(String.format("Move to x = %s y = %s is outside of the %s board of game %s",
+                    moveEvent.getX(), moveEvent.getY(), geometry, session.getGameId()));
+        if (moveEvent.getPlayer() == null || moveEvent.getPlayer().getFigure() == null
+                || moveEvent.getPlayer().getFigure() == session.getPlayer1().getFigure())
+            throw new IllegalArgumentException(String.format("Move of game %s must be made with the opponent's figure", session.getGameId()));
+        if (!session.getBitboard().isEmpty(geometry.cell(moveEvent.getX(), moveEvent.getY())))
+            throw new IllegalArgumentException(String.format("Cell x = %s y = %s of game %s is already taken",
+                    moveEvent.getX(), moveEvent.getY(), session.getGameId()));
     }
 
     /**
      * Initializes a new game session if needed based on an external move event.
      *
      * @param moveEvent The external move event.
+     * @return The session of the game the move event belongs to.
      */
-    public void initGameIfNeeded(MoveEvent moveEvent) {
-        if (currentSession == null || !currentSession.getGameId().equals(moveEvent.getGameId()))
-            initNewGame(moveEvent);
+    public GameSession initGameIfNeeded(MoveEvent moveEvent) {
+        GameSession session = sessionRegistry.get(moveEvent.getGameId());
+        if (session == null)
+            session = initNewGame(moveEvent);
+        return session;
     }
 }
@@ -0,0 +1,127 @@
+package com.scentbird.scentbird_tic_tac_toe.service;
+
+import com.scentbird.scentbird_tic_tac_toe.model.GameSession;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Holds every game session played by this node, keyed by game id.
+ * <p>
+ * Lookups never lock and updates only lock the hash bin of the affected game, so moves of
+ * different games progress in parallel. The number of sessions is capped to keep the memory
+ * footprint bounded.
+ */
+@Component
+public class GameSessionRegistry {
+    private final ConcurrentHashMap<String, GameSession> sessions;
+    private final AtomicInteger size = new AtomicInteger();
+    private final int maxSessions;
+
+    public GameSessionRegistry(@Value("${game.sessions.max:10000}") int maxSessions) {
+        this.maxSessions = maxSessions;
+        this.sessions = new ConcurrentHashMap<>(Math.min(maxSessions, 1 << 16), 0.75f,
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Gets the session of the given game.
+     *
+     * @param gameId The game id.
+     * @return The game session, or null if this node doesn't play such a game.
+     */
+    public GameSession get(String gameId) {
+        return gameId == null ? null : sessions.get(gameId);
+    }
+
+    /**
+     * Gets the session of the given game, creating and registering it if it doesn't exist yet.
+     *
+     * @param gameId  The game id.
+     * @param factory Creates the session of a game which is not registered yet. It runs while the hash bin
+     *                of the game is locked, so it should only build the session.
+     * @return The registered game session.
+     * @throws IllegalStateException if a new session is needed but the registry is full.
+     */
+    public GameSession getOrCreate(String gameId, Function<String, GameSession> factory) {
+        GameSession session = sessions.get(gameId);
+        if (session != null)
+            return session;
+        return sessions.computeIfAbsent(gameId, id -> {
+            if (size.incrementAndGet() > maxSessions) {
+                size.decrementAndGet();
+                throw new IllegalStateException(String.format("Can't start game %s, %s games are already in progress", id, maxSessions));
+            }
+            try {
+                return factory.apply(id);
+            } catch (RuntimeException e) {
+                size.decrementAndGet();
+                throw e;
+            }
+        });
+    }
+
+    /**
+     * Registers a freshly created game session.
+     *
+     * @param session The game session.
+     * @return The registered game session.
+     */
+    public GameSession register(GameSession session) {
+        return getOrCreate(session.getGameId(), id -> session);
+    }
+
+    /**
+     * Registers a session, replacing the session registered under the same game id, if any.
+     *
+     * @param session The game session.
+     * @return The replaced session, or null if there was none.
+     * @throws IllegalStateException if the game is new but the registry is full.
+     */
+    public GameSession put(GameSession session) {
+        GameSession[] replaced = new GameSession[1];
+        sessions.compute(session.getGameId(), (id, existing) -> {
+            if (existing == null && size.incrementAndGet() > maxSessions) {
+                size.decrementAndGet();
+                throw new IllegalStateException(String.format("Can't take over game %s, %s games are already in progress", id, maxSessions));
+            }
+            replaced[0] = existing;
+            return session;
+        });
+        return replaced[0];
+    }
+
+    /**
+     * Removes the session of the given game, releasing its board and move log.
+     *
+     * @param gameId The game id.
+     * @return The removed session, or null if there was no such game.
+     */
+    public GameSession remove(String gameId) {
+        if (gameId == null)
+            return null;
+        GameSession removed = sessions.remove(gameId);
+        if (removed != null)
+            size.decrementAndGet();
+        return removed;
+    }
+
+    /**
+     * @return The number of games in progress.
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * @return A read-only live view of the games in progress.
+     */
+    public Collection<GameSession> sessions() {
+        return Collections.unmodifiableCollection(sessions.values());
+    }
+}
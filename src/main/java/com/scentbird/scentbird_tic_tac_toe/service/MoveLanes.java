@@ -0,0 +1,110 @@
+package com.scentbird.scentbird_tic_tac_toe.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Processes the moves of every game on a lane of its own, so moves of one game never race.
+ * <p>
+ * A game id is hashed to one of a fixed number of single-threaded lanes. The moves of a game are
+ * processed strictly in the order they were handed over, without locking the game, while games on
+ * different lanes run in parallel. Every lane has a bounded queue, and a move which doesn't fit into
+ * it is rejected instead of being buffered, so an overloaded node answers right away rather than
+ * falling further and further behind.
+ */
+@Slf4j
+@Component
+public class MoveLanes {
+    private final ThreadPoolExecutor[] lanes;
+
+    /**
+     * @param count         The number of lanes, or 0 for one lane per processor.
+     * @param queueCapacity How many moves may wait on a single lane.
+     */
+    public MoveLanes(@Value("${game.lanes.count:0}") int count,
+                     @Value("${game.lanes.queue-capacity:1024}") int queueCapacity) {
+        lanes = new ThreadPoolExecutor[count > 0 ? count : Runtime.getRuntime().availableProcessors()];
+        for (int i = 0; i < lanes.length; i++) {
+            CustomizableThreadFactory factory = new CustomizableThreadFactory(String.format("move-lane-%s-", i));
+            factory.setDaemon(true);
+            lanes[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), factory, new ThreadPoolExecutor.AbortPolicy());
+        }
+    }
+
+    /**
+     * Hands a move over to the lane of its game.
+     *
+     * @param gameId The game the move belongs to.
+     * @param task   Processes the move.
+     * @throws RejectedExecutionException if the lane of the game is full or the lanes are shut down.
+     */
+    public void execute(String gameId, Runnable task) {
+        ThreadPoolExecutor lane = lanes[lane(gameId)];
+        try {
+            lane.execute(() -> {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    log.error(String.format("Couldn't process a move of game %s. Error message : %s", gameId, e.getMessage()), e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            throw new RejectedExecutionException(String.format("Game %s is overloaded, %s moves are waiting",
+                    gameId, lane.getQueue().size()), e);
+        }
+    }
+
+    /**
+     * Gets the lane of a game. The bits of the hash are spread first, since the low bits of a string hash
+     * alone are poorly distributed.
+     *
+     * @param gameId The game id.
+     * @return The index of the lane.
+     */
+    public int lane(String gameId) {
+        int hash = gameId == null ? 0 : gameId.hashCode();
+        return Math.floorMod(hash ^ hash >>> 16, lanes.length);
+    }
+
+    /**
+     * @return The number of lanes.
+     */
+    public int size() {
+        return lanes.length;
+    }
+
+    /**
+     * @return The number of moves waiting on all lanes.
+     */
+    public int queued() {
+        int queued = 0;
+        for (ThreadPoolExecutor lane : lanes)
+            queued += lane.getQueue().size();
+        return queued;
+    }
+
+    /**
+     * @return The number of lanes processing a move right now.
+     */
+    public int active() {
+        int active = 0;
+        for (ThreadPoolExecutor lane : lanes)
+            active += lane.getActiveCount();
+        return active;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ThreadPoolExecutor lane : lanes)
+            lane.shutdown();
+    }
+}
@@ -0,0 +1,51 @@
+package com.scentbird.scentbird_tic_tac_toe.service;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Delays sending a move so that a game between two bots can be followed by a human.
+ * <p>
+ * Moves are handed over to a timer instead of sleeping, so the STOMP channel threads which
+ * processed the incoming move are free again immediately. With a zero delay the move is sent
+ * right away on the calling thread.
+ */
+@Slf4j
+@Component
+public class MovePacer {
+    private final TaskScheduler scheduler;
+    @Getter
+    private final Duration delay;
+
+    public MovePacer(@Qualifier("movePacingScheduler") TaskScheduler scheduler,
+                     @Value("${game.pacing.delay:3s}") Duration delay) {
+        this.scheduler = scheduler;
+        this.delay = delay;
+    }
+
+    /**
+     * Runs the sending of a move once the pacing delay has passed.
+     *
+     * @param send Sends the move.
+     */
+    public void pace(Runnable send) {
+        if (delay.isZero()) {
+            send.run();
+        } else {
+            scheduler.schedule(() -> {
+                try {
+                    send.run();
+                } catch (Exception e) {
+                    log.error("Couldn't send the move. Error message : " + e.getMessage(), e);
+                }
+            }, Instant.now().plus(delay));
+        }
+    }
+}
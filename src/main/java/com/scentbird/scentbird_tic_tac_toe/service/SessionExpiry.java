@@ -0,0 +1,184 @@
+package com.scentbird.scentbird_tic_tac_toe.service;
+
+import com.scentbird.scentbird_tic_tac_toe.model.GameSession;
+import com.scentbird.scentbird_tic_tac_toe.model.MoveEvent;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.LongSupplier;
+
+/**
+ * Evicts the games nobody plays anymore: a game is evicted once no move has been played for
+ * {@code game.sessions.idle-timeout}, and in any case once it has lasted {@code game.sessions.max-lifetime}.
+ * Without it a game whose peer went away mid-game would stay in the registry forever. A zero duration turns
+ * the limit off.
+ * <p>
+ * Every game gets a timeout on a {@link TimerWheel} when it starts, which a move postpones without locking
+ * or allocating anything, and which is cancelled when the game ends. The wheel ticks every
+ * {@code game.sessions.expiry-tick}; a game whose timeout fires is evicted on its lane, after checking once
+ * more that no move has come in meanwhile, and {@link GameService#evict} lets the listeners, and through
+ * them the opponent, know.
+ */
+@Slf4j
+@Component
+public class SessionExpiry implements GameListener {
+    private static final int SLOTS = 512;
+
+    private final TimerWheel<Lease> wheel;
+    private final ConcurrentHashMap<String, TimerWheel.Timeout<Lease>> timeouts = new ConcurrentHashMap<>();
+    private final long idleNanos;
+    private final long lifetimeNanos;
+    private final Duration tick;
+    private final LongSupplier clock;
+    private final TaskScheduler scheduler;
+    @Setter
+    @Lazy
+    @Autowired
+    GameService gameService;
+    @Setter
+    @Autowired
+    MoveLanes lanes;
+    @Setter
+    @Autowired
+    GameSessionRegistry sessionRegistry;
+
+    @Autowired
+    public SessionExpiry(@Qualifier("sessionExpiryScheduler") TaskScheduler scheduler,
+                         @Value("${game.sessions.idle-timeout:5m}") Duration idleTimeout,
+                         @Value("${game.sessions.max-lifetime:1h}") Duration maxLifetime,
+                         @Value("${game.sessions.expiry-tick:1s}") Duration tick) {
+        this(idleTimeout, maxLifetime, tick, System::nanoTime, scheduler);
+    }
+
+    /**
+     * @param clock     The time in nanoseconds, which {@link #expire()} reads.
+     * @param scheduler Runs {@link #expire()} every tick once the application is ready, or null to leave it to the caller.
+     */
+    public SessionExpiry(Duration idleTimeout, Duration maxLifetime, Duration tick, LongSupplier clock, TaskScheduler scheduler) {
+        this.idleNanos = idleTimeout.toNanos();
+        this.lifetimeNanos = maxLifetime.toNanos();
+        this.tick = tick;
+        this.clock = clock;
+        this.scheduler = scheduler;
+        this.wheel = new TimerWheel<>(tick, SLOTS, clock.getAsLong());
+    }
+
+    /**
+     * Starts ticking, and gives the games recovered before the application was ready their timeouts.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!isEnabled())
+            return;
+        for (GameSession session : sessionRegistry.sessions())
+            gameStarted(session);
+        if (scheduler != null)
+            scheduler.scheduleAtFixedRate(this::expire, tick);
+    }
+
+    @Override
+    public void gameStarted(GameSession session) {
+        if (!isEnabled() || session.getGameId() == null)
+            return;
+        long now = clock.getAsLong();
+        timeouts.computeIfAbsent(session.getGameId(), id -> wheel.arm(new Lease(session, now), deadline(now, now)));
+    }
+
+    @Override
+    public void movePlayed(GameSession session, MoveEvent moveEvent) {
+        TimerWheel.Timeout<Lease> timeout = session.getGameId() == null ? null : timeouts.get(session.getGameId());
+        if (timeout != null && timeout.item().session() == session)
+            wheel.postpone(timeout, deadline(timeout.item().startedAt(), clock.getAsLong()));
+    }
+
+    @Override
+    public void gameEnded(GameSession session) {
+        TimerWheel.Timeout<Lease> timeout = session.getGameId() == null ? null : timeouts.get(session.getGameId());
+        if (timeout != null && timeout.item().session() == session && timeouts.remove(session.getGameId(), timeout))
+            wheel.cancel(timeout);
+    }
+
+    /**
+     * A game which another node plays from now on is that node's to evict.
+     */
+    @Override
+    public void gameReleased(GameSession session) {
+        gameEnded(session);
+    }
+
+    /**
+     * A game taken over from another node gets a timeout as if it had just started, since the time it has
+     * been played elsewhere isn't known here.
+     */
+    @Override
+    public void gameAdopted(GameSession session) {
+        gameStarted(session);
+    }
+
+    /**
+     * Walks the wheel up to now and hands every game whose timeout has fired over to its lane for eviction.
+     */
+    public void expire() {
+        wheel.advance(clock.getAsLong(), timeout -> {
+            GameSession session = timeout.item().session();
+            try {
+                lanes.execute(session.getGameId(), () -> evictIfExpired(timeout));
+            } catch (RejectedExecutionException e) {
+                // The lane is full, the game is tried again on the next tick
+                wheel.rearm(timeout);
+            }
+        });
+    }
+
+    /**
+     * @return The number of games with a timeout.
+     */
+    public int size() {
+        return timeouts.size();
+    }
+
+    private void evictIfExpired(TimerWheel.Timeout<Lease> timeout) {
+        GameSession session = timeout.item().session();
+        if (timeouts.get(session.getGameId()) != timeout)
+            return;
+        long now = clock.getAsLong();
+        // A move may have come in between the tick and now
+        if (timeout.deadline() > now) {
+            wheel.rearm(timeout);
+            return;
+        }
+        boolean tooOld = lifetimeNanos > 0 && now - timeout.item().startedAt() >= lifetimeNanos;
+        if (gameService.evict(session))
+            log.info(String.format("Evicted game %s, %s", session.getGameId(),
+                    tooOld ? "it has lasted too long" : "nobody has played it for too long"));
+        // A game which has left the registry without ending only needs its timeout dropped
+        timeouts.remove(session.getGameId(), timeout);
+    }
+
+    /**
+     * @return The time the game is evicted at, unless another move is played before.
+     */
+    private long deadline(long startedAt, long lastMove) {
+        long idle = idleNanos > 0 ? lastMove + idleNanos : Long.MAX_VALUE;
+        long lifetime = lifetimeNanos > 0 ? startedAt + lifetimeNanos : Long.MAX_VALUE;
+        return Math.min(idle, lifetime);
+    }
+
+    private boolean isEnabled() {
+        return idleNanos > 0 || lifetimeNanos > 0;
+    }
+
+    private record Lease(GameSession session, long startedAt) {
+    }
+}
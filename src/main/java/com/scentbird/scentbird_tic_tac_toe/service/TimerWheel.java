@@ -0,0 +1,181 @@
+package com.scentbird.scentbird_tic_tac_toe.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A hashed timer wheel: a ring of slots, each holding a doubly linked list of the timeouts which fall due
+ * on one of its ticks. A timeout lands in the slot of its tick and carries the number of full turns of the
+ * wheel still to wait, so a wheel of a few hundred slots holds deadlines of any length.
+ * <p>
+ * Arming and cancelling a timeout link or unlink a single node, whatever the number of timeouts. Postponing
+ * a timeout, which happens far more often, only writes its new deadline: the wheel notices it when the
+ * timeout comes up in its old slot and moves it further on then. Only {@link #advance} walks a slot, and it
+ * only walks the slot of the tick passed.
+ *
+ * @param <T> The items the timeouts belong to.
+ */
+public final class TimerWheel<T> {
+    private final Timeout<T>[] slots;
+    private final int mask;
+    private final long tickNanos;
+    private final long origin;
+    /**
+     * The tick to walk next.
+     */
+    private long tick;
+    private int size;
+
+    /**
+     * @param tick   The time between two ticks, which is how late a timeout may fire.
+     * @param slots  The number of slots, rounded up to a power of two.
+     * @param origin The time of the first tick in nanoseconds, on the clock deadlines are given in.
+     */
+    @SuppressWarnings("unchecked")
+    public TimerWheel(Duration tick, int slots, long origin) {
+        if (tick.isNegative() || tick.isZero())
+            throw new IllegalArgumentException(String.format("The tick of a timer wheel must be positive, not %s", tick));
+        this.slots = new Timeout[Integer.highestOneBit(Math.max(1, slots - 1)) << 1];
+        this.mask = this.slots.length - 1;
+        this.tickNanos = tick.toNanos();
+        this.origin = origin;
+    }
+
+    /**
+     * Arms a timeout for an item.
+     *
+     * @param item     The item.
+     * @param deadline The time in nanoseconds after which the timeout fires.
+     * @return The timeout, which is postponed or cancelled through this wheel.
+     */
+    public synchronized Timeout<T> arm(T item, long deadline) {
+        Timeout<T> timeout = new Timeout<>(item, deadline);
+        link(timeout);
+        return timeout;
+    }
+
+    /**
+     * Moves the deadline of a timeout further on, without locking the wheel.
+     *
+     * @param timeout  The timeout.
+     * @param deadline The new deadline, which must not be earlier than the current one.
+     */
+    public void postpone(Timeout<T> timeout, long deadline) {
+        timeout.deadline = deadline;
+    }
+
+    /**
+     * Puts a timeout which has fired back onto the wheel, at its current deadline.
+     */
+    public synchronized void rearm(Timeout<T> timeout) {
+        if (timeout.wheelSlot < 0 && !timeout.cancelled)
+            link(timeout);
+    }
+
+    /**
+     * Takes a timeout off the wheel for good. Cancelling a timeout twice, or one which has fired, does nothing.
+     */
+    public synchronized void cancel(Timeout<T> timeout) {
+        timeout.cancelled = true;
+        if (timeout.wheelSlot >= 0)
+            unlink(timeout);
+    }
+
+    /**
+     * Walks the ticks up to the given time and fires the timeouts whose deadline has passed. A timeout which
+     * fires is taken off the wheel, and the action runs once the wheel is unlocked, so it may arm, re-arm or
+     * cancel timeouts.
+     *
+     * @param now    The current time in nanoseconds.
+     * @param action Gets every timeout which fires.
+     */
+    public void advance(long now, Consumer<Timeout<T>> action) {
+        List<Timeout<T>> fired = null;
+        synchronized (this) {
+            for (; origin + tick * tickNanos <= now; tick++) {
+                long tickTime = origin + tick * tickNanos;
+                Timeout<T> timeout = slots[(int) (tick & mask)];
+                while (timeout != null) {
+                    Timeout<T> next = timeout.next;
+                    if (timeout.rounds > 0) {
+                        timeout.rounds--;
+                    } else if (timeout.deadline > tickTime) {
+                        // Postponed since it was linked
+                        unlink(timeout);
+                        link(timeout);
+                    } else {
+                        unlink(timeout);
+                        if (fired == null)
+                            fired = new ArrayList<>();
+                        fired.add(timeout);
+                    }
+                    timeout = next;
+                }
+            }
+        }
+        if (fired != null)
+            fired.forEach(action);
+    }
+
+    /**
+     * @return The number of timeouts on the wheel.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    private void link(Timeout<T> timeout) {
+        // The first tick whose time is at or after the deadline, and never a tick which has been walked already
+        long due = Math.max(tick, Math.floorDiv(timeout.deadline - origin + tickNanos - 1, tickNanos));
+        int slot = (int) (due & mask);
+        timeout.rounds = (due - tick) / slots.length;
+        timeout.wheelSlot = slot;
+        timeout.previous = null;
+        timeout.next = slots[slot];
+        if (timeout.next != null)
+            timeout.next.previous = timeout;
+        slots[slot] = timeout;
+        size++;
+    }
+
+    private void unlink(Timeout<T> timeout) {
+        if (timeout.previous != null)
+            timeout.previous.next = timeout.next;
+        else
+            slots[timeout.wheelSlot] = timeout.next;
+        if (timeout.next != null)
+            timeout.next.previous = timeout.previous;
+        timeout.previous = null;
+        timeout.next = null;
+        timeout.wheelSlot = -1;
+        size--;
+    }
+
+    /**
+     * The timeout of an item on a {@link TimerWheel}.
+     */
+    public static final class Timeout<T> {
+        private final T item;
+        private volatile long deadline;
+        private boolean cancelled;
+        private int wheelSlot = -1;
+        private long rounds;
+        private Timeout<T> previous;
+        private Timeout<T> next;
+
+        private Timeout(T item, long deadline) {
+            this.item = item;
+            this.deadline = deadline;
+        }
+
+        public T item() {
+            return item;
+        }
+
+        public long deadline() {
+            return deadline;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.scentbird.scentbird_tic_tac_toe;
+
+import com.scentbird.scentbird_tic_tac_toe.engine.BatchEvaluator;
+import com.scentbird.scentbird_tic_tac_toe.engine.Board;
+import com.scentbird.scentbird_tic_tac_toe.engine.PerfectPlaySolver;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the answers of the batch evaluator against the solver and reports how the number of positions per
+ * second depends on the batch size and the number of threads, and how much faster than a single thread it is.
+ */
+@Slf4j
+class BatchEvaluatorTest {
+    private static final PerfectPlaySolver SOLVER = new PerfectPlaySolver();
+    private static final int MEASURED_POSITIONS = 1 << 22;
+
+    @Test
+    void answersEveryReachablePositionLikeTheSolver() {
+        int[] positions = reachablePositions();
+        byte[] results = new byte[positions.length];
+        byte cornerAnswer;
+        try (BatchEvaluator evaluator = new BatchEvaluator(SOLVER, 0)) {
+            evaluator.evaluate(positions, positions.length, results);
+            cornerAnswer = evaluator.evaluate(BatchEvaluator.position(0, 1));
+        }
+
+        assertEquals(SOLVER.getReachablePositions(), positions.length);
+        for (int i = 0; i < positions.length; i++) {
+            int mine = positions[i] & Board.FULL;
+            int theirs = positions[i] >>> Board.CELLS;
+            int cell = results[i] & BatchEvaluator.NO_CELL;
+            assertEquals(SOLVER.outcome(mine, theirs), results[i] >>> 4);
+            assertEquals(SOLVER.bestMove(mine, theirs), cell == BatchEvaluator.NO_CELL ? -1 : cell);
+            if (Board.isWinning(theirs))
+                assertEquals(PerfectPlaySolver.LOSS << 4 | BatchEvaluator.NO_CELL, results[i]);
+        }
+        // The side which moves first can't lose, and the best answer to a corner is the center
+        assertEquals(PerfectPlaySolver.DRAW, results[0] >>> 4);
+        assertEquals(PerfectPlaySolver.DRAW << 4 | 4, cornerAnswer);
+    }
+
+    @Test
+    void answersWordsWhichArentReachablePositionsAsUnknown() {
+        try (BatchEvaluator evaluator = new BatchEvaluator(SOLVER, 1)) {
+            // Overlapping cells, bits beyond the board, and a side to move which is two figures ahead
+            assertEquals(BatchEvaluator.UNKNOWN, evaluator.evaluate(BatchEvaluator.position(0b1, 0b1)));
+            assertEquals(BatchEvaluator.UNKNOWN, evaluator.evaluate(1 << 18));
+            assertEquals(BatchEvaluator.UNKNOWN, evaluator.evaluate(-1));
+            assertEquals(BatchEvaluator.UNKNOWN, evaluator.evaluate(BatchEvaluator.position(0b11, 0)));
+        }
+    }
+
+    @Test
+    void streamsAnswersBatchByBatch() throws IOException {
+        int[] positions = reachablePositions();
+        ByteBuffer input = ByteBuffer.allocate(positions.length * BatchEvaluator.POSITION_BYTES);
+        input.asIntBuffer().put(positions);
+        byte[] expected = new byte[positions.length];
+        List<Integer> flushed = new ArrayList<>();
+        ByteArrayOutputStream out = new ByteArrayOutputStream() {
+            @Override
+            public void flush() {
+                flushed.add(size());
+            }
+        };
+
+        try (BatchEvaluator evaluator = new BatchEvaluator(SOLVER, 2)) {
+            evaluator.evaluate(positions, positions.length, expected);
+            assertEquals(positions.length, evaluator.evaluate(new ByteArrayInputStream(input.array()), out, 1000));
+
+            assertArrayEquals(expected, out.toByteArray());
+            assertEquals(1000, flushed.get(0));
+            assertEquals(positions.length / 1000 + 1, flushed.size());
+
+            // A truncated word fails the request, but only after the answers to the words before it
+            ByteArrayOutputStream truncated = new ByteArrayOutputStream();
+            byte[] partial = Arrays.copyOf(input.array(), 10 * BatchEvaluator.POSITION_BYTES + 3);
+            assertThrows(EOFException.class, () -> evaluator.evaluate(new ByteArrayInputStream(partial), truncated, 4));
+            assertArrayEquals(Arrays.copyOf(expected, 10), truncated.toByteArray());
+        }
+    }
+
+    @Test
+    void splitsTheDefaultBatchForEveryThread() {
+        try (BatchEvaluator evaluator = new BatchEvaluator(SOLVER, 4)) {
+            // The default batch of a request gets four tasks per thread
+            assertEquals(4096 / 16, evaluator.leafSize(4096));
+            assertEquals((1 << 20) / 16, evaluator.leafSize(1 << 20));
+            // Small batches aren't split into tasks which cost more than they save
+            assertEquals(256, evaluator.leafSize(1000));
+        }
+        try (BatchEvaluator evaluator = new BatchEvaluator(SOLVER, 1)) {
+            assertEquals(4096, evaluator.leafSize(4096));
+        }
+    }
+
+    @Test
+    void positionsPerSecondByBatchSizeAndThreads() throws IOException {
+        int[] reachable = reachablePositions();
+        ByteBuffer input = ByteBuffer.allocate(MEASURED_POSITIONS * BatchEvaluator.POSITION_BYTES);
+        for (int i = 0; i < MEASURED_POSITIONS; i++)
+            input.putInt(reachable[i % reachable.length]);
+        int cores = Runtime.getRuntime().availableProcessors();
+        List<Integer> threadCounts = new ArrayList<>();
+        for (int threads = 1; threads < cores; threads *= 2)
+            threadCounts.add(threads);
+        threadCounts.add(cores);
+
+        Map<Integer, Double> singleThreadRates = new HashMap<>();
+        for (int threads : threadCounts) {
+            try (BatchEvaluator evaluator = new BatchEvaluator(SOLVER, threads)) {
+                // Warm up the JIT and the workers of the pool so the first measured run isn't penalized
+                evaluator.evaluate(new ByteArrayInputStream(input.array()), OutputStream.nullOutputStream(), 1 << 16);
+                for (int batchSize = 1 << 8; batchSize <= 1 << 20; batchSize <<= 4) {
+                    long start = System.nanoTime();
+                    long evaluated = evaluator.evaluate(new ByteArrayInputStream(input.array()), OutputStream.nullOutputStream(), batchSize);
+                    double seconds = (System.nanoTime() - start) / 1e9;
+                    double rate = evaluated / seconds;
+                    singleThreadRates.putIfAbsent(batchSize, rate);
+                    log.info(String.format("%d thread(s) of %d core(s), batches of %d in tasks of %d: %d positions in %.3f s, %.0f positions/sec, %.2fx one thread",
+                            threads, cores, batchSize, evaluator.leafSize(batchSize), evaluated, seconds, rate,
+                            rate / singleThreadRates.get(batchSize)));
+
+                    assertEquals(MEASURED_POSITIONS, evaluated);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The words of every position reachable from the empty board, the empty board first.
+     */
+    private static int[] reachablePositions() {
+        Set<Integer> positions = new HashSet<>();
+        List<Integer> ordered = new ArrayList<>();
+        collect(0, 0, positions, ordered);
+        return ordered.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static void collect(int mine, int theirs, Set<Integer> positions, List<Integer> ordered) {
+        if (!positions.add(BatchEvaluator.position(mine, theirs)))
+            return;
+        ordered.add(BatchEvaluator.position(mine, theirs));
+        if (Board.isWinning(theirs))
+            return;
+        for (int cell = 0; cell < Board.CELLS; cell++)
+            if (((mine | theirs) & 1 << cell) == 0)
+                collect(theirs, mine | 1 << cell, positions, ordered);
+    }
+}
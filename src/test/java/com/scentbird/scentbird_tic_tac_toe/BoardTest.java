@@ -0,0 +1,190 @@
+package com.scentbird.scentbird_tic_tac_toe;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scentbird.scentbird_tic_tac_toe.engine.Board;
+import com.scentbird.scentbird_tic_tac_toe.engine.BoardGeometry;
+import com.scentbird.scentbird_tic_tac_toe.model.Figure;
+import com.scentbird.scentbird_tic_tac_toe.model.GameSession;
+import com.scentbird.scentbird_tic_tac_toe.model.Player;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoardTest {
+
+    @Test
+    void winningMasksMatchLineScan() {
+        for (int bits = 0; bits <= Board.FULL; bits++) {
+            Integer[][] rows = new Integer[3][3];
+            for (int cell = 0; cell < Board.CELLS; cell++)
+                if ((bits & (1 << cell)) != 0)
+                    rows[cell / 3][cell % 3] = 1;
+
+            assertEquals(hasLine(rows), Board.isWinning(bits), "mask " + Integer.toBinaryString(bits));
+        }
+    }
+
+    @Test
+    void findsWinningCell() {
+        Board board = new Board();
+        board.set(Board.cell(0, 0), Figure.O);
+        board.set(Board.cell(1, 1), Figure.O);
+        board.set(Board.cell(2, 0), Figure.X);
+
+        assertEquals(Board.cell(2, 2), board.findWinningCell(Figure.O));
+        assertEquals(-1, board.findWinningCell(Figure.X));
+        assertNull(board.winner());
+
+        board.set(Board.cell(2, 2), Figure.O);
+        assertEquals(Figure.O, board.winner());
+    }
+
+    @Test
+    void sessionKeepsBoardJsonShape() throws Exception {
+        GameSession session = GameSession.builder()
+                .gameId("gameId")
+                .player1(new Player("playerId", Figure.X))
+                .build();
+        session.getBitboard().set(Board.cell(2, 0), Figure.X);
+        session.getBitboard().set(Board.cell(0, 1), Figure.O);
+
+        JsonNode json = new ObjectMapper().valueToTree(session);
+
+        assertEquals("[[null,null,1],[0,null,null],[null,null,null]]", json.get("board").toString());
+        assertFalse(json.has("bitboard"));
+        assertFalse(json.has("moves"));
+        assertTrue(json.has("ended"));
+        assertEquals(3, json.get("winLength").asInt());
+    }
+
+    @Test
+    void sessionOfLargeBoardSurvivesJsonRoundTrip() throws Exception {
+        GameSession session = GameSession.builder()
+                .gameId("gameId")
+                .bitboard(new Board(new BoardGeometry(15, 15, 5)))
+                .build();
+        session.getBitboard().set(session.getBitboard().getGeometry().cell(14, 3), Figure.O);
+        ObjectMapper mapper = new ObjectMapper();
+
+        GameSession copy = mapper.readValue(mapper.writeValueAsString(session), GameSession.class);
+
+        assertEquals(session.getBitboard().getGeometry(), copy.getBitboard().getGeometry());
+        assertEquals(session.getBitboard().toString(), copy.getBitboard().toString());
+    }
+
+    @Test
+    void detectsFiveInARowThroughLastMove() {
+        BoardGeometry gomoku = new BoardGeometry(15, 15, 5);
+        int[][] directions = {{1, 0}, {0, 1}, {1, 1}, {1, -1}};
+        for (int[] direction : directions) {
+            Board board = new Board(gomoku);
+            // Place the last figure in the middle of the line
+            int[] order = {0, 1, 3, 4, 2};
+            for (int i = 0; i < order.length; i++) {
+                int x = 5 + direction[0] * order[i];
+                int y = 7 + direction[1] * order[i];
+                assertNull(board.winner());
+                board.set(gomoku.cell(x, y), Figure.X);
+            }
+            assertEquals(Figure.X, board.winner(), "direction " + direction[0] + "," + direction[1]);
+        }
+    }
+
+    @Test
+    void rowsDontWrapAroundTheEdge() {
+        BoardGeometry gomoku = new BoardGeometry(15, 15, 5);
+        Board board = new Board(gomoku);
+        // Cells 11..16 are consecutive indexes but span two rows
+        for (int x = 11; x < 15; x++)
+            board.set(gomoku.cell(x, 0), Figure.O);
+        for (int x = 0; x < 2; x++)
+            board.set(gomoku.cell(x, 1), Figure.O);
+
+        assertNull(board.winner());
+        assertEquals(6, board.occupiedCells());
+        assertEquals(gomoku.cell(10, 0), board.findWinningCell(Figure.O));
+    }
+
+    @Test
+    void loadsLargeBoard() {
+        BoardGeometry geometry = new BoardGeometry(7, 6, 4);
+        Integer[][] rows = new Integer[6][7];
+        for (int y = 2; y < 6; y++)
+            rows[y][3] = 0;
+        Board board = new Board(geometry);
+
+        board.load(rows);
+
+        assertEquals(Figure.O, board.winner());
+        assertArrayEquals(rows, board.toArray());
+        assertThrows(IllegalArgumentException.class, () -> board.load(new Integer[3][3]));
+    }
+
+    @Test
+    void detectsDeadDrawBeforeBoardIsFull() {
+        Board board = new Board();
+        board.load(new Integer[][]{
+                {1, 0, 1},
+                {1, 0, null},
+                {0, 1, null}
+        });
+        // X can still complete the right column
+        assertTrue(board.canStillWin(Figure.X));
+        assertFalse(board.canStillWin(Figure.O));
+        assertFalse(board.isDeadDraw());
+
+        board.set(Board.cell(2, 1), Figure.O);
+        assertTrue(board.isDeadDraw());
+        assertFalse(board.isFull());
+    }
+
+    @Test
+    void canStillWinMatchesLineScan() {
+        SplittableRandom random = new SplittableRandom(19);
+        for (BoardGeometry geometry : new BoardGeometry[]{
+                new BoardGeometry(4, 4, 3), new BoardGeometry(7, 6, 4), new BoardGeometry(15, 15, 5)}) {
+            for (int position = 0; position < 500; position++) {
+                Board board = new Board(geometry);
+                // Few figures leave open lines, many block them all
+                int figures = random.nextInt(geometry.cells());
+                for (int i = 0; i < figures; i++)
+                    board.set(random.nextInt(geometry.cells()), random.nextBoolean() ? Figure.X : Figure.O);
+
+                for (Figure figure : Figure.values())
+                    assertEquals(hasOpenLine(board, Figure.getOppositeTo(figure)), board.canStillWin(figure),
+                            geometry + " " + figure);
+            }
+        }
+    }
+
+    private static boolean hasOpenLine(Board board, Figure opponent) {
+        BoardGeometry geometry = board.getGeometry();
+        int length = geometry.getWinLength();
+        int[][] directions = {{1, 0}, {0, 1}, {1, 1}, {1, -1}};
+        for (int y = 0; y < geometry.getHeight(); y++) {
+            for (int x = 0; x < geometry.getWidth(); x++) {
+                for (int[] direction : directions) {
+                    if (!geometry.contains(x + direction[0] * (length - 1), y + direction[1] * (length - 1)))
+                        continue;
+                    boolean open = true;
+                    for (int i = 0; i < length && open; i++)
+                        open = board.get(geometry.cell(x + direction[0] * i, y + direction[1] * i)) != opponent;
+                    if (open)
+                        return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasLine(Integer[][] b) {
+        for (int i = 0; i < 3; i++) {
+            if (b[i][0] != null && b[i][1] != null && b[i][2] != null) return true;
+            if (b[0][i] != null && b[1][i] != null && b[2][i] != null) return true;
+        }
+        return b[1][1] != null && (b[0][0] != null && b[2][2] != null || b[0][2] != null && b[2][0] != null);
+    }
+}
@@ -0,0 +1,266 @@
+package com.scentbird.scentbird_tic_tac_toe;
+
+import com.scentbird.scentbird_tic_tac_toe.cluster.GamePartitioner;
+import com.scentbird.scentbird_tic_tac_toe.cluster.HashRing;
+import com.scentbird.scentbird_tic_tac_toe.controller.WebSocketGameController;
+import com.scentbird.scentbird_tic_tac_toe.engine.Board;
+import com.scentbird.scentbird_tic_tac_toe.model.Figure;
+import com.scentbird.scentbird_tic_tac_toe.model.GameSession;
+import com.scentbird.scentbird_tic_tac_toe.model.MoveEvent;
+import com.scentbird.scentbird_tic_tac_toe.model.Player;
+import com.scentbird.scentbird_tic_tac_toe.model.ResumeRequest;
+import com.scentbird.scentbird_tic_tac_toe.service.GameService;
+import com.scentbird.scentbird_tic_tac_toe.service.GameSessionRegistry;
+import com.scentbird.scentbird_tic_tac_toe.service.MoveLanes;
+import com.scentbird.scentbird_tic_tac_toe.service.SessionExpiry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.SubscribableChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Starts several nodes in one JVM, connected by the local transport, and plays games through one of them.
+ */
+class ClusterTest {
+    private static final int GAMES = 60;
+
+    private final String cluster = UUID.randomUUID().toString();
+    private final List<ConfigurableApplicationContext> nodes = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        nodes.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    void gamesAreSpreadOverNodesAndFollowTheirOwner() throws InterruptedException {
+        ConfigurableApplicationContext entry = startNode("a");
+        ConfigurableApplicationContext second = startNode("b");
+        AtomicInteger replies = new AtomicInteger();
+        entry.getBean("brokerChannel", SubscribableChannel.class).subscribe(message -> {
+            String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+            if (destination != null && destination.endsWith("/queue/moves"))
+                replies.incrementAndGet();
+        });
+
+        Set<String> games = new HashSet<>();
+        WebSocketGameController controller = entry.getBean(WebSocketGameController.class);
+        Player peer = new Player(UUID.randomUUID().toString(), Figure.X);
+        for (int i = 0; i < GAMES; i++) {
+            String gameId = UUID.randomUUID().toString();
+            games.add(gameId);
+            controller.makeMove(new MoveEvent(gameId, peer, 1, 1),
+                    new MessageHeaders(Map.of(SimpMessageHeaderAccessor.SESSION_ID_HEADER, "peer-" + i)));
+        }
+        awaitIdle();
+
+        assertEquals(GAMES, replies.get());
+        assertTrue(gamesOf(entry).size() > 0 && gamesOf(second).size() > 0);
+        assertTrue(entry.getBean(GamePartitioner.class).forwarded() > 0);
+        assertOwnedOnce(games);
+
+        ConfigurableApplicationContext third = startNode("c");
+        awaitIdle();
+        assertTrue(gamesOf(third).size() > 0);
+        assertOwnedOnce(games);
+
+        second.close();
+        nodes.remove(second);
+        assertOwnedOnce(games);
+
+        // The games have kept their boards on the way: the first move of the peer is still there
+        for (String gameId : games)
+            assertNotNull(sessionOf(gameId).getBitboard().get(4));
+    }
+
+    @Test
+    void moveQueuedBeforeHandoverTravelsWithTheGame() throws InterruptedException {
+        ConfigurableApplicationContext entry = startNode("a");
+        WebSocketGameController controller = entry.getBean(WebSocketGameController.class);
+        Player peer = new Player(UUID.randomUUID().toString(), Figure.X);
+        HashRing grown = new HashRing(List.of("a", "b"), entry.getEnvironment().getProperty("game.cluster.virtual-nodes", Integer.class, 128));
+        List<String> moving = new ArrayList<>();
+        for (int i = 0; moving.size() < 5; i++) {
+            String gameId = UUID.randomUUID().toString();
+            controller.makeMove(new MoveEvent(gameId, peer, 1, 1), headers("peer-" + i));
+            if (grown.owner(gameId).equals("b"))
+                moving.add(gameId);
+        }
+        awaitIdle();
+
+        // The second moves of the peer wait on the lanes while the new node joins and the handovers are queued
+        MoveLanes lanes = entry.getBean(MoveLanes.class);
+        CountDownLatch blocked = new CountDownLatch(1);
+        try {
+            for (String gameId : moving) {
+                lanes.execute(gameId, () -> {
+                    try {
+                        blocked.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+                Board board = sessionOf(gameId).getBitboard();
+                int cell = 0;
+                while (!board.isEmpty(cell))
+                    cell++;
+                controller.makeMove(new MoveEvent(gameId, peer, cell % 3, cell / 3), headers("peer-" + gameId));
+            }
+            startNode("b");
+        } finally {
+            blocked.countDown();
+        }
+        awaitIdle();
+
+        assertOwnedOnce(Set.copyOf(moving));
+        for (String gameId : moving) {
+            GameSession session = nodes.get(1).getBean(GameSessionRegistry.class).get(gameId);
+            assertNotNull(session, "Game " + gameId + " hasn't been handed over");
+            assertEquals(4, session.getMoves().size(), "Moves of game " + gameId);
+        }
+    }
+
+    @Test
+    void resumeIsAnsweredByTheNodeWhichPlaysTheGame() throws InterruptedException {
+        ConfigurableApplicationContext entry = startNode("a");
+        startNode("b");
+        List<String> answers = new CopyOnWriteArrayList<>();
+        entry.getBean("brokerChannel", SubscribableChannel.class).subscribe(message -> {
+            String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+            if (destination != null && destination.endsWith("/queue/resume"))
+                answers.add(new String((byte[]) message.getPayload(), StandardCharsets.UTF_8));
+        });
+        WebSocketGameController controller = entry.getBean(WebSocketGameController.class);
+        String gameId = gameOwnedBy(entry, "b");
+        controller.makeMove(new MoveEvent(gameId, new Player(UUID.randomUUID().toString(), Figure.X), 1, 1), headers("peer"));
+        awaitIdle();
+        assertNotNull(nodes.get(1).getBean(GameSessionRegistry.class).get(gameId));
+
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create();
+        accessor.setSessionId("reconnected");
+        controller.resume(new ResumeRequest(gameId, 1), accessor);
+        awaitIdle();
+
+        assertEquals(1, answers.size());
+        assertTrue(answers.get(0).contains("\"found\":true"), answers.get(0));
+        assertTrue(answers.get(0).contains("\"sequence\":2"), answers.get(0));
+    }
+
+    @Test
+    void evictionReachesThePeerThroughTheNodeItIsConnectedTo() throws InterruptedException {
+        ConfigurableApplicationContext entry = startNode("a");
+        ConfigurableApplicationContext second = startNode("b");
+        List<String> evictions = new CopyOnWriteArrayList<>();
+        entry.getBean("brokerChannel", SubscribableChannel.class).subscribe(message -> {
+            String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+            if (destination != null && destination.endsWith("/queue/evictions"))
+                evictions.add(SimpMessageHeaderAccessor.getSessionId(message.getHeaders()) + " "
+                        + new String((byte[]) message.getPayload(), StandardCharsets.UTF_8));
+        });
+        String gameId = gameOwnedBy(entry, "b");
+        entry.getBean(WebSocketGameController.class).makeMove(
+                new MoveEvent(gameId, new Player(UUID.randomUUID().toString(), Figure.X), 1, 1), headers("peer"));
+        awaitIdle();
+
+        GameSession session = second.getBean(GameSessionRegistry.class).get(gameId);
+        assertNotNull(session);
+        second.getBean(MoveLanes.class).execute(session.getGameId(), () -> second.getBean(GameService.class).evict(session));
+        awaitIdle();
+
+        assertEquals(1, evictions.size());
+        assertTrue(evictions.get(0).startsWith(session.getPeerSessionId() + " "), evictions.get(0));
+        assertTrue(evictions.get(0).contains("\"evicted\":true"), evictions.get(0));
+    }
+
+    /**
+     * @return A new game id which the given node owns, as the entry node sees the cluster.
+     */
+    private static String gameOwnedBy(ConfigurableApplicationContext entry, String nodeId) {
+        GamePartitioner partitioner = entry.getBean(GamePartitioner.class);
+        while (true) {
+            String gameId = UUID.randomUUID().toString();
+            if (partitioner.owner(gameId).equals(nodeId))
+                return gameId;
+        }
+    }
+
+    private static MessageHeaders headers(String sessionId) {
+        return new MessageHeaders(Map.of(SimpMessageHeaderAccessor.SESSION_ID_HEADER, sessionId));
+    }
+
+    private ConfigurableApplicationContext startNode(String nodeId) {
+        ConfigurableApplicationContext node = new SpringApplicationBuilder(ScentbirdTicTacToeApplication.class)
+                .run("--server.port=0",
+                        "--game.cluster.transport=local",
+                        "--game.cluster.name=" + cluster,
+                        "--game.cluster.node-id=" + nodeId,
+                        "--game.pacing.delay=0s",
+                        "--logging.level.com.scentbird.scentbird_tic_tac_toe.service=WARN");
+        nodes.add(node);
+        return node;
+    }
+
+    private void awaitIdle() throws InterruptedException {
+        for (int attempt = 0; attempt < 100; attempt++) {
+            boolean idle = true;
+            for (ConfigurableApplicationContext node : nodes) {
+                MoveLanes lanes = node.getBean(MoveLanes.class);
+                idle &= lanes.queued() == 0 && lanes.active() == 0;
+            }
+            if (idle)
+                return;
+            Thread.sleep(50);
+        }
+        fail("The lanes are still busy");
+    }
+
+    /**
+     * Checks that every game is held by exactly one node, the one the ring assigns it to, and that every node
+     * will evict the games it holds, and only those.
+     */
+    private void assertOwnedOnce(Set<String> games) {
+        for (String gameId : games) {
+            int holders = 0;
+            for (ConfigurableApplicationContext node : nodes) {
+                if (node.getBean(GameSessionRegistry.class).get(gameId) != null) {
+                    holders++;
+                    GamePartitioner partitioner = node.getBean(GamePartitioner.class);
+                    assertEquals(partitioner.getNodeId(), partitioner.owner(gameId));
+                }
+            }
+            assertEquals(1, holders, "Nodes holding game " + gameId);
+        }
+        for (ConfigurableApplicationContext node : nodes)
+            assertEquals(gamesOf(node).size(), node.getBean(SessionExpiry.class).size(),
+                    "Timeouts on node " + node.getBean(GamePartitioner.class).getNodeId());
+    }
+
+    private List<GameSession> gamesOf(ConfigurableApplicationContext node) {
+        return new ArrayList<>(node.getBean(GameSessionRegistry.class).sessions());
+    }
+
+    private GameSession sessionOf(String gameId) {
+        for (ConfigurableApplicationContext node : nodes) {
+            GameSession session = node.getBean(GameSessionRegistry.class).get(gameId);
+            if (session != null)
+                return session;
+        }
+        throw new AssertionError("No node holds game " + gameId);
+    }
+}
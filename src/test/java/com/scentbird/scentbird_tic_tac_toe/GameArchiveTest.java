@@ -0,0 +1,177 @@
+package com.scentbird.scentbird_tic_tac_toe;
+
+import com.scentbird.scentbird_tic_tac_toe.archive.GameArchive;
+import com.scentbird.scentbird_tic_tac_toe.archive.PackedGame;
+import com.scentbird.scentbird_tic_tac_toe.controller.ArchiveController;
+import com.scentbird.scentbird_tic_tac_toe.engine.Board;
+import com.scentbird.scentbird_tic_tac_toe.model.*;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@Slf4j
+class GameArchiveTest {
+    private static final int GAMES = 1_000_000;
+    private static final long SEGMENT_SIZE = 1L << 20;
+    private static final String[] PLAYERS = {"alice", "bob", "carol"};
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void packsMovesAndOutcome() {
+        GameSession session = session("alice", "bob", Figure.O);
+        play(session, Figure.X, 4, 0, 8, 2, 6, 1);
+
+        long game = PackedGame.pack(session);
+
+        assertEquals(6, PackedGame.moveCount(game));
+        assertEquals(List.of(4, 0, 8, 2, 6, 1), cells(game));
+        assertEquals(PackedGame.O_WON, PackedGame.outcome(game));
+        assertEquals(Figure.O, PackedGame.winner(game));
+        assertEquals(Figure.X, PackedGame.firstMover(game));
+        assertEquals(Figure.O, PackedGame.player1Figure(game));
+    }
+
+    @Test
+    void aggregatesMillionGamesAcrossSegmentsAndRestart() throws Exception {
+        SplittableRandom random = new SplittableRandom(20);
+        // A few hundred distinct games, archived over and over, keep the test fast
+        List<GameSession> sessions = new ArrayList<>();
+        for (int i = 0; i < 500; i++)
+            sessions.add(randomGame(random));
+        long[] firstMoverWins = new long[Board.CELLS];
+        long moves = 0;
+        Map<String, Integer> wins = new HashMap<>();
+
+        GameArchive archive = new GameArchive(directory, SEGMENT_SIZE);
+        archive.open();
+        for (int i = 0; i < GAMES / 2; i++) {
+            GameSession session = sessions.get(i % sessions.size());
+            archive.gameEnded(session);
+            moves += session.getMoves().size();
+            count(session, firstMoverWins, wins);
+        }
+        archive.close();
+        GameArchive reopened = new GameArchive(directory, SEGMENT_SIZE);
+        reopened.open();
+        for (int i = GAMES / 2; i < GAMES; i++) {
+            GameSession session = sessions.get(i % sessions.size());
+            reopened.gameEnded(session);
+            moves += session.getMoves().size();
+            count(session, firstMoverWins, wins);
+        }
+
+        long start = System.nanoTime();
+        ArchiveSummary summary = reopened.summary();
+        List<OpeningStats> openings = reopened.openings();
+        List<PlayerStats> players = reopened.players(10);
+        long queryNanos = System.nanoTime() - start;
+        log.info(String.format("Ran three queries over %s games in %s segments in %s ms (%.0f games/s)",
+                GAMES, reopened.segmentCount(), queryNanos / 1_000_000, 3 * GAMES * 1e9 / queryNanos));
+        reopened.close();
+
+        assertTrue(reopened.segmentCount() > 2);
+        assertEquals(GAMES, summary.getGames());
+        assertEquals((double) moves / GAMES, summary.getAverageMoves(), 1e-9);
+        assertEquals(GAMES, summary.getFirstMoverWins() + summary.getSecondMoverWins() + summary.getDraws());
+        assertEquals(GAMES, openings.stream().mapToLong(OpeningStats::getGames).sum());
+        for (OpeningStats opening : openings)
+            assertEquals(firstMoverWins[Board.cell(opening.getX(), opening.getY())], opening.getFirstMoverWins());
+        assertEquals(PLAYERS.length, players.size());
+        for (PlayerStats player : players) {
+            assertEquals(wins.getOrDefault(player.getPlayerId(), 0), (int) player.getWins());
+            assertEquals(player.getGames(), player.getWins() + player.getLosses() + player.getDraws());
+        }
+    }
+
+    @Test
+    void controllerAnswersFromArchive() throws Exception {
+        GameArchive archive = new GameArchive(directory, SEGMENT_SIZE);
+        archive.open();
+        GameSession session = session("alice", "bob", Figure.X);
+        play(session, Figure.X, 0, 4, 1, 5, 2);
+        archive.gameEnded(session);
+        ArchiveController controller = new ArchiveController();
+        ReflectionTestUtils.setField(controller, "archive", archive);
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+
+        mockMvc.perform(get("/game/archive/summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.games").value(1))
+                .andExpect(jsonPath("$.averageMoves").value(5.0))
+                .andExpect(jsonPath("$.firstMoverWins").value(1));
+        mockMvc.perform(get("/game/archive/openings"))
+                .andExpect(jsonPath("$[0].x").value(0))
+                .andExpect(jsonPath("$[0].games").value(1));
+        mockMvc.perform(get("/game/archive/players").param("limit", "1"))
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].wins").value(1));
+        archive.close();
+    }
+
+    private static GameSession randomGame(SplittableRandom random) {
+        String player1 = PLAYERS[random.nextInt(PLAYERS.length)];
+        String player2 = PLAYERS[(Arrays.asList(PLAYERS).indexOf(player1) + 1 + random.nextInt(PLAYERS.length - 1)) % PLAYERS.length];
+        GameSession session = session(player1, player2, random.nextBoolean() ? Figure.X : Figure.O);
+        Figure figure = random.nextBoolean() ? Figure.X : Figure.O;
+        Board board = session.getBitboard();
+        while (board.winner() == null && !board.isFull()) {
+            int cell = random.nextInt(Board.CELLS);
+            if (board.isEmpty(cell)) {
+                play(session, figure, cell);
+                figure = Figure.getOppositeTo(figure);
+            }
+        }
+        return session;
+    }
+
+    private static void count(GameSession session, long[] firstMoverWins, Map<String, Integer> wins) {
+        Figure winner = session.getBitboard().winner();
+        if (winner == null)
+            return;
+        MoveEvent first = session.getMoves().get(0);
+        if (winner == first.getPlayer().getFigure())
+            firstMoverWins[Board.cell(first.getX(), first.getY())]++;
+        Player player = session.getPlayer1().getFigure() == winner ? session.getPlayer1() : session.getPlayer2();
+        wins.merge(player.getPlayerId(), 1, Integer::sum);
+    }
+
+    private static GameSession session(String player1, String player2, Figure figure) {
+        return GameSession.builder()
+                .gameId(UUID.randomUUID().toString())
+                .player1(new Player(player1, figure))
+                .player2(new Player(player2, Figure.getOppositeTo(figure)))
+                .bitboard(new Board())
+                .moves(new ArrayList<>())
+                .build();
+    }
+
+    private static void play(GameSession session, Figure first, int... cells) {
+        Figure figure = first;
+        for (int cell : cells) {
+            Player player = session.getPlayer1().getFigure() == figure ? session.getPlayer1() : session.getPlayer2();
+            session.getBitboard().set(cell, figure);
+            session.recordMove(new MoveEvent(session.getGameId(), player, cell % Board.SIZE, cell / Board.SIZE));
+            figure = Figure.getOppositeTo(figure);
+        }
+    }
+
+    private static List<Integer> cells(long game) {
+        List<Integer> cells = new ArrayList<>();
+        for (int move = 0; move < PackedGame.moveCount(game); move++)
+            cells.add(PackedGame.cell(game, move));
+        return cells;
+    }
+}
@@ -0,0 +1,63 @@
+package com.scentbird.scentbird_tic_tac_toe;
+
+import com.scentbird.scentbird_tic_tac_toe.engine.Board;
+import com.scentbird.scentbird_tic_tac_toe.engine.PerfectPlaySolver;
+import com.scentbird.scentbird_tic_tac_toe.metrics.GameMetrics;
+import com.scentbird.scentbird_tic_tac_toe.model.Figure;
+import com.scentbird.scentbird_tic_tac_toe.model.GameSession;
+import com.scentbird.scentbird_tic_tac_toe.model.MoveEvent;
+import com.scentbird.scentbird_tic_tac_toe.model.Player;
+import com.scentbird.scentbird_tic_tac_toe.service.GameService;
+import com.scentbird.scentbird_tic_tac_toe.service.GameSessionRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameMetricsTest {
+
+    @Test
+    void countsGamesAndTimesMoves() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        GameMetrics metrics = new GameMetrics(registry);
+        GameService gameService = new GameService();
+        gameService.setSessionRegistry(new GameSessionRegistry(10));
+        gameService.setSolver(new PerfectPlaySolver());
+        gameService.setMetrics(metrics);
+        gameService.setListeners(List.of(metrics));
+
+        GameSession session = gameService.startNewGame();
+        Player opponent = new Player("opponent", Figure.getOppositeTo(session.getPlayer1().getFigure()));
+        int moves = 0;
+        // The opponent always takes the first free cell, which the solver punishes
+        while (true) {
+            gameService.makeMove(session);
+            moves++;
+            if (gameService.checkWinner(session) != null)
+                break;
+            int cell = firstFreeCell(session.getBitboard());
+            gameService.acceptMove(session, MoveEvent.builder()
+                    .gameId(session.getGameId())
+                    .player(opponent)
+                    .x(cell % Board.SIZE)
+                    .y(cell / Board.SIZE)
+                    .build());
+        }
+        GameSession next = gameService.checkWinnerAndStartAgain(session);
+
+        assertNotSame(session, next);
+        assertEquals(2, registry.get("game.games.started").counter().count());
+        assertEquals(1, registry.get("game.games.won").counter().count());
+        assertEquals(0, registry.get("game.games.drawn").counter().count());
+        assertEquals(moves, registry.get("game.engine.next-move").timer().count());
+    }
+
+    private static int firstFreeCell(Board board) {
+        for (int cell = 0; cell < Board.CELLS; cell++)
+            if (board.isEmpty(cell))
+                return cell;
+        throw new IllegalStateException("The board is full");
+    }
+}
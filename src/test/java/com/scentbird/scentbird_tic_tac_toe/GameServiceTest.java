@@ -1,11 +1,17 @@
 package com.scentbird.scentbird_tic_tac_toe;
 
+import com.scentbird.scentbird_tic_tac_toe.engine.Board;
+import com.scentbird.scentbird_tic_tac_toe.engine.BoardGeometry;
+import com.scentbird.scentbird_tic_tac_toe.engine.PerfectPlaySolver;
 import com.scentbird.scentbird_tic_tac_toe.handler.GameStompMessageHandler;
 import com.scentbird.scentbird_tic_tac_toe.model.Figure;
 import com.scentbird.scentbird_tic_tac_toe.model.GameSession;
 import com.scentbird.scentbird_tic_tac_toe.model.MoveEvent;
 import com.scentbird.scentbird_tic_tac_toe.model.Player;
+import com.scentbird.scentbird_tic_tac_toe.service.GameListener;
 import com.scentbird.scentbird_tic_tac_toe.service.GameService;
+import com.scentbird.scentbird_tic_tac_toe.service.GameSessionRegistry;
+import com.scentbird.scentbird_tic_tac_toe.service.MovePacer;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
@@ -17,10 +23,17 @@ import org.springframework.util.concurrent.ListenableFuture;
 import org.springframework.web.socket.client.WebSocketClient;
 import org.springframework.web.socket.messaging.WebSocketStompClient;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
 public class GameServiceTest {
+    private static final PerfectPlaySolver SOLVER = new PerfectPlaySolver();
+
     @Spy
     private GameService gameService = new GameService();
 
@@ -43,6 +56,9 @@ public class GameServiceTest {
         gameService.setSocketClient(socketClient);
         gameService.setStompClient(stompClient);
         gameService.setSessionHandler(sessionHandler);
+        gameService.setSessionRegistry(new GameSessionRegistry(100));
+        gameService.setSolver(SOLVER);
+        gameService.setPacer(new MovePacer(null, Duration.ZERO));
 
         when(stompClient.connect(Mockito.anyString(), Mockito.any(GameStompMessageHandler.class))).thenReturn(stompSession);
 //        gameService.initClient();
@@ -72,6 +88,20 @@ public class GameServiceTest {
         verify(sessionHandler, times(1)).updateHostUrl(Mockito.anyString());
     }
 
+    @Test
+    public void testClientIsBuiltOnFirstUse() {
+        GameService server = new GameService();
+        assertNull(server.getStompClient());
+
+        server.initClient();
+        WebSocketStompClient client = server.getStompClient();
+        server.initClient();
+
+        assertNotNull(client);
+        assertNotNull(server.getSessionHandler());
+        assertSame(client, server.getStompClient());
+    }
+
     @Test
     public void testStartNewGame() {
         gameService.startNewGame();
@@ -207,8 +237,10 @@ public class GameServiceTest {
         GameSession currentSession = gameService.getCurrentSession();
         currentSession.setBoard(board);
 
-        boolean result = gameService.checkField(moveEvent, board, 1);
+        boolean result = gameService.checkField(moveEvent, currentSession.getBitboard(), 1);
         assertTrue(result);
+        assertEquals(Integer.valueOf(1), moveEvent.getX());
+        assertEquals(Integer.valueOf(0), moveEvent.getY());
     }
 
     @Test
@@ -262,5 +294,136 @@ public class GameServiceTest {
         // Ensure that the current session is not changed
         assertEquals(gameSession, gameService.getCurrentSession());
     }
-}
 
+    @Test
+    public void testListenersHearOfRegisteredGameOnce() {
+        List<GameSession> started = new ArrayList<>();
+        gameService.setListeners(List.of(new GameListener() {
+            @Override
+            public void gameStarted(GameSession session) {
+                assertSame(session, gameService.getSessionRegistry().get(session.getGameId()));
+                started.add(session);
+            }
+        }));
+        MoveEvent moveEvent = new MoveEvent("gameId", new Player("opponent", Figure.X), 0, 0);
+
+        GameSession session = gameService.initNewGame(moveEvent);
+
+        assertSame(session, gameService.initNewGame(moveEvent));
+        assertEquals(List.of(session), started);
+    }
+
+    @Test
+    public void testFailedGameDoesntTakeRegistrySlot() {
+        GameSessionRegistry registry = new GameSessionRegistry(1);
+        for (int i = 0; i < 3; i++) {
+            try {
+                registry.getOrCreate("gameId", id -> {
+                    throw new IllegalStateException("Can't build the game");
+                });
+                fail();
+            } catch (IllegalStateException e) {
+                assertEquals(0, registry.size());
+            }
+        }
+
+        GameSession session = new GameSession();
+        session.setGameId("gameId");
+        assertSame(session, registry.register(session));
+        assertEquals(1, registry.size());
+    }
+
+    @Test
+    public void testMoveOfAnotherGameKeepsCurrentGame() {
+        GameSession ownGame = gameService.startNewGame();
+
+        Player opponent = new Player("opponent", Figure.O);
+        MoveEvent foreignMove = new MoveEvent("foreignGameId", opponent, 1, 1);
+        GameSession foreignGame = gameService.initGameIfNeeded(foreignMove);
+        gameService.acceptMove(foreignGame, foreignMove);
+
+        assertNotSame(ownGame, foreignGame);
+        assertSame(ownGame, gameService.getSessionRegistry().get(ownGame.getGameId()));
+        assertNull(ownGame.getBoard()[1][1]);
+        assertEquals(1, foreignGame.getMoves().size());
+        assertEquals(2, gameService.getSessionRegistry().size());
+    }
+
+    @Test
+    public void testMakeMoveBlocksOpponent() {
+        GameSession session = gameService.startNewGame();
+        Figure opponentFigure = Figure.getOppositeTo(session.getPlayer1().getFigure());
+        session.getBitboard().set(Board.cell(0, 0), opponentFigure);
+        session.getBitboard().set(Board.cell(1, 1), opponentFigure);
+        session.getBitboard().set(Board.cell(0, 2), session.getPlayer1().getFigure());
+
+        MoveEvent result = gameService.makeMove(session);
+
+        assertEquals(Integer.valueOf(2), result.getX());
+        assertEquals(Integer.valueOf(2), result.getY());
+    }
+
+    @Test
+    public void testSaveAndMakeMoveReplies() {
+        GameSession session = gameService.startNewGame();
+        Player opponent = new Player("opponent", Figure.getOppositeTo(session.getPlayer1().getFigure()));
+        MoveEvent moveEvent = new MoveEvent(session.getGameId(), opponent, 1, 1);
+        AtomicReference<MoveEvent> reply = new AtomicReference<>();
+
+        gameService.saveAndMakeMove(session, moveEvent, reply::set);
+
+        assertNotNull(reply.get());
+        assertEquals(session.getGameId(), reply.get().getGameId());
+        assertEquals(2, session.getMoves().size());
+    }
+
+    @Test
+    public void testInvalidMovesAreRejected() {
+        GameSession session = gameService.startNewGame();
+        Player opponent = new Player("opponent", Figure.getOppositeTo(session.getPlayer1().getFigure()));
+        gameService.acceptMove(session, new MoveEvent(session.getGameId(), opponent, 0, 0));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> gameService.acceptMove(session, new MoveEvent(session.getGameId(), opponent, 3, 0)));
+        assertThrows(IllegalArgumentException.class,
+                () -> gameService.acceptMove(session, new MoveEvent(session.getGameId(), opponent, 0, 0)));
+        assertThrows(IllegalArgumentException.class,
+                () -> gameService.acceptMove(session, new MoveEvent(session.getGameId(), session.getPlayer1(), 1, 1)));
+        assertEquals(1, session.getMoves().size());
+    }
+
+    @Test
+    public void testPlaysOnConfiguredBoard() {
+        gameService.setGeometry(new BoardGeometry(15, 15, 5));
+        GameSession session = gameService.startNewGame();
+        Figure figure = session.getPlayer1().getFigure();
+        for (int x = 3; x < 7; x++)
+            session.getBitboard().set(session.getBitboard().getGeometry().cell(x, 9), figure);
+
+        MoveEvent result = gameService.makeMove(session);
+        gameService.acceptMove(session, new MoveEvent(session.getGameId(), new Player("opponent", Figure.getOppositeTo(figure)), 0, 0));
+
+        assertEquals(15, session.getBoard().length);
+        assertEquals(Integer.valueOf(9), result.getY());
+        assertTrue(result.getX() == 2 || result.getX() == 7);
+    }
+
+    @Test
+    public void testEndsDecidedGameEarly() {
+        GameSession session = gameService.startNewGame();
+        // Neither figure can complete a line, although the last cell is free
+        Integer[][] rows = {
+                {1, 0, 1},
+                {1, 0, 0},
+                {0, 1, null}
+        };
+        session.getBitboard().load(rows);
+
+        assertSame(session, gameService.checkWinnerAndStartAgain(session));
+
+        gameService.setEndWhenDecided(true);
+        assertNotSame(session, gameService.checkWinnerAndStartAgain(session));
+        assertTrue(session.isEnded());
+        assertNull(gameService.getSessionRegistry().get(session.getGameId()));
+    }
+}
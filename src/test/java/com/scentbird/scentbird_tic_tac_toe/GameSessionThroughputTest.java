@@ -0,0 +1,115 @@
+package com.scentbird.scentbird_tic_tac_toe;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.scentbird.scentbird_tic_tac_toe.engine.PerfectPlaySolver;
+import com.scentbird.scentbird_tic_tac_toe.model.GameSession;
+import com.scentbird.scentbird_tic_tac_toe.model.MoveEvent;
+import com.scentbird.scentbird_tic_tac_toe.service.GameService;
+import com.scentbird.scentbird_tic_tac_toe.service.GameSessionRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Plays many games between two in-process nodes in parallel and reports how the number of moves
+ * per second scales with the number of threads. Whatever the number of cores, every game has to
+ * finish and release its sessions on both nodes.
+ */
+@Slf4j
+class GameSessionThroughputTest {
+    private static final int GAMES_PER_THREAD = 2_000;
+
+    private static final PerfectPlaySolver SOLVER = new PerfectPlaySolver();
+
+    private GameService nodeA;
+    private GameService nodeB;
+
+    @BeforeEach
+    void setUp() {
+        ((Logger) LoggerFactory.getLogger(GameService.class)).setLevel(Level.WARN);
+        nodeA = new GameService();
+        nodeA.setSessionRegistry(new GameSessionRegistry(100_000));
+        nodeA.setSolver(SOLVER);
+        nodeB = new GameService();
+        nodeB.setSessionRegistry(new GameSessionRegistry(100_000));
+        nodeB.setSolver(SOLVER);
+    }
+
+    @Test
+    void everyGameFinishesWhateverTheNumberOfThreads() throws Exception {
+        int cores = Runtime.getRuntime().availableProcessors();
+        // Warm up the JIT so the first measured run isn't penalized
+        measure(1);
+
+        List<Integer> threadCounts = new ArrayList<>();
+        for (int threads = 1; threads < cores; threads *= 2)
+            threadCounts.add(threads);
+        threadCounts.add(cores);
+
+        for (int threads : threadCounts) {
+            long start = System.nanoTime();
+            long moves = measure(threads);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            log.info(String.format("%d thread(s) of %d core(s): %d moves in %.3f s, %.0f moves/sec",
+                    threads, cores, moves, seconds, moves / seconds));
+
+            // A game takes at least five moves and at most nine
+            long games = (long) threads * GAMES_PER_THREAD;
+            assertTrue(moves >= 5 * games && moves <= 9 * games, String.format("%d moves in %d games", moves, games));
+            assertEquals(0, nodeA.getSessionRegistry().size());
+            assertEquals(0, nodeB.getSessionRegistry().size());
+        }
+    }
+
+    private long measure(int threads) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Long>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    long moves = 0;
+                    for (int game = 0; game < GAMES_PER_THREAD; game++)
+                        moves += playGame();
+                    return moves;
+                }));
+            }
+            long moves = 0;
+            for (Future<Long> result : results)
+                moves += result.get();
+            return moves;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private int playGame() {
+        GameSession sessionA = nodeA.startNewGame();
+        MoveEvent move = nodeA.makeMove(sessionA);
+        GameSession sessionB = nodeB.initGameIfNeeded(move);
+        nodeB.acceptMove(sessionB, move);
+        int moves = 1;
+
+        GameService[] nodes = {nodeB, nodeA};
+        GameSession[] sessions = {sessionB, sessionA};
+        int turn = 0;
+        // Both nodes end the game by themselves: the one making the last move, and the one accepting it
+        while (!sessions[turn].isEnded()) {
+            move = nodes[turn].makeMove(sessions[turn]);
+            nodes[1 - turn].acceptMove(sessions[1 - turn], move);
+            moves++;
+            turn = 1 - turn;
+        }
+        return moves;
+    }
+}
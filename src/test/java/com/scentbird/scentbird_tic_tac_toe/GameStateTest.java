@@ -0,0 +1,100 @@
+package com.scentbird.scentbird_tic_tac_toe;
+
+import com.scentbird.scentbird_tic_tac_toe.cluster.GamePartitioner;
+import com.scentbird.scentbird_tic_tac_toe.controller.GameController;
+import com.scentbird.scentbird_tic_tac_toe.controller.GameStateStream;
+import com.scentbird.scentbird_tic_tac_toe.engine.PerfectPlaySolver;
+import com.scentbird.scentbird_tic_tac_toe.model.GameSession;
+import com.scentbird.scentbird_tic_tac_toe.model.GameStateDelta;
+import com.scentbird.scentbird_tic_tac_toe.model.MoveEvent;
+import com.scentbird.scentbird_tic_tac_toe.service.GameService;
+import com.scentbird.scentbird_tic_tac_toe.service.GameSessionRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class GameStateTest {
+    private GameService gameService;
+    private SimpMessagingTemplate messagingTemplate;
+    private GamePartitioner partitioner;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        messagingTemplate = mock(SimpMessagingTemplate.class);
+        GameStateStream stream = new GameStateStream();
+        ReflectionTestUtils.setField(stream, "messagingTemplate", messagingTemplate);
+        partitioner = mock(GamePartitioner.class);
+        ReflectionTestUtils.setField(stream, "partitioner", partitioner);
+        gameService = new GameService();
+        gameService.setSessionRegistry(new GameSessionRegistry(10));
+        gameService.setSolver(new PerfectPlaySolver());
+        gameService.setListeners(List.of(stream));
+        GameController controller = new GameController();
+        ReflectionTestUtils.setField(controller, "gameService", gameService);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @Test
+    void unchangedStateIsNotSentAgain() throws Exception {
+        GameSession session = gameService.startNewGame();
+        gameService.makeMove(session);
+        String etag = mockMvc.perform(get("/game/state"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").value(1))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/game/state").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        gameService.makeMove(session);
+        mockMvc.perform(get("/game/state").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, String.format("\"%s-2\"", session.getGameId())));
+    }
+
+    @Test
+    void pushesMovesWithVersions() {
+        GameSession session = gameService.startNewGame();
+        MoveEvent first = gameService.makeMove(session);
+        MoveEvent second = gameService.makeMove(session);
+
+        ArgumentCaptor<GameStateDelta> deltas = ArgumentCaptor.forClass(GameStateDelta.class);
+        verify(messagingTemplate, times(2)).convertAndSend(eq(GameStateStream.STATE_TOPIC), deltas.capture());
+        assertEquals(List.of(new GameStateDelta(session.getGameId(), 1, first, false, false),
+                new GameStateDelta(session.getGameId(), 2, second, false, false)), deltas.getAllValues());
+        verify(messagingTemplate, times(2)).convertAndSend(eq(GameStateStream.GAME_TOPIC + session.getGameId()),
+                any(GameStateDelta.class));
+    }
+
+    @Test
+    void evictionGoesToThePeerWhoPlayedTheGameOnly() {
+        GameSession session = gameService.startNewGame();
+        session.setPeerNode("a");
+        session.setPeerSessionId("peer");
+        gameService.makeMove(session);
+        verifyNoInteractions(partitioner);
+
+        gameService.evict(session);
+
+        verify(partitioner).evicted("a", "peer", new GameStateDelta(session.getGameId(), 2, null, true, true));
+        // Spectators of the game still see it end
+        verify(messagingTemplate).convertAndSend(GameStateStream.GAME_TOPIC + session.getGameId(),
+                new GameStateDelta(session.getGameId(), 2, null, true, true));
+    }
+}
@@ -0,0 +1,56 @@
+package com.scentbird.scentbird_tic_tac_toe;
+
+import com.scentbird.scentbird_tic_tac_toe.cluster.HashRing;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashRingTest {
+    private static final int GAMES = 100_000;
+
+    @Test
+    void spreadsGamesEvenly() {
+        HashRing ring = new HashRing(List.of("a", "b", "c", "d"), 128);
+        Map<String, Integer> games = new HashMap<>();
+        for (int i = 0; i < GAMES; i++)
+            games.merge(ring.owner(UUID.randomUUID().toString()), 1, Integer::sum);
+
+        assertEquals(4, games.size());
+        for (int count : games.values())
+            assertTrue(Math.abs(count - GAMES / 4) < GAMES / 4 * 0.3, "Games per node: " + games);
+    }
+
+    @Test
+    void joiningNodeOnlyTakesGamesOver() {
+        HashRing before = new HashRing(List.of("a", "b", "c", "d"), 128);
+        HashRing after = new HashRing(List.of("a", "b", "c", "d", "e"), 128);
+        int moved = 0;
+        for (int i = 0; i < GAMES; i++) {
+            String gameId = UUID.randomUUID().toString();
+            String owner = after.owner(gameId);
+            if (!owner.equals(before.owner(gameId))) {
+                assertEquals("e", owner);
+                moved++;
+            }
+        }
+
+        assertTrue(moved > GAMES / 5 * 0.7 && moved < GAMES / 5 * 1.3, moved + " games moved");
+    }
+
+    @Test
+    void ownerDoesNotDependOnTheOrderOfNodes() {
+        HashRing ring = new HashRing(List.of("a", "b", "c"), 16);
+        HashRing reordered = new HashRing(List.of("c", "a", "b"), 16);
+
+        for (int i = 0; i < 1000; i++) {
+            String gameId = UUID.randomUUID().toString();
+            assertEquals(ring.owner(gameId), reordered.owner(gameId));
+        }
+        assertNull(new HashRing(List.of(), 16).owner("game"));
+    }
+}
@@ -0,0 +1,53 @@
+package com.scentbird.scentbird_tic_tac_toe;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs a short load run while the application starts and checks its summary.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "game.load.enabled=true",
+        "game.load.pairs=4",
+        "game.load.ramp-up=1s",
+        "game.load.duration=2s",
+        "game.pacing.delay=0s",
+        "logging.level.com.scentbird.scentbird_tic_tac_toe.service=WARN"
+})
+class LoadGeneratorTest {
+    private static final Path SUMMARY = createSummaryFile();
+
+    @DynamicPropertySource
+    static void summaryFile(DynamicPropertyRegistry registry) {
+        registry.add("game.load.summary-file", SUMMARY::toString);
+    }
+
+    @Test
+    void writesSummary() throws IOException {
+        JsonNode summary = new ObjectMapper().readTree(SUMMARY.toFile());
+
+        assertEquals(4, summary.get("pairs").asInt());
+        assertTrue(summary.get("moves").asLong() > 0);
+        assertTrue(summary.get("games").asLong() > 0);
+        assertTrue(summary.get("latencyP50").asLong() > 0);
+        assertTrue(summary.get("latencyP999").asLong() >= summary.get("latencyP99").asLong());
+    }
+
+    private static Path createSummaryFile() {
+        try {
+            return Files.createTempFile("load-summary", ".json");
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.scentbird.scentbird_tic_tac_toe;
+
+import com.scentbird.scentbird_tic_tac_toe.engine.Board;
+import com.scentbird.scentbird_tic_tac_toe.engine.BoardGeometry;
+import com.scentbird.scentbird_tic_tac_toe.engine.MonteCarloSearch;
+import com.scentbird.scentbird_tic_tac_toe.engine.PerfectPlaySolver;
+import com.scentbird.scentbird_tic_tac_toe.model.Figure;
+import com.scentbird.scentbird_tic_tac_toe.model.GameSession;
+import com.scentbird.scentbird_tic_tac_toe.model.MoveEvent;
+import com.scentbird.scentbird_tic_tac_toe.service.GameService;
+import com.scentbird.scentbird_tic_tac_toe.service.GameSessionRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MonteCarloSearchTest {
+    private static final BoardGeometry GOMOKU = new BoardGeometry(15, 15, 5);
+
+    @Test
+    void keepsToItsBudget() {
+        try (MonteCarloSearch search = new MonteCarloSearch(GOMOKU, Duration.ofMillis(50), 2, 1 << 16)) {
+            Board board = new Board(GOMOKU);
+            board.set(GOMOKU.cell(7, 7), Figure.X);
+
+            long start = System.nanoTime();
+            int cell = search.bestMove(board, Figure.O);
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+            assertTrue(board.isEmpty(cell));
+            assertTrue(elapsedMillis >= 50 && elapsedMillis < 500, "Took " + elapsedMillis + " ms");
+            assertTrue(search.playouts() > 0);
+        }
+    }
+
+    @Test
+    void concurrentSearchesEachKeepToTheirBudget() throws Exception {
+        try (MonteCarloSearch search = new MonteCarloSearch(GOMOKU, Duration.ofMillis(100), 2, 1 << 16)) {
+            Board board = new Board(GOMOKU);
+            board.set(GOMOKU.cell(7, 7), Figure.X);
+            ExecutorService lanes = Executors.newFixedThreadPool(2);
+            try {
+                // A long search, such as building a book, takes the single helper of the pool first
+                Future<Integer> longSearch = lanes.submit(() -> search.bestMove(board, Figure.O, 1_000_000_000L));
+                Thread.sleep(20);
+                Future<Long> move = lanes.submit(() -> {
+                    long start = System.nanoTime();
+                    assertTrue(board.isEmpty(search.bestMove(board, Figure.O)));
+                    return (System.nanoTime() - start) / 1_000_000;
+                });
+
+                long elapsedMillis = move.get();
+                assertTrue(elapsedMillis >= 100 && elapsedMillis < 200, "Took " + elapsedMillis + " ms");
+                assertFalse(longSearch.isDone());
+                assertTrue(board.isEmpty(longSearch.get()));
+            } finally {
+                lanes.shutdown();
+            }
+        }
+    }
+
+    @Test
+    void findsTheOnlyGoodMove() {
+        // X threatens to complete the diagonal, so O must take the last corner
+        try (MonteCarloSearch search = new MonteCarloSearch(BoardGeometry.CLASSIC, Duration.ofMillis(100), 1, 1 << 16)) {
+            Board board = new Board();
+            board.set(BoardGeometry.CLASSIC.cell(0, 0), Figure.X);
+            board.set(BoardGeometry.CLASSIC.cell(1, 1), Figure.X);
+            board.set(BoardGeometry.CLASSIC.cell(1, 0), Figure.O);
+
+            assertEquals(BoardGeometry.CLASSIC.cell(2, 2), search.bestMove(board, Figure.O));
+        }
+    }
+
+    @Test
+    void refusesFinishedGamesAndOtherBoards() {
+        try (MonteCarloSearch search = new MonteCarloSearch(BoardGeometry.CLASSIC, Duration.ofMillis(10), 1, 1024)) {
+            Board won = new Board();
+            for (int x = 0; x < 3; x++)
+                won.set(BoardGeometry.CLASSIC.cell(x, 0), Figure.X);
+
+            assertEquals(-1, search.bestMove(won, Figure.O));
+            assertEquals(-1, search.bestMove(new Board(GOMOKU), Figure.X));
+            assertEquals(0, search.playouts());
+        }
+    }
+
+    @Test
+    void gameServiceSearchesWhenNothingIsForced() {
+        try (MonteCarloSearch search = new MonteCarloSearch(GOMOKU, Duration.ofMillis(20), 1, 1 << 16)) {
+            GameService gameService = new GameService();
+            gameService.setSessionRegistry(new GameSessionRegistry(10));
+            gameService.setSolver(new PerfectPlaySolver());
+            gameService.setGeometry(GOMOKU);
+            gameService.setSearch(search);
+            GameSession session = gameService.startNewGame();
+
+            MoveEvent move = gameService.getNextMove(session);
+
+            assertTrue(session.getBitboard().isEmpty(GOMOKU.cell(move.getX(), move.getY())));
+            assertTrue(search.playouts() > 0);
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.scentbird.scentbird_tic_tac_toe;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.scentbird.scentbird_tic_tac_toe.converter.MoveEventBinaryMessageConverter;
+import com.scentbird.scentbird_tic_tac_toe.engine.BoardGeometry;
+import com.scentbird.scentbird_tic_tac_toe.engine.PerfectPlaySolver;
+import com.scentbird.scentbird_tic_tac_toe.engine.PositionCache;
+import com.scentbird.scentbird_tic_tac_toe.model.GameSession;
+import com.scentbird.scentbird_tic_tac_toe.model.MoveEvent;
+import com.scentbird.scentbird_tic_tac_toe.service.GameService;
+import com.scentbird.scentbird_tic_tac_toe.service.GameSessionRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Measures the bytes the current thread allocates per move and fails once a move allocates more than its
+ * budget. Every scenario is warmed up first, so the JIT has compiled the path and removed what escape
+ * analysis can remove before anything is counted.
+ */
+@Slf4j
+class MoveAllocationTest {
+    private static final int WARM_UP_MOVES = 200_000;
+    private static final int MEASURED_MOVES = 100_000;
+    private static final PerfectPlaySolver SOLVER = new PerfectPlaySolver();
+
+    /**
+     * Choosing a move is only reading the board and the tables of the engine.
+     */
+    private static final double NEXT_CELL_BUDGET = 0;
+    /**
+     * Making and accepting a move in a running game allocates the move event which is sent to the
+     * opponent and appended to the move log: a header and four references. Asking whether the move is
+     * logged at debug adds an iterator over the turbo filters of logback once there are any, as there are
+     * after a Spring context has installed the logging metrics.
+     */
+    private static final double MOVE_BUDGET = 32 + 24;
+    /**
+     * Whole games also pay for starting and ending a game on both nodes: the sessions, their boards, move logs
+     * and registry entries, and the random id of the game.
+     */
+    private static final double GAME_MOVE_BUDGET = 192 + 24;
+    /**
+     * {@link MoveEventBinaryMessageConverter#encode} only writes into the buffer it's given, which the caller
+     * allocates once and reuses for every move.
+     */
+    private static final double ENCODE_BUDGET = 0;
+    /**
+     * The outbound path of the converter, {@code toMessage}, allocates what every message takes: the 36 bytes
+     * of the frame and their buffer, the message, and a copy of its headers with their map, id and timestamp.
+     * That's about a kilobyte, nearly all of it the headers, and up to two hundred bytes more once logback has
+     * turbo filters, which the level checks of the messaging classes iterate over.
+     */
+    private static final double TO_MESSAGE_BUDGET = 1280;
+
+    private final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private GameService nodeA;
+    private GameService nodeB;
+
+    @BeforeEach
+    void setUp() {
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+        ((Logger) LoggerFactory.getLogger(GameService.class)).setLevel(Level.INFO);
+        nodeA = node(BoardGeometry.CLASSIC);
+        nodeB = node(BoardGeometry.CLASSIC);
+    }
+
+    @Test
+    void choosingMoveAllocatesNothing() {
+        GameService node = node(new BoardGeometry(7, 7, 4));
+        node.setPositionCache(new PositionCache(node.getGeometry(), 1 << 20));
+        GameSession[] sessions = new GameSession[64];
+        for (int i = 0; i < sessions.length; i++) {
+            sessions[i] = node.startNewGame();
+            for (int move = 0; move < i % 12 && !node.isOver(sessions[i]); move++)
+                node.makeMove(sessions[i]);
+        }
+        GameSession[] classic = new GameSession[8];
+        for (int i = 0; i < classic.length; i++) {
+            classic[i] = nodeA.startNewGame();
+            for (int move = 0; move < i; move++)
+                nodeA.makeMove(classic[i]);
+        }
+
+        double perMove = bytesPerMove(moves -> {
+            long cells = 0;
+            for (int move = 0; move < moves; move++)
+                cells += node.nextCell(sessions[move % sessions.length]) + nodeA.nextCell(classic[move % classic.length]);
+            assertTrue(cells > 0);
+            return 2L * moves;
+        });
+
+        assertWithinBudget("choosing a move", perMove, NEXT_CELL_BUDGET);
+    }
+
+    @Test
+    void movesOfRunningGameOnlyAllocateTheirEvents() {
+        playCountingMovesBeforeTheLast(WARM_UP_MOVES);
+        double perMove = playCountingMovesBeforeTheLast(MEASURED_MOVES);
+
+        assertWithinBudget("a move of a running game", perMove, MOVE_BUDGET);
+    }
+
+    @Test
+    void wholeGamesStayWithinBudget() {
+        // Every game is logged when it starts and ends, which is what a node at this rate turns off
+        ((Logger) LoggerFactory.getLogger(GameService.class)).setLevel(Level.WARN);
+        double perMove = bytesPerMove(moves -> {
+            long played = 0;
+            while (played < moves) {
+                GameSession sessionA = nodeA.startNewGame();
+                MoveEvent move = nodeA.makeMove(sessionA);
+                GameSession sessionB = nodeB.initGameIfNeeded(move);
+                nodeB.acceptMove(sessionB, move);
+                GameService[] nodes = {nodeB, nodeA};
+                GameSession[] sessions = {sessionB, sessionA};
+                played++;
+                for (int turn = 0; !nodes[turn].isOver(sessions[turn]); turn = 1 - turn, played++) {
+                    move = nodes[turn].makeMove(sessions[turn]);
+                    if (!nodes[1 - turn].isOver(sessions[1 - turn]))
+                        nodes[1 - turn].acceptMove(sessions[1 - turn], move);
+                }
+                // The node which made the last move has ended the game, the other one releases it here
+                nodeA.getSessionRegistry().remove(sessionA.getGameId());
+                nodeB.getSessionRegistry().remove(sessionB.getGameId());
+            }
+            return played;
+        });
+
+        assertWithinBudget("a move of a whole game", perMove, GAME_MOVE_BUDGET);
+    }
+
+    @Test
+    void encodingBinaryMoveAllocatesNothing() {
+        GameSession session = nodeA.startNewGame();
+        MoveEvent move = nodeA.makeMove(session);
+        ByteBuffer buffer = ByteBuffer.allocate(MoveEventBinaryMessageConverter.MESSAGE_SIZE);
+
+        double perMove = bytesPerMove(moves -> {
+            for (int i = 0; i < moves; i++)
+                if (MoveEventBinaryMessageConverter.canEncode(move))
+                    MoveEventBinaryMessageConverter.encode(move, buffer.clear());
+            return moves;
+        });
+
+        assertWithinBudget("encoding a binary move", perMove, ENCODE_BUDGET);
+    }
+
+    @Test
+    void convertingBinaryMoveToMessageStaysWithinBudget() {
+        GameSession session = nodeA.startNewGame();
+        MoveEvent move = nodeA.makeMove(session);
+        MoveEventBinaryMessageConverter converter = new MoveEventBinaryMessageConverter();
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setContentType(MoveEventBinaryMessageConverter.MIME_TYPE);
+        MessageHeaders headers = accessor.getMessageHeaders();
+
+        double perMove = bytesPerMove(moves -> {
+            for (int i = 0; i < moves; i++)
+                if (converter.toMessage(move, headers) == null)
+                    throw new IllegalStateException("The move hasn't been converted");
+            return moves;
+        });
+
+        assertWithinBudget("converting a binary move to a message", perMove, TO_MESSAGE_BUDGET);
+    }
+
+    private static GameService node(BoardGeometry geometry) {
+        GameService node = new GameService();
+        node.setSessionRegistry(new GameSessionRegistry(100_000));
+        node.setSolver(SOLVER);
+        node.setGeometry(geometry);
+        return node;
+    }
+
+    /**
+     * Plays whole games, but only counts the moves which don't end their game, since ending a game
+     * releases it and lets the listeners know.
+     *
+     * @return The bytes allocated per counted move.
+     */
+    private double playCountingMovesBeforeTheLast(int moves) {
+        long counted = 0;
+        long allocated = 0;
+        while (counted < moves) {
+            GameSession sessionA = nodeA.startNewGame();
+            MoveEvent move = nodeA.makeMove(sessionA);
+            GameSession sessionB = nodeB.initGameIfNeeded(move);
+            nodeB.acceptMove(sessionB, move);
+            GameService[] nodes = {nodeB, nodeA};
+            GameSession[] sessions = {sessionB, sessionA};
+            int turn = 0;
+            while (!nodes[turn].isOver(sessions[turn])) {
+                long before = allocatedBytes();
+                move = nodes[turn].makeMove(sessions[turn]);
+                if (nodes[turn].isOver(sessions[turn]))
+                    break;
+                nodes[1 - turn].acceptMove(sessions[1 - turn], move);
+                allocated += allocatedBytes() - before;
+                counted++;
+                turn = 1 - turn;
+            }
+            nodeA.getSessionRegistry().remove(sessionA.getGameId());
+            nodeB.getSessionRegistry().remove(sessionB.getGameId());
+        }
+        return (double) allocated / counted;
+    }
+
+    /**
+     * Runs the scenario once to warm up and once more to count the bytes allocated per move.
+     */
+    private double bytesPerMove(Scenario scenario) {
+        scenario.play(WARM_UP_MOVES);
+        long before = allocatedBytes();
+        long moves = scenario.play(MEASURED_MOVES);
+        return (double) (allocatedBytes() - before) / moves;
+    }
+
+    private long allocatedBytes() {
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static void assertWithinBudget(String what, double perMove, double budget) {
+        log.info(String.format("Allocated %.1f bytes per move for %s, the budget is %.0f", perMove, what, budget));
+        assertTrue(perMove <= budget, String.format("Allocated %.1f bytes per move for %s, more than the budget of %.0f bytes",
+                perMove, what, budget));
+    }
+
+    @FunctionalInterface
+    private interface Scenario {
+        /**
+         * @return The number of moves played, at least the given number.
+         */
+        long play(int moves);
+    }
+}
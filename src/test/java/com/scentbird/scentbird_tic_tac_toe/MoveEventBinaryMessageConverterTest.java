@@ -0,0 +1,66 @@
+package com.scentbird.scentbird_tic_tac_toe;
+
+import com.scentbird.scentbird_tic_tac_toe.converter.MoveEventBinaryMessageConverter;
+import com.scentbird.scentbird_tic_tac_toe.model.Figure;
+import com.scentbird.scentbird_tic_tac_toe.model.MoveEvent;
+import com.scentbird.scentbird_tic_tac_toe.model.Player;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.CompositeMessageConverter;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoveEventBinaryMessageConverterTest {
+    private static final MessageHeaders BINARY = new MessageHeaders(
+            Map.of(MessageHeaders.CONTENT_TYPE, MoveEventBinaryMessageConverter.MIME_TYPE));
+
+    private final CompositeMessageConverter converter = new CompositeMessageConverter(
+            List.of(new MoveEventBinaryMessageConverter(), new MappingJackson2MessageConverter()));
+
+    @Test
+    void binaryMoveSurvivesRoundTrip() {
+        MoveEvent moveEvent = move(UUID.randomUUID().toString(), 4094, 17, Figure.O);
+
+        Message<?> message = converter.toMessage(moveEvent, BINARY);
+
+        assertEquals(MoveEventBinaryMessageConverter.MESSAGE_SIZE, ((byte[]) message.getPayload()).length);
+        assertEquals(moveEvent, converter.fromMessage(message, MoveEvent.class));
+    }
+
+    @Test
+    void movesWithoutContentTypeStayJson() {
+        MoveEvent moveEvent = move(UUID.randomUUID().toString(), 1, 2, Figure.X);
+
+        Message<?> message = converter.toMessage(moveEvent, null);
+
+        assertTrue(MimeTypeUtils.APPLICATION_JSON.equalsTypeAndSubtype(
+                (MimeType) message.getHeaders().get(MessageHeaders.CONTENT_TYPE)));
+        assertEquals(moveEvent, converter.fromMessage(message, MoveEvent.class));
+    }
+
+    @Test
+    void movesWhichDontFitAreNotEncoded() {
+        assertFalse(MoveEventBinaryMessageConverter.canEncode(move("gameId", 0, 0, Figure.X)));
+        assertFalse(MoveEventBinaryMessageConverter.canEncode(move(UUID.randomUUID().toString().toUpperCase(), 0, 0, Figure.X)));
+        assertFalse(MoveEventBinaryMessageConverter.canEncode(move(UUID.randomUUID().toString(), null, 0, Figure.X)));
+        assertFalse(MoveEventBinaryMessageConverter.canEncode(move(UUID.randomUUID().toString(), 0, 0, null)));
+        assertNull(new MoveEventBinaryMessageConverter().toMessage(move("gameId", 0, 0, Figure.X), BINARY));
+    }
+
+    private static MoveEvent move(String gameId, Integer x, Integer y, Figure figure) {
+        return MoveEvent.builder()
+                .gameId(gameId)
+                .player(new Player(UUID.randomUUID().toString(), figure))
+                .x(x)
+                .y(y)
+                .build();
+    }
+}
@@ -0,0 +1,173 @@
+package com.scentbird.scentbird_tic_tac_toe;
+
+import com.scentbird.scentbird_tic_tac_toe.engine.Board;
+import com.scentbird.scentbird_tic_tac_toe.engine.BoardGeometry;
+import com.scentbird.scentbird_tic_tac_toe.journal.MoveJournal;
+import com.scentbird.scentbird_tic_tac_toe.model.Figure;
+import com.scentbird.scentbird_tic_tac_toe.model.GameSession;
+import com.scentbird.scentbird_tic_tac_toe.model.MoveEvent;
+import com.scentbird.scentbird_tic_tac_toe.model.Player;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class MoveJournalTest {
+    private static final int MOVES = 1_000_000;
+    private static final long SEGMENT_SIZE = 8L << 20;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void millionMovesSurviveRestart() throws Exception {
+        Map<String, String> liveBoards = new HashMap<>();
+        MoveJournal journal = new MoveJournal(directory, SEGMENT_SIZE, 256);
+        assertTrue(journal.recover().isEmpty());
+
+        long start = System.nanoTime();
+        int moves = 0;
+        for (int game = 0; moves < MOVES; game++) {
+            GameSession session = session(BoardGeometry.CLASSIC);
+            journal.gameStarted(session);
+            for (int cell = 0; cell < Board.CELLS && moves < MOVES; cell++, moves++)
+                play(journal, session, cell % Board.SIZE, cell / Board.SIZE, cell % 2 == 0 ? Figure.X : Figure.O);
+            // Every hundredth game is still in progress when the node goes down
+            if (game % 100 == 0)
+                liveBoards.put(session.getGameId(), session.getBitboard().toString());
+            else
+                journal.gameEnded(session);
+        }
+        journal.close();
+        long appendNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        MoveJournal restarted = new MoveJournal(directory, SEGMENT_SIZE, 256);
+        List<GameSession> recovered = restarted.recover();
+        long recoveryNanos = System.nanoTime() - start;
+        restarted.close();
+
+        log.info(String.format("Appended %s moves in %s ms (%.0f moves/s), recovered %s games in %s ms",
+                MOVES, appendNanos / 1_000_000, MOVES * 1e9 / appendNanos, recovered.size(), recoveryNanos / 1_000_000));
+        assertEquals(liveBoards.size(), recovered.size());
+        for (GameSession session : recovered) {
+            assertEquals(liveBoards.get(session.getGameId()), session.getBitboard().toString());
+            assertEquals(session.getBitboard().occupiedCells(), session.getMoves().size());
+        }
+    }
+
+    @Test
+    void restoresPlayersAndGeometry() throws Exception {
+        MoveJournal journal = new MoveJournal(directory, SEGMENT_SIZE, 1);
+        journal.recover();
+        GameSession session = session(new BoardGeometry(15, 15, 5));
+        session.setPlayer2(new Player(UUID.randomUUID().toString(), Figure.O));
+        journal.gameStarted(session);
+        play(journal, session, 14, 3, Figure.O);
+        journal.close();
+
+        MoveJournal restarted = new MoveJournal(directory, SEGMENT_SIZE, 1);
+        GameSession recovered = restarted.recover().get(0);
+        restarted.close();
+
+        assertEquals(session.getPlayer1(), recovered.getPlayer1());
+        assertEquals(session.getPlayer2(), recovered.getPlayer2());
+        assertEquals(session.getBitboard().getGeometry(), recovered.getBitboard().getGeometry());
+        assertEquals(session.getMoves(), recovered.getMoves());
+    }
+
+    @Test
+    void tornRecordIsSkipped() throws Exception {
+        MoveJournal journal = new MoveJournal(directory, SEGMENT_SIZE, 0);
+        journal.recover();
+        GameSession session = session(BoardGeometry.CLASSIC);
+        journal.gameStarted(session);
+        play(journal, session, 0, 0, Figure.X);
+        play(journal, session, 1, 1, Figure.O);
+        journal.close();
+        // Simulate a crash in the middle of writing the last move
+        try (Stream<Path> files = Files.list(directory);
+             RandomAccessFile file = new RandomAccessFile(files.findFirst().orElseThrow().toFile(), "rw")) {
+            file.seek(2L * MoveJournal.RECORD_SIZE + 30);
+            file.write(0x5A);
+        }
+
+        MoveJournal restarted = new MoveJournal(directory, SEGMENT_SIZE, 0);
+        GameSession recovered = restarted.recover().get(0);
+        restarted.close();
+
+        assertEquals("X../.../...", recovered.getBitboard().toString());
+    }
+
+    @Test
+    void followsGamesHandedOverBetweenNodes() throws Exception {
+        MoveJournal journal = new MoveJournal(directory, SEGMENT_SIZE, 0);
+        journal.recover();
+        GameSession released = session(BoardGeometry.CLASSIC);
+        journal.gameStarted(released);
+        play(journal, released, 0, 0, Figure.X);
+        journal.gameReleased(released);
+        // A game taken over from another node arrives with the moves played there
+        GameSession adopted = session(BoardGeometry.CLASSIC);
+        play(null, adopted, 1, 1, Figure.X);
+        play(null, adopted, 2, 2, Figure.O);
+        journal.gameAdopted(adopted);
+        play(journal, adopted, 0, 2, Figure.X);
+        journal.close();
+
+        MoveJournal restarted = new MoveJournal(directory, SEGMENT_SIZE, 0);
+        List<GameSession> recovered = restarted.recover();
+        restarted.close();
+
+        assertEquals(1, recovered.size());
+        assertEquals(adopted.getGameId(), recovered.get(0).getGameId());
+        assertEquals(adopted.getMoves(), recovered.get(0).getMoves());
+    }
+
+    @Test
+    void segmentsOfEndedGamesAreDeleted() throws Exception {
+        MoveJournal journal = new MoveJournal(directory, 16 * MoveJournal.RECORD_SIZE, 0);
+        journal.recover();
+        for (int game = 0; game < 100; game++) {
+            GameSession session = session(BoardGeometry.CLASSIC);
+            journal.gameStarted(session);
+            play(journal, session, 1, 1, Figure.X);
+            journal.gameEnded(session);
+        }
+        journal.close();
+
+        assertEquals(1, journal.segmentCount());
+    }
+
+    private static GameSession session(BoardGeometry geometry) {
+        return GameSession.builder()
+                .gameId(UUID.randomUUID().toString())
+                .player1(new Player(UUID.randomUUID().toString(), Figure.X))
+                .bitboard(new Board(geometry))
+                .build();
+    }
+
+    /**
+     * Plays a move, and journals it unless the journal is null.
+     */
+    private static void play(MoveJournal journal, GameSession session, int x, int y, Figure figure) {
+        MoveEvent moveEvent = MoveEvent.builder()
+                .gameId(session.getGameId())
+                .player(new Player(figure == Figure.X ? session.getPlayer1().getPlayerId() : null, figure))
+                .x(x)
+                .y(y)
+                .build();
+        session.getBitboard().set(session.getBitboard().getGeometry().cell(x, y), figure);
+        session.recordMove(moveEvent);
+        if (journal != null)
+            journal.movePlayed(session, moveEvent);
+    }
+}
@@ -0,0 +1,119 @@
+package com.scentbird.scentbird_tic_tac_toe;
+
+import com.scentbird.scentbird_tic_tac_toe.service.MoveLanes;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoveLanesTest {
+    private MoveLanes lanes;
+
+    @AfterEach
+    void shutdown() {
+        if (lanes != null)
+            lanes.shutdown();
+    }
+
+    @Test
+    void processesMovesOfAGameInOrder() throws InterruptedException {
+        lanes = new MoveLanes(4, 10_000);
+        int games = 16;
+        int movesPerGame = 500;
+        List<List<Integer>> processed = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(games * movesPerGame);
+        List<Thread> senders = new ArrayList<>();
+        for (int game = 0; game < games; game++) {
+            String gameId = UUID.randomUUID().toString();
+            // Only the lane of the game touches its list, so it needs no locking
+            List<Integer> moves = new ArrayList<>();
+            processed.add(moves);
+            senders.add(new Thread(() -> {
+                for (int move = 0; move < movesPerGame; move++) {
+                    int number = move;
+                    lanes.execute(gameId, () -> {
+                        moves.add(number);
+                        done.countDown();
+                    });
+                }
+            }));
+        }
+        senders.forEach(Thread::start);
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        for (List<Integer> moves : processed) {
+            for (int move = 0; move < movesPerGame; move++)
+                assertEquals(move, moves.get(move));
+        }
+    }
+
+    @Test
+    void busyGameDoesntHoldOtherLanes() throws InterruptedException {
+        lanes = new MoveLanes(2, 16);
+        String busyGame = gameOnLane(0);
+        String otherGame = gameOnLane(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch otherDone = new CountDownLatch(1);
+
+        lanes.execute(busyGame, () -> await(release));
+        lanes.execute(otherGame, otherDone::countDown);
+
+        assertTrue(otherDone.await(5, TimeUnit.SECONDS));
+        release.countDown();
+    }
+
+    @Test
+    void rejectsMovesOfAFullLane() throws InterruptedException {
+        lanes = new MoveLanes(1, 2);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        String gameId = UUID.randomUUID().toString();
+        lanes.execute(gameId, () -> {
+            started.countDown();
+            await(release);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        lanes.execute(gameId, () -> {
+        });
+        lanes.execute(gameId, () -> {
+        });
+
+        RejectedExecutionException e = assertThrows(RejectedExecutionException.class, () -> lanes.execute(gameId, () -> {
+        }));
+        assertTrue(e.getMessage().contains(gameId));
+        assertEquals(2, lanes.queued());
+        release.countDown();
+    }
+
+    @Test
+    void sameGameAlwaysGoesToTheSameLane() {
+        lanes = new MoveLanes(8, 16);
+        String gameId = UUID.randomUUID().toString();
+
+        assertEquals(lanes.lane(gameId), lanes.lane(new String(gameId.toCharArray())));
+        assertEquals(8, lanes.size());
+    }
+
+    private String gameOnLane(int lane) {
+        String gameId;
+        do {
+            gameId = UUID.randomUUID().toString();
+        } while (lanes.lane(gameId) != lane);
+        return gameId;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.scentbird.scentbird_tic_tac_toe;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.scentbird.scentbird_tic_tac_toe.engine.Board;
+import com.scentbird.scentbird_tic_tac_toe.engine.PerfectPlaySolver;
+import com.scentbird.scentbird_tic_tac_toe.model.GameSession;
+import com.scentbird.scentbird_tic_tac_toe.model.MoveEvent;
+import com.scentbird.scentbird_tic_tac_toe.service.GameService;
+import com.scentbird.scentbird_tic_tac_toe.service.GameSessionRegistry;
+import com.scentbird.scentbird_tic_tac_toe.service.MovePacer;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Plays a growing number of concurrent paced games and checks that the number of threads doesn't grow with them.
+ */
+@Slf4j
+class MovePacingLoadTest {
+    private static final PerfectPlaySolver SOLVER = new PerfectPlaySolver();
+    private static final Duration DELAY = Duration.ofMillis(20);
+    /**
+     * Room for threads the JVM itself may start meanwhile, such as extra JIT compiler threads.
+     */
+    private static final int THREAD_TOLERANCE = 4;
+
+    private ThreadPoolTaskScheduler scheduler;
+    private GameService nodeA;
+    private GameService nodeB;
+
+    @BeforeEach
+    void setUp() {
+        ((Logger) LoggerFactory.getLogger(GameService.class)).setLevel(Level.WARN);
+        scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(1);
+        scheduler.initialize();
+        nodeA = node();
+        nodeB = node();
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    void threadCountStaysFlatAsGamesGrow() throws Exception {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        // Warm up, so that lazily started threads are already there
+        play(10);
+
+        int baseline = 0;
+        for (int games : new int[]{10, 100, 1_000}) {
+            threads.resetPeakThreadCount();
+            long start = System.nanoTime();
+            play(games);
+            int peak = threads.getPeakThreadCount();
+            log.info(String.format("%d concurrent games finished in %d ms with at most %d live threads",
+                    games, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), peak));
+
+            if (baseline == 0)
+                baseline = peak;
+            assertTrue(peak <= baseline + THREAD_TOLERANCE,
+                    String.format("%d games needed %d threads, %d games needed %d", games, peak, 10, baseline));
+        }
+    }
+
+    private GameService node() {
+        GameService node = new GameService();
+        node.setSessionRegistry(new GameSessionRegistry(100_000));
+        node.setSolver(SOLVER);
+        node.setPacer(new MovePacer(scheduler, DELAY));
+        return node;
+    }
+
+    private void play(int games) throws InterruptedException {
+        CountDownLatch finished = new CountDownLatch(games);
+        for (int game = 0; game < games; game++) {
+            GameSession session = nodeA.startNewGame();
+            nodeA.makeMove(session, move -> deliver(nodeB, nodeA, move, finished));
+        }
+        assertTrue(finished.await(30, TimeUnit.SECONDS), "Not all games finished in time");
+    }
+
+    private void deliver(GameService receiver, GameService sender, MoveEvent move, CountDownLatch finished) {
+        GameSession session = receiver.initGameIfNeeded(move);
+        receiver.acceptMove(session, move);
+        if (receiver.checkWinner(session) != null || session.getMoves().size() == Board.CELLS) {
+            receiver.getSessionRegistry().remove(session.getGameId());
+            sender.getSessionRegistry().remove(session.getGameId());
+            finished.countDown();
+            return;
+        }
+        receiver.makeMove(session, reply -> deliver(sender, receiver, reply, finished));
+    }
+}
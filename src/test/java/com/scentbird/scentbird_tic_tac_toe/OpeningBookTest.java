@@ -0,0 +1,122 @@
+package com.scentbird.scentbird_tic_tac_toe;
+
+import com.scentbird.scentbird_tic_tac_toe.engine.*;
+import com.scentbird.scentbird_tic_tac_toe.model.Figure;
+import com.scentbird.scentbird_tic_tac_toe.model.GameSession;
+import com.scentbird.scentbird_tic_tac_toe.model.MoveEvent;
+import com.scentbird.scentbird_tic_tac_toe.service.GameService;
+import com.scentbird.scentbird_tic_tac_toe.service.GameSessionRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class OpeningBookTest {
+    private static final BoardGeometry GOMOKU = new BoardGeometry(15, 15, 5);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void answersRotatedPositionsWithWeightedMoves() throws Exception {
+        Board center = new Board(GOMOKU);
+        center.set(GOMOKU.cell(7, 7), Figure.X);
+        Board side = new Board(GOMOKU);
+        side.set(GOMOKU.cell(3, 4), Figure.X);
+        OpeningBookWriter writer = new OpeningBookWriter(GOMOKU);
+        writer.add(center, Figure.O, GOMOKU.cell(8, 7), 3);
+        writer.add(center, Figure.O, GOMOKU.cell(8, 8), 1);
+        writer.add(side, Figure.O, GOMOKU.cell(4, 4), 1);
+        Path file = directory.resolve("book.bin");
+        writer.write(file);
+
+        OpeningBook book = OpeningBook.open(file, GOMOKU);
+        int[] counts = new int[GOMOKU.cells()];
+        for (int i = 0; i < 400; i++)
+            counts[book.lookup(center, Figure.O)]++;
+        // A quarter turn maps (x, y) to (14 - y, x)
+        Board rotated = new Board(GOMOKU);
+        rotated.set(GOMOKU.cell(10, 3), Figure.X);
+
+        assertEquals(400, counts[GOMOKU.cell(8, 7)] + counts[GOMOKU.cell(8, 8)]);
+        assertTrue(counts[GOMOKU.cell(8, 7)] > counts[GOMOKU.cell(8, 8)]);
+        assertEquals(GOMOKU.cell(10, 4), book.lookup(rotated, Figure.O));
+        // The same cells seen from the other side are another position
+        assertEquals(OpeningBook.NO_MOVE, book.lookup(center, Figure.X));
+        assertEquals(401, book.hits());
+        assertEquals(1, book.misses());
+    }
+
+    @Test
+    void rejectsBookOfAnotherBoard() throws Exception {
+        Path file = directory.resolve("book.bin");
+        new OpeningBookWriter(GOMOKU).write(file);
+
+        assertThrows(IllegalArgumentException.class, () -> OpeningBook.open(file, BoardGeometry.CLASSIC));
+        assertEquals(0, OpeningBook.open(file, GOMOKU).size());
+    }
+
+    @Test
+    void mapsLargeBookWithoutReadingIt() throws Exception {
+        SplittableRandom random = new SplittableRandom(21);
+        OpeningBookWriter writer = new OpeningBookWriter(GOMOKU);
+        Board[] positions = new Board[1000];
+        for (int position = 0; position < 500_000; position++) {
+            Board board = new Board(GOMOKU);
+            for (int stone = 0; stone < 6; stone++)
+                board.set(random.nextInt(GOMOKU.cells()), stone % 2 == 0 ? Figure.X : Figure.O);
+            int cell;
+            do {
+                cell = random.nextInt(GOMOKU.cells());
+            } while (!board.isEmpty(cell));
+            writer.add(board, Figure.X, cell, 1);
+            if (position < positions.length)
+                positions[position] = board;
+        }
+        Path file = directory.resolve("book.bin");
+        writer.write(file);
+
+        long start = System.nanoTime();
+        OpeningBook book = OpeningBook.open(file, GOMOKU);
+        long openNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (Board position : positions)
+            assertNotEquals(OpeningBook.NO_MOVE, book.lookup(position, Figure.X));
+        long lookupNanos = System.nanoTime() - start;
+
+        log.info(String.format("Mapped a book of %s MB in %s us, looked up %s positions in %s us",
+                Files.size(file) >> 20, openNanos / 1000, positions.length, lookupNanos / 1000));
+        assertEquals(500_000, book.size());
+    }
+
+    @Test
+    void gameServicePlaysBookMoveBeforeSearching() throws Exception {
+        BoardGeometry geometry = new BoardGeometry(5, 5, 4);
+        OpeningBookWriter writer = new OpeningBookWriter(geometry);
+        try (MonteCarloSearch search = new MonteCarloSearch(geometry, Duration.ofMillis(2), 1, 4096)) {
+            writer.generate(search, 2, 2);
+        }
+        Path file = directory.resolve("book.bin");
+        writer.write(file);
+        OpeningBook book = OpeningBook.open(file, geometry);
+
+        GameService gameService = new GameService();
+        gameService.setSessionRegistry(new GameSessionRegistry(10));
+        gameService.setSolver(new PerfectPlaySolver());
+        gameService.setGeometry(geometry);
+        gameService.setOpeningBook(book);
+        GameSession session = gameService.startNewGame();
+        MoveEvent first = gameService.getNextMove(session);
+
+        assertTrue(writer.size() > 2);
+        assertEquals(1, book.hits());
+        assertTrue(session.getBitboard().isEmpty(geometry.cell(first.getX(), first.getY())));
+    }
+}
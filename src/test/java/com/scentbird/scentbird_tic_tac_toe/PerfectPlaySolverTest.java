@@ -0,0 +1,89 @@
+package com.scentbird.scentbird_tic_tac_toe;
+
+import com.scentbird.scentbird_tic_tac_toe.engine.Board;
+import com.scentbird.scentbird_tic_tac_toe.engine.PerfectPlaySolver;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PerfectPlaySolverTest {
+    private static final PerfectPlaySolver SOLVER = new PerfectPlaySolver();
+
+    @Test
+    void enumeratesEveryPosition() {
+        assertEquals(5478, SOLVER.getReachablePositions());
+        assertEquals(765, SOLVER.getCanonicalPositions());
+        assertEquals(PerfectPlaySolver.DRAW, SOLVER.outcome(0, 0));
+    }
+
+    @Test
+    void takesTheWinInsteadOfBlocking() {
+        // X . X
+        // O O .
+        // . . .   X to move
+        int x = 1 << Board.cell(0, 0) | 1 << Board.cell(2, 0);
+        int o = 1 << Board.cell(0, 1) | 1 << Board.cell(1, 1);
+
+        assertEquals(Board.cell(1, 0), SOLVER.bestMove(x, o));
+        assertEquals(PerfectPlaySolver.WIN, SOLVER.outcome(x, o));
+    }
+
+    @Test
+    void blocksTheOpponentLine() {
+        // O . .
+        // . O .
+        // X . .   X to move
+        int x = 1 << Board.cell(0, 2);
+        int o = 1 << Board.cell(0, 0) | 1 << Board.cell(1, 1);
+
+        assertEquals(Board.cell(2, 2), SOLVER.bestMove(x, o));
+    }
+
+    @Test
+    void neverLosesWhicheverSideMovesFirst() {
+        // The solver moves first
+        assertNeverLoses(0, 0, true);
+        // The opponent moves first, from any cell
+        for (int cell = 0; cell < Board.CELLS; cell++)
+            assertNeverLoses(0, 1 << cell, true);
+    }
+
+    @Test
+    void neverAnswersWithAnOccupiedCell() {
+        // The opponent holds two cells while nobody has moved on this side: the position can't be reached
+        assertEquals(-1, SOLVER.bestMove(0, 0b11));
+        assertEquals(PerfectPlaySolver.UNKNOWN, SOLVER.outcome(0, 0b11));
+        // Overlapping cells share their code with a reachable position
+        assertEquals(-1, SOLVER.bestMove(0b1, 0b1));
+
+        int moves = 0;
+        for (int mine = 0; mine <= Board.FULL; mine++) {
+            for (int theirs = 0; theirs <= Board.FULL; theirs++) {
+                int cell = SOLVER.bestMove(mine, theirs);
+                if ((mine & theirs) != 0 || SOLVER.outcome(mine, theirs) == PerfectPlaySolver.UNKNOWN) {
+                    assertEquals(-1, cell, mine + "/" + theirs);
+                } else if (cell >= 0) {
+                    assertEquals(0, (mine | theirs) & 1 << cell, mine + "/" + theirs);
+                    moves++;
+                }
+            }
+        }
+        assertTrue(moves > 0);
+    }
+
+    private void assertNeverLoses(int solver, int opponent, boolean solverToMove) {
+        assertFalse(Board.isWinning(opponent), "solver lost " + solver + "/" + opponent);
+        if (Board.isWinning(solver) || (solver | opponent) == Board.FULL)
+            return;
+
+        if (solverToMove) {
+            int cell = SOLVER.bestMove(solver, opponent);
+            assertTrue(cell >= 0);
+            assertEquals(0, (solver | opponent) & (1 << cell));
+            assertNeverLoses(solver | 1 << cell, opponent, false);
+        } else {
+            for (int empty = ~(solver | opponent) & Board.FULL; empty != 0; empty &= empty - 1)
+                assertNeverLoses(solver, opponent | (empty & -empty), true);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.scentbird.scentbird_tic_tac_toe;
+
+import com.scentbird.scentbird_tic_tac_toe.engine.Board;
+import com.scentbird.scentbird_tic_tac_toe.engine.BoardGeometry;
+import com.scentbird.scentbird_tic_tac_toe.engine.PerfectPlaySolver;
+import com.scentbird.scentbird_tic_tac_toe.engine.PositionCache;
+import com.scentbird.scentbird_tic_tac_toe.model.Figure;
+import com.scentbird.scentbird_tic_tac_toe.model.GameSession;
+import com.scentbird.scentbird_tic_tac_toe.model.MoveEvent;
+import com.scentbird.scentbird_tic_tac_toe.service.GameService;
+import com.scentbird.scentbird_tic_tac_toe.service.GameSessionRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PositionCacheTest {
+    private static final BoardGeometry GOMOKU = new BoardGeometry(15, 15, 5);
+
+    @Test
+    void rotatedAndMirroredPositionsShareAnEntry() {
+        PositionCache cache = new PositionCache(GOMOKU, 1 << 20);
+        Board board = new Board(GOMOKU);
+        for (int x = 3; x < 7; x++)
+            board.set(GOMOKU.cell(x, 2), Figure.X);
+        // Only one end of the line is open, so there is a single winning cell
+        board.set(GOMOKU.cell(2, 2), Figure.O);
+        int winningCell = board.findWinningCell(Figure.X);
+        cache.store(board, Figure.X, winningCell);
+
+        // A quarter turn maps (x, y) to (14 - y, x), a mirror maps it to (14 - x, y)
+        Board rotated = transform(board, (x, y) -> GOMOKU.cell(14 - y, x));
+        Board mirrored = transform(board, (x, y) -> GOMOKU.cell(14 - x, y));
+
+        assertEquals(rotated.findWinningCell(Figure.X), cache.lookup(rotated, Figure.X));
+        assertEquals(mirrored.findWinningCell(Figure.X), cache.lookup(mirrored, Figure.X));
+        assertEquals(1, cache.size());
+        assertEquals(2, cache.hits());
+        // The same cells seen from the other side are another position
+        assertEquals(PositionCache.MISS, cache.lookup(board, Figure.O));
+    }
+
+    @Test
+    void rectangleOnlySharesMirroredPositions() {
+        BoardGeometry connectFour = new BoardGeometry(7, 6, 4);
+        PositionCache cache = new PositionCache(connectFour, 1 << 16);
+        Board board = new Board(connectFour);
+        board.set(connectFour.cell(0, 5), Figure.X);
+        board.set(connectFour.cell(1, 5), Figure.O);
+        cache.store(board, Figure.X, PositionCache.NO_CELL);
+
+        Board upsideDown = transform(board, (x, y) -> connectFour.cell(6 - x, 5 - y));
+
+        assertEquals(PositionCache.NO_CELL, cache.lookup(upsideDown, Figure.X));
+    }
+
+    @Test
+    void unrelatedPositionsDontShareEntries() {
+        PositionCache cache = new PositionCache(GOMOKU, 1 << 20);
+        SplittableRandom random = new SplittableRandom(11);
+        for (int position = 0; position < 2_000; position++)
+            cache.store(randomPosition(random), Figure.X, PositionCache.NO_CELL);
+
+        // Any hash may be the smallest one, those with the top bit set included
+        for (int position = 0; position < 2_000; position++)
+            assertEquals(PositionCache.MISS, cache.lookup(randomPosition(random), Figure.X));
+    }
+
+    @Test
+    void staysWithinItsMemoryCap() {
+        PositionCache cache = new PositionCache(GOMOKU, 64 * 1024);
+        SplittableRandom random = new SplittableRandom(7);
+        Board board = new Board(GOMOKU);
+        for (int position = 0; position < 100_000; position++) {
+            int cell = random.nextInt(GOMOKU.cells());
+            board.set(cell, board.isEmpty(cell) ? Figure.O : null);
+            cache.store(board, Figure.X, PositionCache.NO_CELL);
+        }
+
+        assertEquals(64 * 1024 / PositionCache.ENTRY_BYTES, cache.capacity());
+        assertTrue(cache.size() <= cache.capacity());
+        // The latest position has just been stored
+        assertEquals(PositionCache.NO_CELL, cache.lookup(board, Figure.X));
+    }
+
+    @Test
+    void ignoresCachedCellWhichIsTaken() {
+        PositionCache cache = new PositionCache(GOMOKU, 1 << 16);
+        Board board = new Board(GOMOKU);
+        board.set(GOMOKU.cell(7, 7), Figure.X);
+        cache.store(board, Figure.O, GOMOKU.cell(7, 7));
+
+        assertEquals(PositionCache.MISS, cache.lookup(board, Figure.O));
+        assertEquals(PositionCache.MISS, PositionCache.NONE.lookup(new Board(), Figure.X));
+        assertEquals(PositionCache.MISS, cache.lookup(new Board(), Figure.X));
+    }
+
+    @Test
+    void gameServiceReusesDecisionsOfLargeBoards() {
+        PositionCache cache = new PositionCache(GOMOKU, 1 << 20);
+        GameService gameService = new GameService();
+        gameService.setSessionRegistry(new GameSessionRegistry(10));
+        gameService.setSolver(new PerfectPlaySolver());
+        gameService.setGeometry(GOMOKU);
+        gameService.setPositionCache(cache);
+        GameSession session = gameService.startNewGame();
+        Figure opponent = Figure.getOppositeTo(session.getPlayer1().getFigure());
+        for (int x = 0; x < 4; x++)
+            session.getBitboard().set(GOMOKU.cell(x, 0), opponent);
+
+        MoveEvent first = gameService.getNextMove(session);
+        MoveEvent second = gameService.getNextMove(session);
+
+        assertEquals(new MoveEvent(session.getGameId(), session.getPlayer1(), 4, 0), first);
+        assertEquals(first, second);
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+    }
+
+    private static Board randomPosition(SplittableRandom random) {
+        Board board = new Board(GOMOKU);
+        for (int stone = 0; stone < 20; stone++)
+            board.set(random.nextInt(GOMOKU.cells()), stone % 2 == 0 ? Figure.X : Figure.O);
+        return board;
+    }
+
+    private interface CellMapping {
+        int map(int x, int y);
+    }
+
+    private static Board transform(Board board, CellMapping mapping) {
+        BoardGeometry geometry = board.getGeometry();
+        Board transformed = new Board(geometry);
+        for (int cell = 0; cell < geometry.cells(); cell++) {
+            Figure figure = board.get(cell);
+            if (figure != null)
+                transformed.set(mapping.map(cell % geometry.getWidth(), cell / geometry.getWidth()), figure);
+        }
+        return transformed;
+    }
+}
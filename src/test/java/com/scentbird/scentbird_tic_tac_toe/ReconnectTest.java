@@ -0,0 +1,147 @@
+package com.scentbird.scentbird_tic_tac_toe;
+
+import com.scentbird.scentbird_tic_tac_toe.engine.PerfectPlaySolver;
+import com.scentbird.scentbird_tic_tac_toe.handler.GameStompMessageHandler;
+import com.scentbird.scentbird_tic_tac_toe.handler.ReconnectBackoff;
+import com.scentbird.scentbird_tic_tac_toe.model.Figure;
+import com.scentbird.scentbird_tic_tac_toe.model.GameSession;
+import com.scentbird.scentbird_tic_tac_toe.model.GameStateDelta;
+import com.scentbird.scentbird_tic_tac_toe.model.MoveEvent;
+import com.scentbird.scentbird_tic_tac_toe.model.Player;
+import com.scentbird.scentbird_tic_tac_toe.model.ResumeRequest;
+import com.scentbird.scentbird_tic_tac_toe.model.ResumeResponse;
+import com.scentbird.scentbird_tic_tac_toe.service.GameService;
+import com.scentbird.scentbird_tic_tac_toe.service.GameSessionRegistry;
+import com.scentbird.scentbird_tic_tac_toe.service.MovePacer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ReconnectTest {
+    private GameService gameService;
+    private GameStompMessageHandler handler;
+    private StompSession stompSession;
+
+    @BeforeEach
+    void setUp() {
+        gameService = new GameService();
+        gameService.setSessionRegistry(new GameSessionRegistry(10));
+        gameService.setSolver(new PerfectPlaySolver());
+        gameService.setPacer(new MovePacer(null, Duration.ZERO));
+        handler = new GameStompMessageHandler(gameService, mock(WebSocketStompClient.class));
+        stompSession = mock(StompSession.class);
+        when(stompSession.isConnected()).thenReturn(true);
+    }
+
+    @Test
+    void backoffDoublesUpToTheMaximumWithJitter() {
+        ReconnectBackoff backoff = new ReconnectBackoff(Duration.ofMillis(100), Duration.ofSeconds(1));
+        long[] ceilings = {100, 200, 400, 800, 1000, 1000};
+        for (long ceiling : ceilings)
+            assertTrue(backoff.nextDelay().toMillis() <= ceiling);
+        assertEquals(4, backoff.attempts());
+
+        backoff.reset();
+        assertEquals(0, backoff.attempts());
+        // Full jitter spreads the delays over the whole window
+        long distinct = IntStream.range(0, 100)
+                .mapToObj(i -> new ReconnectBackoff(Duration.ofSeconds(1), Duration.ofSeconds(1)).nextDelay())
+                .distinct().count();
+        assertTrue(distinct > 90);
+    }
+
+    @Test
+    void serverAnswersWithTheMovesThePeerHasMissed() {
+        GameSession session = gameService.startNewGame();
+        Figure opponent = Figure.getOppositeTo(session.getPlayer1().getFigure());
+        MoveEvent peerMove = new MoveEvent(session.getGameId(), new Player("peer", opponent), 0, 0);
+        gameService.acceptMove(session, peerMove);
+        MoveEvent reply = gameService.makeMove(session);
+
+        ResumeResponse behind = gameService.resume(new ResumeRequest(session.getGameId(), 1));
+        ResumeResponse ahead = gameService.resume(new ResumeRequest(session.getGameId(), 3));
+        ResumeResponse unknown = gameService.resume(new ResumeRequest("gone", 1));
+
+        assertEquals(new ResumeResponse(session.getGameId(), true, 2, List.of(reply)), behind);
+        assertEquals(new ResumeResponse(session.getGameId(), true, 2, List.of()), ahead);
+        assertFalse(unknown.isFound());
+    }
+
+    @Test
+    void reconnectResumesTheGameInProgress() {
+        handler.afterConnected(stompSession, new StompHeaders());
+        MoveEvent firstMove = sentMoves().get(0);
+
+        handler.afterConnected(stompSession, new StompHeaders());
+
+        verify(stompSession).send(any(StompHeaders.class), eq(new ResumeRequest(firstMove.getGameId(), 1)));
+        // The opponent has never got the first move, so it's sent again
+        resumeHandler().handleFrame(new StompHeaders(), new ResumeResponse(firstMove.getGameId(), true, 0, List.of()));
+        assertEquals(List.of(firstMove, firstMove), sentMoves());
+    }
+
+    @Test
+    void gameUnknownToTheOpponentIsGivenUp() {
+        handler.afterConnected(stompSession, new StompHeaders());
+        MoveEvent firstMove = sentMoves().get(0);
+        handler.afterConnected(stompSession, new StompHeaders());
+
+        resumeHandler().handleFrame(new StompHeaders(), new ResumeResponse(firstMove.getGameId(), false, 0, List.of()));
+
+        List<MoveEvent> moves = sentMoves();
+        assertEquals(2, moves.size());
+        assertNotEquals(firstMove.getGameId(), moves.get(1).getGameId());
+    }
+
+    @Test
+    void gameEvictedByTheOpponentIsGivenUp() {
+        handler.afterConnected(stompSession, new StompHeaders());
+        MoveEvent firstMove = sentMoves().get(0);
+        GameSession evicted = gameService.getSessionRegistry().get(firstMove.getGameId());
+
+        // An eviction of another game changes nothing, the eviction of this one ends it here too
+        evictionHandler().handleFrame(new StompHeaders(), new GameStateDelta("other", 1, null, true, true));
+        assertEquals(1, sentMoves().size());
+        evictionHandler().handleFrame(new StompHeaders(), new GameStateDelta(firstMove.getGameId(), 2, null, true, true));
+
+        assertTrue(evicted.isEvicted());
+        assertNull(gameService.getSessionRegistry().get(firstMove.getGameId()));
+        List<MoveEvent> moves = sentMoves();
+        assertEquals(2, moves.size());
+        assertNotEquals(firstMove.getGameId(), moves.get(1).getGameId());
+    }
+
+    private StompFrameHandler evictionHandler() {
+        ArgumentCaptor<StompFrameHandler> handlers = ArgumentCaptor.forClass(StompFrameHandler.class);
+        verify(stompSession).subscribe(eq("/user/queue/evictions"), handlers.capture());
+        return handlers.getValue();
+    }
+
+    private List<MoveEvent> sentMoves() {
+        ArgumentCaptor<Object> payloads = ArgumentCaptor.forClass(Object.class);
+        verify(stompSession, atLeastOnce()).send(any(StompHeaders.class), payloads.capture());
+        return payloads.getAllValues().stream()
+                .filter(MoveEvent.class::isInstance)
+                .map(MoveEvent.class::cast)
+                .toList();
+    }
+
+    private StompFrameHandler resumeHandler() {
+        ArgumentCaptor<StompFrameHandler> handlers = ArgumentCaptor.forClass(StompFrameHandler.class);
+        verify(stompSession, atLeastOnce()).subscribe(eq("/user/queue/resume"), handlers.capture());
+        return handlers.getValue();
+    }
+}
@@ -0,0 +1,182 @@
+package com.scentbird.scentbird_tic_tac_toe;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.scentbird.scentbird_tic_tac_toe.engine.Board;
+import com.scentbird.scentbird_tic_tac_toe.engine.PerfectPlaySolver;
+import com.scentbird.scentbird_tic_tac_toe.model.Figure;
+import com.scentbird.scentbird_tic_tac_toe.model.GameSession;
+import com.scentbird.scentbird_tic_tac_toe.model.MoveEvent;
+import com.scentbird.scentbird_tic_tac_toe.model.Player;
+import com.scentbird.scentbird_tic_tac_toe.service.*;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class SessionExpiryTest {
+    private static final Duration IDLE_TIMEOUT = Duration.ofMinutes(5);
+    private static final Duration MAX_LIFETIME = Duration.ofMinutes(30);
+    private static final Duration TICK = Duration.ofSeconds(1);
+    private static final PerfectPlaySolver SOLVER = new PerfectPlaySolver();
+
+    private final long[] now = {0};
+    private final List<GameSession> evicted = Collections.synchronizedList(new ArrayList<>());
+    private MoveLanes lanes;
+    private SessionExpiry expiry;
+    private GameService gameService;
+
+    @BeforeEach
+    void setUp() {
+        ((Logger) LoggerFactory.getLogger(GameService.class)).setLevel(Level.WARN);
+        ((Logger) LoggerFactory.getLogger(SessionExpiry.class)).setLevel(Level.WARN);
+        lanes = new MoveLanes(1, 1 << 16);
+        expiry = new SessionExpiry(IDLE_TIMEOUT, MAX_LIFETIME, TICK, () -> now[0], null);
+        gameService = new GameService();
+        gameService.setSessionRegistry(new GameSessionRegistry(1_000_000));
+        gameService.setSolver(SOLVER);
+        gameService.setListeners(List.of(expiry, new GameListener() {
+            @Override
+            public void gameEnded(GameSession session) {
+                if (session.isEvicted())
+                    evicted.add(session);
+            }
+        }));
+        expiry.setGameService(gameService);
+        expiry.setLanes(lanes);
+        expiry.setSessionRegistry(gameService.getSessionRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        lanes.shutdown();
+    }
+
+    @Test
+    void evictsIdleAndOldGamesOnly() throws Exception {
+        GameSession idle = gameService.startNewGame();
+        GameSession active = gameService.startNewGame();
+        GameSession finished = gameService.startNewGame();
+        while (!finished.isEnded())
+            playRound(finished);
+
+        advance(IDLE_TIMEOUT.minus(TICK));
+        playRound(active);
+        assertTrue(evicted.isEmpty());
+        advance(TICK.multipliedBy(2));
+        assertEquals(List.of(idle), evicted);
+        assertTrue(idle.isEnded());
+
+        // A move every four minutes keeps the game from idling, but not from growing too old
+        while (now[0] < MAX_LIFETIME.toNanos() - IDLE_TIMEOUT.toNanos()) {
+            advance(Duration.ofMinutes(4));
+            expiry.movePlayed(active, null);
+        }
+        assertEquals(1, evicted.size());
+        advance(MAX_LIFETIME);
+
+        assertEquals(List.of(idle, active), evicted);
+        assertFalse(finished.isEvicted());
+        assertEquals(0, gameService.getSessionRegistry().size());
+        assertEquals(0, expiry.size());
+    }
+
+    @Test
+    void heapStaysFlatOverSimulatedDayOfChurn() throws Exception {
+        SplittableRandom random = new SplittableRandom(24);
+        List<GameSession> playing = new ArrayList<>();
+        long[] heapPerHour = new long[25];
+        int[] gamesPerHour = new int[25];
+        long started = 0;
+        long evictions = 0;
+
+        for (int second = 0; second <= 24 * 3600; second++) {
+            // Three games start every second; every game played on either ends or is left behind for good
+            for (int i = 0; i < 3; i++) {
+                playing.add(gameService.startNewGame());
+                started++;
+            }
+            for (int i = playing.size() - 1; i >= 0; i--) {
+                GameSession session = playing.get(i);
+                if (session.isEnded() || random.nextInt(4) == 0) {
+                    playing.remove(i);
+                } else if (random.nextBoolean()) {
+                    playRound(session);
+                }
+            }
+            now[0] += TICK.toNanos();
+            expiry.expire();
+            if (second % 3600 == 0) {
+                drain();
+                evictions += evicted.size();
+                evicted.clear();
+                heapPerHour[second / 3600] = usedHeap();
+                gamesPerHour[second / 3600] = gameService.getSessionRegistry().size();
+            }
+        }
+
+        log.info(String.format("Started %s games in a simulated day and evicted %s; games held per hour: %s, heap per hour in MB: %s",
+                started, evictions, Arrays.toString(gamesPerHour), Arrays.toString(Arrays.stream(heapPerHour).map(bytes -> bytes >> 20).toArray())));
+        // Only games which have been played within the idle timeout are held, and they all started within it or shortly before
+        long bound = 3 * (IDLE_TIMEOUT.toSeconds() + 60);
+        for (int hour = 1; hour <= 24; hour++)
+            assertTrue(gamesPerHour[hour] < bound, String.format("%s games held after %s hours", gamesPerHour[hour], hour));
+        assertEquals(gameService.getSessionRegistry().size(), expiry.size());
+        assertTrue(heapPerHour[24] - heapPerHour[1] < 16L << 20,
+                String.format("The heap grew from %s MB to %s MB", heapPerHour[1] >> 20, heapPerHour[24] >> 20));
+        assertTrue(evictions > started / 4);
+    }
+
+    /**
+     * Makes a move, which the opponent answers on the first free cell. Since this node moves first and plays
+     * perfectly, it's always its own move which ends the game.
+     */
+    private void playRound(GameSession session) {
+        gameService.makeMove(session);
+        if (session.isEnded())
+            return;
+        Board board = session.getBitboard();
+        int cell = 0;
+        while (!board.isEmpty(cell))
+            cell++;
+        Player opponent = new Player("opponent", Figure.getOppositeTo(session.getPlayer1().getFigure()));
+        gameService.acceptMove(session, new MoveEvent(session.getGameId(), opponent, cell % Board.SIZE, cell / Board.SIZE));
+    }
+
+    private void advance(Duration duration) throws InterruptedException {
+        for (long end = now[0] + duration.toNanos(); now[0] < end; ) {
+            now[0] = Math.min(end, now[0] + TICK.toNanos());
+            expiry.expire();
+        }
+        drain();
+    }
+
+    /**
+     * Waits until the evictions queued so far have run: the single lane runs a marker after them.
+     */
+    private void drain() throws InterruptedException {
+        CountDownLatch drained = new CountDownLatch(1);
+        lanes.execute("drain", drained::countDown);
+        assertTrue(drained.await(10, TimeUnit.SECONDS));
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
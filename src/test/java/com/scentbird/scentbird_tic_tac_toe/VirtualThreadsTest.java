@@ -0,0 +1,26 @@
+package com.scentbird.scentbird_tic_tac_toe;
+
+import com.scentbird.scentbird_tic_tac_toe.config.VirtualThreads;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ThreadFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VirtualThreadsTest {
+
+    @Test
+    void createsVirtualThreadsOnlyWhereSupported() throws Exception {
+        ThreadFactory factory = VirtualThreads.factory("test-");
+
+        if (Runtime.version().feature() < 21) {
+            assertFalse(VirtualThreads.isSupported());
+            assertNull(factory);
+            return;
+        }
+        Thread thread = factory.newThread(() -> {
+        });
+        assertEquals("test-0", thread.getName());
+        assertTrue((Boolean) Thread.class.getMethod("isVirtual").invoke(thread));
+    }
+}